@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.benchmark;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Random;
+
+import org.icgc.dcc.storage.client.transport.FileDataChannel;
+import org.icgc.dcc.storage.client.transport.MemoryMappedDataChannel;
+import org.icgc.dcc.storage.client.transport.PipedDataChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import lombok.val;
+
+/**
+ * Throughput of the client {@code DataChannel}s for a single part.
+ * <p>
+ * {@code writeTo} is the upload path (part to request body, including the MD5 the channel calculates) and
+ * {@code readFrom} the download path (response body to part). {@link PipedDataChannel} is upload only.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Thread)
+public class DataChannelBenchmark {
+
+  /**
+   * Configuration.
+   */
+  @Param({ "1048576", "20971520", "67108864" })
+  int partSize;
+
+  /**
+   * State.
+   */
+  byte[] data;
+  File dir;
+  File source;
+  File target;
+  MemoryMappedDataChannel mappedSource;
+  MemoryMappedDataChannel mappedTarget;
+
+  @Setup
+  public void setup() throws IOException {
+    data = new byte[partSize];
+    new Random(1).nextBytes(data);
+
+    dir = Files.createTempDir();
+    source = new File(dir, "source");
+    target = new File(dir, "target");
+    Files.write(data, source);
+
+    mappedSource = new MemoryMappedDataChannel(map(source, MapMode.READ_ONLY), 0, partSize, null);
+    mappedTarget = new MemoryMappedDataChannel(map(target, MapMode.READ_WRITE), 0, partSize, null);
+  }
+
+  @TearDown
+  public void tearDown() {
+    source.delete();
+    target.delete();
+    dir.delete();
+  }
+
+  @Benchmark
+  public String fileWriteTo() throws IOException {
+    val channel = new FileDataChannel(source, 0, partSize, null);
+    channel.writeTo(ByteStreams.nullOutputStream());
+
+    return channel.getMd5();
+  }
+
+  @Benchmark
+  public void fileReadFrom() throws IOException {
+    val channel = new FileDataChannel(target, 0, partSize, null);
+    channel.readFrom(new ByteArrayInputStream(data));
+  }
+
+  @Benchmark
+  public String memoryMappedWriteTo() throws IOException {
+    mappedSource.reset();
+    mappedSource.writeTo(ByteStreams.nullOutputStream());
+
+    return mappedSource.getMd5();
+  }
+
+  @Benchmark
+  public void memoryMappedReadFrom() throws IOException {
+    mappedTarget.reset();
+    mappedTarget.readFrom(new ByteArrayInputStream(data));
+  }
+
+  @Benchmark
+  public String pipedWriteTo(Pipe pipe) throws IOException {
+    val channel = new PipedDataChannel(pipe.input, 0, partSize, null);
+    channel.writeTo(ByteStreams.nullOutputStream());
+
+    return channel.getMd5();
+  }
+
+  /**
+   * A pipe holding one part, filled the same way {@code PipedParallelPartObjectTransport} does before the upload.
+   */
+  @State(Scope.Thread)
+  public static class Pipe {
+
+    PipedInputStream input;
+
+    @Setup(Level.Invocation)
+    public void fill(DataChannelBenchmark benchmark) throws IOException {
+      val output = new PipedOutputStream();
+      input = new PipedInputStream(output, benchmark.partSize);
+      output.write(benchmark.data);
+      output.close();
+    }
+
+  }
+
+  private MappedByteBuffer map(File file, MapMode mode) throws IOException {
+    try (val raf = new RandomAccessFile(file, mode == MapMode.READ_ONLY ? "r" : "rw")) {
+      return raf.getChannel().map(mode, 0, partSize);
+    }
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package co.paralleluniverse.javafs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import org.icgc.dcc.storage.fs.util.PositionalByteChannel;
+
+import co.paralleluniverse.filesystem.FileSystemAdapter;
+import co.paralleluniverse.filesystem.FileSystemProviderAdapter;
+import co.paralleluniverse.fuse.Fuse;
+import co.paralleluniverse.fuse.StructFuseFileInfo;
+import jnr.constants.platform.Errno;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Variant of {@link JavaFS#mount(FileSystem, Path, boolean, boolean, Map)} that opens selected files with FUSE
+ * {@code direct_io}, so that reads of files whose content changes bypass the kernel page cache and cached size.
+ * <p>
+ * Reads of {@link PositionalByteChannel}s are issued at the requested offset rather than by setting the channel's
+ * position first, so that concurrent reads of one open file neither race on nor serialize over the shared position.
+ * <p>
+ * Declared in the {@code javafs} package since {@link FuseFileSystemProvider} is package-private.
+ */
+@Slf4j
+@UtilityClass
+public class DirectIOJavaFS {
+
+  public void mount(@NonNull FileSystem fileSystem, @NonNull Path mountPoint, boolean readOnly, boolean log,
+      Map<String, String> options, @NonNull Predicate<String> directIO) throws IOException {
+    val fs = readOnly ? new ReadOnlyFileSystem(fileSystem) : fileSystem;
+    val provider = new DirectIOFuseFileSystemProvider(new OpenTrackingFileSystemProvider(fs.provider()), fs, log,
+        directIO);
+
+    Fuse.mount(provider.log(log), mountPoint, false, log, options);
+  }
+
+  private static class DirectIOFuseFileSystemProvider extends FuseFileSystemProvider {
+
+    /**
+     * Configuration.
+     */
+    private final Predicate<String> directIO;
+
+    /**
+     * Dependencies.
+     */
+    private final OpenTrackingFileSystemProvider provider;
+
+    /**
+     * State.
+     */
+    private final ConcurrentMap<Long, PositionalByteChannel> channels = new ConcurrentHashMap<>(); // By file handle
+
+    public DirectIOFuseFileSystemProvider(OpenTrackingFileSystemProvider provider, FileSystem fs, boolean debug,
+        Predicate<String> directIO) {
+      super(new FileSystemAdapter(fs, provider) {}, debug);
+      this.provider = provider;
+      this.directIO = directIO;
+    }
+
+    @Override
+    protected int open(String path, StructFuseFileInfo info) {
+      val result = super.open(path, info);
+      val channel = provider.takeOpened();
+      if (result == 0) {
+        if (channel instanceof PositionalByteChannel) {
+          channels.put(info.fh(), (PositionalByteChannel) channel);
+        }
+
+        if (directIO.test(path)) {
+          info.direct_io(true);
+        }
+      }
+
+      return result;
+    }
+
+    @Override
+    public int release(String path, StructFuseFileInfo info) {
+      channels.remove(info.fh());
+
+      return super.release(path, info);
+    }
+
+    @Override
+    protected int read(String path, ByteBuffer buffer, long size, long offset, StructFuseFileInfo info) {
+      val channel = channels.get(info.fh());
+      if (channel == null) {
+        return super.read(path, buffer, size, offset, info);
+      }
+
+      try {
+        // Short reads are only allowed at the end of the file
+        int n = 0;
+        while (n < size) {
+          val count = channel.read(buffer, offset + n);
+          if (count <= 0) {
+            break;
+          }
+
+          n += count;
+        }
+
+        return n;
+      } catch (Exception e) {
+        log.error("Error reading '{}' at offset {}: ", path, offset, e);
+        return -Errno.EIO.intValue();
+      }
+    }
+
+  }
+
+  /**
+   * Hands the channel opened by the calling thread to {@link DirectIOFuseFileSystemProvider#open}, which otherwise only
+   * learns its file handle.
+   */
+  private static class OpenTrackingFileSystemProvider extends FileSystemProviderAdapter {
+
+    private final ThreadLocal<SeekableByteChannel> opened = new ThreadLocal<>();
+
+    public OpenTrackingFileSystemProvider(FileSystemProvider provider) {
+      super(provider);
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs)
+        throws IOException {
+      val channel = super.newByteChannel(path, options, attrs);
+      opened.set(channel);
+
+      return channel;
+    }
+
+    SeekableByteChannel takeOpened() {
+      val channel = opened.get();
+      opened.remove();
+
+      return channel;
+    }
+
+  }
+
+}
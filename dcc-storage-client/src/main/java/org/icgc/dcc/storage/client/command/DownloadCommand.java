@@ -37,6 +37,7 @@ import org.icgc.dcc.storage.client.manifest.ManifestResource;
 import org.icgc.dcc.storage.client.manifest.ManifestService;
 import org.icgc.dcc.storage.client.metadata.Entity;
 import org.icgc.dcc.storage.client.metadata.MetadataService;
+import org.icgc.dcc.storage.client.metric.TransferMetricsReport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -81,6 +82,8 @@ public class DownloadCommand extends RepositoryAccessCommand {
   private boolean validate = true;
   @Parameter(names = "--verify-connection", description = "Verify connection to repository", arity = 1)
   private boolean verifyConnection = true;
+  @Parameter(names = "--metrics-file", description = "Path to write transfer metrics to (.json or .csv)")
+  private File metricsFile;
 
   /**
    * Dependencies
@@ -91,6 +94,8 @@ public class DownloadCommand extends RepositoryAccessCommand {
   private MetadataService metadataService;
   @Autowired
   private DownloadService downloadService;
+  @Autowired
+  private TransferMetricsReport metricsReport;
 
   @Override
   public int execute() throws Exception {
@@ -100,6 +105,7 @@ public class DownloadCommand extends RepositoryAccessCommand {
     }
 
     terminal.printStatus("Downloading...");
+    metricsReport.setFile(metricsFile);
 
     val listed = objectId.size() > 0;
     if (listed) {
@@ -152,7 +158,11 @@ public class DownloadCommand extends RepositoryAccessCommand {
           builder.outputDir(outputDir).entity(entity).objectId(entity.getId()).offset(offset).length(length)
               .validate(validate).build();
 
-      downloadService.download(request, force);
+      try {
+        downloadService.download(request, force);
+      } finally {
+        metricsReport.write();
+      }
       layoutFile(entity);
       terminal.println("Done.");
     }
@@ -236,8 +246,7 @@ public class DownloadCommand extends RepositoryAccessCommand {
   private Set<Entity> resolveEntities(List<String> objectIds) {
     // Set to remove duplicates
     val entities = ImmutableSet.<Entity> builder();
-    for (val objectId : objectIds) {
-      val entity = metadataService.getEntity(objectId);
+    for (val entity : metadataService.getEntities(objectIds)) {
       entities.add(entity);
 
       if (index) {
@@ -17,8 +17,9 @@
  */
 package org.icgc.dcc.storage.client.command;
 
-import static com.google.common.base.Objects.firstNonNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.icgc.dcc.storage.client.cli.Parameters.checkParameter;
@@ -31,6 +32,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 import org.icgc.dcc.storage.client.cli.ConverterFactory.MountOptionsConverter;
@@ -41,12 +44,18 @@ import org.icgc.dcc.storage.client.manifest.ManifestResource;
 import org.icgc.dcc.storage.client.manifest.ManifestService;
 import org.icgc.dcc.storage.client.metadata.Entity;
 import org.icgc.dcc.storage.client.metadata.MetadataService;
+import org.icgc.dcc.storage.client.mount.LazyMountStorageContext;
 import org.icgc.dcc.storage.client.mount.MountService;
 import org.icgc.dcc.storage.client.mount.MountStorageContext;
 import org.icgc.dcc.storage.client.transport.StorageService;
 import org.icgc.dcc.storage.core.model.ObjectInfo;
 import org.icgc.dcc.storage.fs.StorageFileLayout;
 import org.icgc.dcc.storage.fs.StorageFileSystems;
+import org.icgc.dcc.storage.fs.StoragePath;
+import org.icgc.dcc.storage.fs.cache.BlockCache;
+import org.icgc.dcc.storage.fs.cache.DiskBlockCache;
+import org.icgc.dcc.storage.fs.cache.ReadAhead;
+import org.icgc.dcc.storage.fs.util.HttpConnectionPool;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -56,6 +65,8 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sun.akuma.Daemon;
 import com.sun.akuma.JavaVMArguments;
 
@@ -82,8 +93,22 @@ public class MountCommand extends RepositoryAccessCommand {
   private ManifestResource manifestResource;
   @Parameter(names = "--layout", description = "Layout of the mount point. One of 'bundle' (nest files in bundle directory) or 'object-id' (flat list of files named by their associated object id)", converter = StorageFileLayoutConverter.class)
   private StorageFileLayout layout = StorageFileLayout.BUNDLE;
-  @Parameter(names = "--cache-metadata", description = "To speedup load times, cache metadata on disk locally and use if available")
+  @Parameter(names = "--cache-metadata", description = "To speedup load times, use the local metadata catalog as is if available instead of synchronizing it with the metadata server, so entities registered since the last sync are not shown. The catalog is kept on disk either way")
   private boolean cacheMetadata;
+  @Parameter(names = "--cache-size", description = "Size in MB of the in-memory cache of recently read file blocks shared by all open files (0 to disable)")
+  private long cacheSize = 512;
+  @Parameter(names = "--read-ahead", description = "Number of blocks to fetch in parallel ahead of sequential reads, at most half of --cache-size (0 to disable)")
+  private int readAhead = 16;
+  @Parameter(names = "--cache-dir", description = "Directory of a persistent cache of file blocks that is reused across mounts (requires --cache-size)")
+  private File cacheDir;
+  @Parameter(names = "--cache-dir-size", description = "Maximum size in MB of --cache-dir")
+  private long cacheDirSize = 10240;
+  @Parameter(names = "--max-connections", description = "Maximum number of pooled keep-alive connections to the repository shared by all open files")
+  private int maxConnections = HttpConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+  @Parameter(names = "--stats-interval", description = "Interval in seconds at which to log live statistics as JSON (0 to disable). They can also be read from the '" + StoragePath.STATS_FILE_NAME + "' file at the mount point")
+  private int statsInterval = 0;
+  @Parameter(names = "--lazy", description = "Mount before indexing metadata, which then happens in the background. Until it completes, each bundle is loaded on first access and listing the mount point waits. With --manifest, only its bundles are indexed")
+  private boolean lazy;
   @Parameter(names = "--daemonize", description = "Detach and run in background")
   private boolean daemonize;
   @Parameter(names = "--verify-connection", description = "Verify connection to repository", arity = 1)
@@ -115,6 +140,11 @@ public class MountCommand extends RepositoryAccessCommand {
         "Cannot mount to '%s'. Please check directory permissions and try again", mountPoint);
     checkParameter(mountPoint.list() != null && mountPoint.list().length == 0,
         "Cannot mount to '%s'. Please ensure the directory is empty and is not already mounted", mountPoint);
+    checkParameter(readAhead == 0 || (cacheSize > 0 && readAhead <= cacheSize / 2),
+        "Read-ahead of %s blocks requires a --cache-size of at least %s MB", readAhead, readAhead * 2);
+    checkParameter(cacheDir == null || (cacheSize > 0 && cacheDirSize > 0),
+        "A --cache-dir requires positive --cache-size and --cache-dir-size values");
+    checkParameter(maxConnections > 0, "The --max-connections value must be positive");
 
     // If requested, put into the background
     if (daemonize()) {
@@ -130,58 +160,21 @@ public class MountCommand extends RepositoryAccessCommand {
     }
 
     try {
-      int i = 1;
-
-      //
-      // Collect and index metadata
-      //
-
-      val tip =
-          cacheMetadata ? "" : " (Tip: use " + terminal.option("--cache-metadata") + " to skip this step next time)";
-
-      log.info("Indexing remote entities...");
-      terminal.printStatus(i++, "Indexing remote entities" + tip + ". Please wait");
-      val entities = terminal.printWaiting(this::resolveEntities);
-
-      log.info("Indexing remove objects...");
-      terminal.printStatus(i++, "Indexing remote objects" + tip + ". Please wait");
-      List<ObjectInfo> objects = terminal.printWaiting(this::resolveObjects);
-      if (hasManifest()) {
-        // Manifest is a filtered view y'all!
-        objects = filterManifestObjects(objects);
-      }
-
-      //
-      // Check access
-      //
-
-      log.info("Checking access...");
-      terminal.printStatus(i++, "Checking access. Please wait");
-      val context =
-          new MountStorageContext(layout, downloadService, entities, objects);
-      if (!terminal.printWaiting(context::isAuthorized)) {
-        terminal.printError("Access denied");
+      val connectionPool = new HttpConnectionPool(maxConnections);
+      val blockCache = cacheSize > 0 ? new BlockCache(cacheSize * 1024 * 1024) : null;
+      val blockReadAhead = readAhead > 0 ? new ReadAhead(blockCache, readAhead) : null;
+      val diskBlockCache = cacheDir != null ? new DiskBlockCache(cacheDir.toPath(), cacheDirSize * 1024 * 1024,
+          blockCache.getBlockSize()) : null;
+
+      val context = lazy ?
+          mountLazy(connectionPool, blockCache, blockReadAhead, diskBlockCache) :
+          mountEager(connectionPool, blockCache, blockReadAhead, diskBlockCache);
+      if (context == null) {
+        // Unmounted
+        release(connectionPool, blockReadAhead, diskBlockCache);
         return FAILURE_STATUS;
       }
 
-      //
-      // Report manifest
-      //
-
-      if (hasManifest()) {
-        log.info("Applying manifest view...");
-        terminal.printStatus(i++, "Applying manifest view:\n");
-        reportManifest(context);
-      }
-
-      //
-      // Mount
-      //
-
-      terminal.printStatus(i++, "Mounting file system to '" + mountPoint.getAbsolutePath() + "'");
-      terminal.printWaiting(() -> mount(context));
-      reportMount();
-
       //
       // Wait
       //
@@ -190,6 +183,7 @@ public class MountCommand extends RepositoryAccessCommand {
       val watch = Stopwatch.createStarted();
       Runtime.getRuntime().addShutdownHook(new Thread(() -> {
         reportSummary(context, watch);
+        release(connectionPool, blockReadAhead, diskBlockCache);
       }));
 
       // Wait for interrupt
@@ -204,6 +198,145 @@ public class MountCommand extends RepositoryAccessCommand {
     return SUCCESS_STATUS;
   }
 
+  /**
+   * Stops the background work and closes the pooled connections of a file system that is no longer mounted.
+   */
+  private static void release(HttpConnectionPool connectionPool, ReadAhead blockReadAhead,
+      DiskBlockCache diskBlockCache) {
+    if (blockReadAhead != null) {
+      blockReadAhead.shutdown();
+    }
+
+    if (diskBlockCache != null) {
+      diskBlockCache.shutdown();
+    }
+
+    try {
+      connectionPool.close();
+    } catch (IOException e) {
+      log.warn("Failed to close connection pool: {}", e.getMessage());
+    }
+  }
+
+  private MountStorageContext mountEager(HttpConnectionPool connectionPool, BlockCache blockCache,
+      ReadAhead blockReadAhead, DiskBlockCache diskBlockCache) throws Exception {
+    int i = 1;
+
+    //
+    // Collect and index metadata
+    //
+
+    val tip =
+        cacheMetadata ? "" : " (Tip: use " + terminal.option("--cache-metadata") + " to skip this step next time)";
+
+    log.info("Indexing remote entities...");
+    terminal.printStatus(i++, "Indexing remote entities" + tip + ". Please wait");
+    val entities = terminal.printWaiting(this::resolveEntities);
+
+    log.info("Indexing remove objects...");
+    terminal.printStatus(i++, "Indexing remote objects" + tip + ". Please wait");
+    List<ObjectInfo> objects = terminal.printWaiting(this::resolveObjects);
+    if (hasManifest()) {
+      // Manifest is a filtered view y'all!
+      objects = filterManifestObjects(objects, getManifestObjectIds());
+    }
+
+    //
+    // Check access
+    //
+
+    log.info("Checking access...");
+    terminal.printStatus(i++, "Checking access. Please wait");
+    val context = new MountStorageContext(layout, downloadService, connectionPool, entities, objects,
+        blockCache, blockReadAhead, diskBlockCache);
+    registerGauges(context);
+    if (!terminal.printWaiting(context::isAuthorized)) {
+      terminal.printError("Access denied");
+      return null;
+    }
+
+    //
+    // Report manifest
+    //
+
+    if (hasManifest()) {
+      log.info("Applying manifest view...");
+      terminal.printStatus(i++, "Applying manifest view:\n");
+      reportManifest(context);
+    }
+
+    //
+    // Mount
+    //
+
+    terminal.printStatus(i++, "Mounting file system to '" + mountPoint.getAbsolutePath() + "'");
+    terminal.printWaiting(() -> mount(context));
+    reportMount();
+    logStats(context);
+
+    return context;
+  }
+
+  private MountStorageContext mountLazy(HttpConnectionPool connectionPool, BlockCache blockCache,
+      ReadAhead blockReadAhead, DiskBlockCache diskBlockCache) throws Exception {
+    int i = 1;
+
+    //
+    // Mount
+    //
+
+    // Lookups resolve their own bundle until the index is complete
+    val objectIds = hasManifest() ? getManifestObjectIds() : null;
+    val context = new LazyMountStorageContext(layout, downloadService, connectionPool, blockCache,
+        blockReadAhead, diskBlockCache, metadataServices, storageService, objectIds);
+    registerGauges(context);
+
+    terminal.printStatus(i++, "Mounting file system to '" + mountPoint.getAbsolutePath() + "'");
+    terminal.printWaiting(() -> mount(context));
+    reportMount();
+    logStats(context);
+    terminal.println("\n");
+
+    //
+    // Collect and index metadata
+    //
+
+    if (hasManifest()) {
+      // Only the manifest's bundles are visible so nothing else needs indexing
+      log.info("Indexing manifest bundles...");
+      terminal.printStatus(i++, "Indexing manifest bundles while mounted. Please wait");
+      terminal.printWaiting(() -> context.indexBundles(resolveGnosIds(objectIds)));
+    } else {
+      log.info("Indexing remote entities and objects...");
+      terminal.printStatus(i++, "Indexing remote entities and objects while mounted. Please wait");
+      val entities = terminal.printWaiting(this::resolveEntities);
+      val objects = terminal.printWaiting(this::resolveObjects);
+      context.index(entities, objects);
+    }
+
+    //
+    // Check access
+    //
+
+    log.info("Checking access...");
+    terminal.printStatus(i++, "Checking access. Please wait");
+    if (!terminal.printWaiting(context::isAuthorized)) {
+      terminal.printError("Access denied");
+      mountService.unmount(mountPoint.toPath());
+      return null;
+    }
+
+    if (hasManifest()) {
+      log.info("Applying manifest view...");
+      terminal.printStatus(i++, "Applied manifest view:\n");
+      reportManifest(context);
+    }
+
+    terminal.printStatus(terminal.label("Indexing complete. All paths are now resolved locally.\n"));
+
+    return context;
+  }
+
   private boolean daemonize() throws Exception, IOException {
     val daemon = new Daemon();
     if (daemon.isDaemonized()) {
@@ -234,6 +367,45 @@ public class MountCommand extends RepositoryAccessCommand {
     mountService.mount(fileSystem, mountPoint.toPath(), options);
   }
 
+  //
+  // Statistics
+  //
+
+  private void registerGauges(MountStorageContext context) {
+    val metrics = context.getMetrics();
+
+    val pool = context.getConnectionPool();
+    metrics.registerGauge("connectionPool", () -> ImmutableMap.of(
+        "connections", pool.getConnectCount(),
+        "requests", pool.getRequestCount(),
+        "leased", pool.getStats().getLeased(),
+        "available", pool.getStats().getAvailable()));
+
+    context.getBlockCache().ifPresent(cache -> metrics.registerGauge("blockCache", () -> ImmutableMap.of(
+        "hits", cache.getStats().hitCount(),
+        "misses", cache.getStats().missCount(),
+        "evictions", cache.getStats().evictionCount(),
+        "size", cache.getSize())));
+
+    context.getDiskBlockCache().ifPresent(cache -> metrics.registerGauge("diskCache", () -> ImmutableMap.of(
+        "hits", cache.getHitCount(),
+        "misses", cache.getMissCount(),
+        "evictions", cache.getEvictionCount(),
+        "droppedWrites", cache.getDroppedWriteCount(),
+        "size", cache.getSize())));
+  }
+
+  private void logStats(MountStorageContext context) {
+    if (statsInterval <= 0) {
+      return;
+    }
+
+    val executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("stats-%s").setDaemon(true).build());
+    executor.scheduleAtFixedRate(() -> log.info("Mount statistics: {}", context.getMetrics().toJson(false)),
+        statsInterval, statsInterval, SECONDS);
+  }
+
   //
   // Reporting
   //
@@ -274,8 +446,8 @@ public class MountCommand extends RepositoryAccessCommand {
   }
 
   private void reportSummary(MountStorageContext context, Stopwatch watch) {
-    val c = firstNonNull(context.getMetrics().get("connectCount"), 0L);
-    val n = firstNonNull(context.getMetrics().get("byteCount"), 0L);
+    val c = context.getMetrics().getCount("connectCount");
+    val n = context.getMetrics().getCount("byteCount");
 
     val time = terminal.value(watch.toString());
     val connects = terminal.value(c + " connects");
@@ -283,6 +455,35 @@ public class MountCommand extends RepositoryAccessCommand {
     val status = "Shut down mount after " + time + " with a total of " + connects + " and " + bytes + " bytes read.\n";
 
     terminal.printStatus(terminal.label(status));
+
+    val pool = context.getConnectionPool();
+    val opened = terminal.value(formatCount(pool.getConnectCount()) + " connections");
+    val requests = terminal.value(formatCount(pool.getRequestCount()) + " requests");
+    val connections = "Connection pool opened " + opened + " for " + requests + ".\n";
+
+    terminal.printStatus(terminal.label(connections));
+
+    val blockCache = context.getBlockCache();
+    if (blockCache.isPresent()) {
+      val stats = blockCache.get().getStats();
+      val hits = terminal.value(formatCount(stats.hitCount()) + " hits");
+      val misses = terminal.value(formatCount(stats.missCount()) + " misses");
+      val evictions = terminal.value(formatCount(stats.evictionCount()) + " evictions");
+      val cache = "Block cache served " + hits + " and " + misses + " with " + evictions + ".\n";
+
+      terminal.printStatus(terminal.label(cache));
+    }
+
+    val diskBlockCache = context.getDiskBlockCache();
+    if (diskBlockCache.isPresent()) {
+      val disk = diskBlockCache.get();
+      val hits = terminal.value(formatCount(disk.getHitCount()) + " hits");
+      val misses = terminal.value(formatCount(disk.getMissCount()) + " misses");
+      val evictions = terminal.value(formatCount(disk.getEvictionCount()) + " evictions");
+      val cache = "Disk cache served " + hits + " and " + misses + " with " + evictions + ".\n";
+
+      terminal.printStatus(terminal.label(cache));
+    }
   }
 
   //
@@ -294,8 +495,8 @@ public class MountCommand extends RepositoryAccessCommand {
   }
 
   private List<Entity> resolveEntities() throws IOException {
-    return resolveList("entities", () -> metadataServices.getEntities("id", "fileName", "gnosId"),
-        new TypeReference<List<Entity>>() {});
+    // Kept in the local metadata catalog, which is only synchronized when metadata is not cached
+    return metadataServices.getCatalogEntities(!cacheMetadata);
   }
 
   @SneakyThrows
@@ -321,18 +522,27 @@ public class MountCommand extends RepositoryAccessCommand {
     return manifestResource != null;
   }
 
-  private List<ObjectInfo> filterManifestObjects(List<ObjectInfo> objects) {
+  private Set<String> getManifestObjectIds() {
     val manifest = manifestService.getDownloadManifest(manifestResource);
 
     validateManifest(manifest);
 
-    val objectIds = manifest.getEntries().stream()
+    return manifest.getEntries().stream()
         .flatMap(entry -> Stream.of(entry.getFileUuid(), entry.getIndexFileUuid()))
+        .filter(objectId -> !isNullOrEmpty(objectId))
         .collect(toSet());
+  }
 
+  private List<ObjectInfo> filterManifestObjects(List<ObjectInfo> objects, Set<String> objectIds) {
     return objects.stream()
         .filter(object -> objectIds.contains(object.getId()))
         .collect(toList());
   }
 
+  private Set<String> resolveGnosIds(Set<String> objectIds) {
+    return metadataServices.getEntities(objectIds).stream()
+        .map(Entity::getGnosId)
+        .collect(toSet());
+  }
+
 }
@@ -31,6 +31,7 @@ import org.icgc.dcc.storage.client.cli.ObjectIdValidator;
 import org.icgc.dcc.storage.client.manifest.ManifestResource;
 import org.icgc.dcc.storage.client.manifest.ManifestService;
 import org.icgc.dcc.storage.client.manifest.UploadManifest;
+import org.icgc.dcc.storage.client.metric.TransferMetricsReport;
 import org.icgc.dcc.storage.client.upload.UploadService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -58,6 +59,8 @@ public class UploadCommand extends RepositoryAccessCommand {
   private String md5;
   @Parameter(names = "--verify-connection", description = "Verify connection to repository", arity = 1)
   private boolean verifyConnection = true;
+  @Parameter(names = "--metrics-file", description = "Path to write transfer metrics to (.json or .csv)")
+  private File metricsFile;
 
   /**
    * Dependencies.
@@ -66,6 +69,8 @@ public class UploadCommand extends RepositoryAccessCommand {
   private ManifestService manifestService;
   @Autowired
   private UploadService uploader;
+  @Autowired
+  private TransferMetricsReport metricsReport;
 
   @Override
   public int execute() throws Exception {
@@ -80,6 +85,7 @@ public class UploadCommand extends RepositoryAccessCommand {
     }
 
     terminal.print("\r");
+    metricsReport.setFile(metricsFile);
     if (manifestResource != null) {
       val manifest = readManifest();
       for (val entry : manifest.getEntries()) {
@@ -113,7 +119,11 @@ public class UploadCommand extends RepositoryAccessCommand {
     }
 
     terminal.printf("Uploading object: '%s' using the object id %s%n", file, objectId);
-    uploader.upload(file, objectId, md5, isForce);
+    try {
+      uploader.upload(file, objectId, md5, isForce);
+    } finally {
+      metricsReport.write();
+    }
     terminal.println("Upload completed");
   }
 
@@ -17,14 +17,22 @@
  */
 package org.icgc.dcc.storage.client.command;
 
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static java.util.stream.Collectors.toList;
 import static org.icgc.dcc.storage.client.cli.Parameters.checkParameter;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import org.icgc.dcc.common.core.util.VersionUtils;
 import org.icgc.dcc.storage.client.cli.ConverterFactory.OutputFormatConverter;
@@ -39,7 +47,10 @@ import org.icgc.dcc.storage.client.manifest.ManifestService;
 import org.icgc.dcc.storage.client.metadata.Entity;
 import org.icgc.dcc.storage.client.metadata.MetadataService;
 import org.icgc.dcc.storage.client.slicing.SamFileBuilder;
+import org.icgc.dcc.storage.client.slicing.SamInput;
+import org.icgc.dcc.storage.client.slicing.SamResourceCache;
 import org.icgc.dcc.storage.client.transport.NullSourceSeekableHTTPStream;
+import org.icgc.dcc.storage.client.transport.RangeCoalescingSeekableStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,8 +61,12 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.seekablestream.ByteArraySeekableStream;
+import htsjdk.samtools.seekablestream.SeekableFileStream;
 import htsjdk.tribble.AbstractFeatureReader;
 import htsjdk.tribble.Feature;
 import htsjdk.tribble.bed.BEDCodec;
@@ -80,6 +95,9 @@ public class ViewCommand extends RepositoryAccessCommand {
   public final static String ICGC_STORAGE_CLIENT = "ICGC Storage Client";
   public final static String ICGC = "ICGC";
 
+  // concurrent range requests prefetching alignments for all readers
+  private final static int PREFETCH_THREADS = 8;
+
   /**
    * Options.
    */
@@ -116,6 +134,12 @@ public class ViewCommand extends RepositoryAccessCommand {
   private boolean outputIndex = false;
   @Parameter(names = "--stdout", description = "Switch to send output to stdout. Only used with --object-id. Output will be forced to SAM format.")
   private boolean stdout = false;
+  @Parameter(names = "--query-threads", description = "Number of readers querying the regions of --query or --bed-query concurrently")
+  private int queryThreads = 4;
+  @Parameter(names = "--parallel-objects", description = "Number of objects of --manifest to slice concurrently")
+  private int parallelObjects = 4;
+  @Parameter(names = "--continue-on-error", description = "Continue slicing the remaining objects of --manifest when one fails")
+  private boolean continueOnError = false;
   @Parameter(names = "--verify-connection", description = "Verify connection to repository", arity = 1)
   private boolean verifyConnection = true;
 
@@ -129,6 +153,8 @@ public class ViewCommand extends RepositoryAccessCommand {
   @Autowired
   private DownloadService downloadService;
   @Autowired
+  private SamResourceCache samResourceCache;
+  @Autowired
   private ApplicationArguments applicationArguments;
 
   /**
@@ -136,6 +162,11 @@ public class ViewCommand extends RepositoryAccessCommand {
    */
   private Logger session = LoggerFactory.getLogger("session");
 
+  /**
+   * State.
+   */
+  private ExecutorService prefetchExecutor;
+
   @Override
   public int execute() throws Exception {
     terminal.println("Viewing...");
@@ -160,7 +191,9 @@ public class ViewCommand extends RepositoryAccessCommand {
       if (manifestResource != null) {
         terminal.println("Ignoring --manifest argument; --object-id supercedes");
       }
-      process(ImmutableList.of(objectId));
+      if (process(ImmutableList.of(objectId)) != SUCCESS_STATUS) {
+        return FAILURE_STATUS;
+      }
     } else if (manifestResource != null) {
       // Manifest based
       val manifest = manifestService.getDownloadManifest(manifestResource);
@@ -173,7 +206,9 @@ public class ViewCommand extends RepositoryAccessCommand {
       }
 
       val entries = filterManifest(allEntries);
-      process(entries.stream().map(entry -> entry.getFileUuid()).collect(toList()));
+      if (process(entries.stream().map(entry -> entry.getFileUuid()).collect(toList())) != SUCCESS_STATUS) {
+        return FAILURE_STATUS;
+      }
     }
     session.info("Done");
     if (!stdout) {
@@ -214,6 +249,9 @@ public class ViewCommand extends RepositoryAccessCommand {
     checkParameter(objectId != null || bamFile != null || manifestResource != null,
         "One of --object-id, --input-file or --manifest must be specified");
 
+    checkParameter(queryThreads > 0, "--query-threads must be positive");
+    checkParameter(parallelObjects > 0, "--parallel-objects must be positive");
+
     if (objectId == null && bamFile == null) {
       checkParameter(manifestResource != null && outputDir != null,
           "--output-dir must be specified when using --manifest");
@@ -226,39 +264,167 @@ public class ViewCommand extends RepositoryAccessCommand {
 
   @SneakyThrows
   int process(List<String> objectIds) {
+    if (objectIds.isEmpty()) {
+      return SUCCESS_STATUS;
+    }
+
+    // Large manifests are served by the local metadata catalog
+    metadataService.prepareLookups(objectIds.size());
+
+    val executor = Executors.newFixedThreadPool(Math.min(parallelObjects, objectIds.size()),
+        new ThreadFactoryBuilder().setNameFormat("view-%s").setDaemon(true).build());
+    prefetchExecutor = Executors.newFixedThreadPool(PREFETCH_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("prefetch-%s").setDaemon(true).build());
+    try {
+      if (outputType == OutputType.MERGED && !headerOnly) {
+        return processMerged(objectIds, executor);
+      }
+
+      return processEach(objectIds, executor);
+    } finally {
+      executor.shutdownNow();
+      prefetchExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Slices up to {@link #parallelObjects} objects at a time, reporting the status of each as it completes. An object
+   * fails on its own when its entity cannot be resolved. Unless {@link #continueOnError} is set, the first failure
+   * cancels the objects that remain.
+   */
+  private int processEach(List<String> objectIds, ExecutorService executor) throws InterruptedException {
+    val completion = new ExecutorCompletionService<Entity>(executor);
+    val pending = Maps.<Future<Entity>, String> newHashMap();
     for (val objectId : objectIds) {
-      if (process(objectId) != SUCCESS_STATUS) {
-        log.error("Failed to process {}", objectId);
+      pending.put(completion.submit(() -> {
+        val entity = metadataService.getEntity(objectId);
+        if (process(entity) != SUCCESS_STATUS) {
+          throw new IllegalStateException("No output was built");
+        }
+
+        return entity;
+      }), objectId);
+    }
+
+    int failures = 0;
+    for (int i = 1; i <= objectIds.size(); i++) {
+      val future = completion.take();
+      val objectId = pending.remove(future);
+      if (reportStatus(i, objectIds.size(), objectId, future)) {
+        continue;
+      }
+
+      failures++;
+      if (!continueOnError) {
         return FAILURE_STATUS;
       }
     }
+
+    if (failures > 0) {
+      reportFailures(failures, objectIds.size());
+      return FAILURE_STATUS;
+    }
+
     return SUCCESS_STATUS;
   }
 
+  /**
+   * Slices all objects into a single coordinate sorted output. Inputs are resolved up to {@link #parallelObjects} at a
+   * time and then merged while streaming, one open query per object. Unless {@link #continueOnError} is set, an object
+   * that cannot be resolved fails the merge; otherwise it is left out.
+   */
+  private int processMerged(List<String> objectIds, ExecutorService executor) throws InterruptedException {
+    val futures = Lists.<Future<SamInput>> newArrayList();
+    for (val objectId : objectIds) {
+      futures.add(executor.submit(() -> createInputFactory(Optional.of(metadataService.getEntity(objectId))).get()));
+    }
+
+    val inputs = Lists.<SamInput> newArrayList();
+    int failures = 0;
+    for (int i = 0; i < objectIds.size(); i++) {
+      val objectId = objectIds.get(i);
+      try {
+        inputs.add(futures.get(i).get());
+      } catch (ExecutionException e) {
+        val cause = e.getCause();
+        log.error("Failed to resolve {}: ", objectId, cause);
+        session.info("Failed {}: {}", objectId, cause.getMessage());
+        terminal.printError("Failed to resolve object: %s: %s", objectId, cause.getMessage());
+
+        failures++;
+        if (!continueOnError) {
+          return FAILURE_STATUS;
+        }
+      }
+    }
+
+    if (inputs.isEmpty()) {
+      reportFailures(failures, objectIds.size());
+      return FAILURE_STATUS;
+    }
+
+    val bob = newSamFileBuilder();
+    log.info("Constructed SamFileBuilder: " + bob.toString());
+    bob.buildMerged(inputs);
+
+    session.info("Merged {} of {} objects", inputs.size(), objectIds.size());
+    if (!stdout) {
+      terminal.printf("Merged %s of %s objects%n", inputs.size(), objectIds.size());
+    }
+
+    if (failures > 0) {
+      reportFailures(failures, objectIds.size());
+      return FAILURE_STATUS;
+    }
+
+    return SUCCESS_STATUS;
+  }
+
+  /**
+   * @return whether the object was sliced successfully
+   */
+  private boolean reportStatus(int count, int total, String objectId, Future<Entity> future)
+      throws InterruptedException {
+    try {
+      val entity = future.get();
+      session.info("[{}/{}] Sliced {} ({})", count, total, entity.getId(), entity.getFileName());
+      if (!stdout) {
+        terminal.printf("[%s/%s] Sliced object: %s (%s)%n", count, total, terminal.value(entity.getId()),
+            entity.getFileName());
+      }
+
+      return true;
+    } catch (ExecutionException e) {
+      val cause = e.getCause();
+      log.error("Failed to process {}: ", objectId, cause);
+      session.info("[{}/{}] Failed {}: {}", count, total, objectId, cause.getMessage());
+      terminal.printError("[%s/%s] Failed to slice object: %s: %s", count, total, objectId, cause.getMessage());
+
+      return false;
+    }
+  }
+
+  private void reportFailures(int failures, int total) {
+    val msg = String.format("Failed to slice %s of %s objects", failures, total);
+    session.info(msg);
+    terminal.printError(msg);
+  }
+
   /**
    * Main sequence of steps to construct a SAM/BAM file via htsjdk.
-   * @param oid Object id of sample to query against
+   * @param metadata Entity of the sample to query against
    * @return Status flag indicating whether output SAM/BAM has been written
    */
   @SneakyThrows
-  int process(String oid) {
-
-    val entity = getEntity(oid);
-    if (!entity.isPresent()) {
-      val msg = String.format("Metadata not found for object id %s", oid);
-      log.error(msg);
-      session.info(msg);
-      throw new RuntimeException(msg);
-    }
+  int process(Entity metadata) {
+    val entity = Optional.of(metadata);
 
     // Line up bam and index file (encapsulated in a SamInputResource)
-    val resource = createInputResource(entity);
+    val factory = createInputFactory(entity);
 
-    val bob = new SamFileBuilder().programName(ICGC_STORAGE_CLIENT)
-        .version(VersionUtils.getScmInfo().get("git.commit.id.describe")).programId(ICGC).commandLine(getCommandLine())
-        .containedOnly(containedOnly).useOriginalHeader(useOriginalHeader).outputFormat(outputFormat).queries(query)
-        .outputDir(outputDir).bedFile(bedFile).outputIndex(outputIndex).entity(entity.get()).stdout(stdout)
-        .samInput(resource);
+    // The one input backs whichever output is built
+    val input = factory.get();
+    val bob = newSamFileBuilder().entity(entity.get()).samInput(input).samInputFactory(factory);
 
     log.info("Constructed SamFileBuilder: " + bob.toString());
 
@@ -270,27 +436,31 @@ public class ViewCommand extends RepositoryAccessCommand {
         bob.buildTrimmed();
         break;
       case MERGED:
-        // bob.buildMerged();
-        terminal.printError("Output type '%s' not implemented", outputType.toString());
+        // Objects of a manifest are merged together by processMerged
+        bob.buildMerged(ImmutableList.of(input));
         break;
       case CROSS:
         terminal.printError("Output type '%s' not implemented", outputType.toString());
-        break;
+        return FAILURE_STATUS;
       }
     }
 
     return SUCCESS_STATUS;
   }
 
-  private Optional<Entity> getEntity(String oid) {
-    // if objectId is present, get gnos id associated with it
-    return Optional
-        .ofNullable(oid != null && !oid.trim().isEmpty() ? metadataService.getEntity(oid) : null);
+  /**
+   * @return builder configured with the options common to all objects
+   */
+  private SamFileBuilder newSamFileBuilder() {
+    return new SamFileBuilder().programName(ICGC_STORAGE_CLIENT)
+        .version(VersionUtils.getScmInfo().get("git.commit.id.describe")).programId(ICGC).commandLine(getCommandLine())
+        .containedOnly(containedOnly).useOriginalHeader(useOriginalHeader).outputFormat(outputFormat).queries(query)
+        .outputDir(outputDir).bedFile(bedFile).outputIndex(outputIndex).stdout(stdout).threads(queryThreads);
   }
 
-  private SamInputResource createInputResource(Optional<Entity> entity) {
+  private Supplier<SamInput> createInputFactory(Optional<Entity> entity) {
     if (entity.isPresent()) {
-      return getRemoteResource(entity.get());
+      return getRemoteResourceFactory(entity.get());
     } else {
       if (baiFile == null) {
         // Use samtools convention
@@ -298,29 +468,42 @@ public class ViewCommand extends RepositoryAccessCommand {
         checkParameter(baiFile.exists(), "The implied BAI file '%s' does not exist", baiFile.getAbsolutePath());
         checkParameter(baiFile.canRead(), "The implied BAI file '%s' is not readable", baiFile.getAbsolutePath());
       }
-      return getFileResource(bamFile, baiFile);
+      return () -> getFileInput(bamFile, baiFile);
     }
   }
 
-  private SamInputResource getFileResource(File bamFile, File baiFile) {
+  @SneakyThrows
+  private SamInput getFileInput(File bamFile, File baiFile) {
     if (outputFormat == OutputFormat.BAM) {
-      return SamInputResource.of(bamFile).index(baiFile);
+      // Opened as a stream so that compressed blocks can be copied from it
+      val stream = new SeekableFileStream(bamFile);
+      return new SamInput(SamInputResource.of(stream).index(baiFile), stream);
     } else {
-      return SamInputResource.of(bamFile);
+      return SamInput.of(SamInputResource.of(bamFile));
     }
   }
 
-  private SamInputResource getRemoteResource(Entity entity) {
+  /**
+   * Signs the URL once for every reader of the entity. Its index and header are read once, from the local cache if
+   * present. Alignments are read through a stream that prefetches the ranges of each query.
+   */
+  @SneakyThrows
+  private Supplier<SamInput> getRemoteResourceFactory(Entity entity) {
     val indexEntity = metadataService.getIndexEntity(entity);
     checkParameter(indexEntity.isPresent(), "No index file associated with BAM file with object id '%s'",
         entity.getId());
 
-    val bamFileUrl = downloadService.getUrl(entity.getId());
-    val bamFileHttpStream = new NullSourceSeekableHTTPStream(bamFileUrl);
-    val indexFileUrl = downloadService.getUrl(indexEntity.get().getId());
-    val indexFileHttpStream = new NullSourceSeekableHTTPStream(indexFileUrl);
-
-    return SamInputResource.of(bamFileHttpStream).index(indexFileHttpStream);
+    val bamFileSpec = downloadService.getSpecification(entity.getId());
+    val bamFileUrl = new URL(getOnlyElement(bamFileSpec.getParts()).getUrl());
+    val header = samResourceCache.getHeader(entity.getId(), bamFileSpec);
+    val index = samResourceCache.getIndex(indexEntity.get().getId(),
+        downloadService.getSpecification(indexEntity.get().getId()));
+
+    return () -> {
+      val stream = new RangeCoalescingSeekableStream(bamFileUrl, header, new NullSourceSeekableHTTPStream(bamFileUrl),
+          prefetchExecutor);
+      return new SamInput(SamInputResource.of(stream).index(new ByteArraySeekableStream(index)), stream);
+    };
   }
 
   @SneakyThrows
@@ -30,5 +30,14 @@ public class TransportProperties {
   String fileFrom;
   long memory;
   int parallel;
+  long partSize;
+
+  /**
+   * @return the download part size set by the user (in MB) in bytes, or {@code 0} to use the server's part size, which
+   * keeps the stored part MD5s
+   */
+  public long getPreferredPartSize() {
+    return partSize > 0 ? partSize * 1024 * 1024 : 0L;
+  }
 
 }
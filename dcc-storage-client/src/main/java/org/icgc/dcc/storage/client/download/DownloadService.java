@@ -44,6 +44,7 @@ import org.icgc.dcc.storage.client.exception.NotResumableException;
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
 import org.icgc.dcc.storage.client.exception.RetryableException;
 import org.icgc.dcc.storage.client.metadata.Entity;
+import org.icgc.dcc.storage.client.metric.TransferMetricsReport;
 import org.icgc.dcc.storage.client.progress.Progress;
 import org.icgc.dcc.storage.client.transport.StorageService;
 import org.icgc.dcc.storage.client.transport.Transport;
@@ -79,6 +80,8 @@ public class DownloadService {
   private Transport.Builder transportBuilder;
   @Autowired
   private Terminal terminal;
+  @Autowired
+  private TransferMetricsReport metricsReport;
 
   @PostConstruct
   public void setup() {
@@ -95,6 +98,15 @@ public class DownloadService {
     return getUrlAsString(objectId, 0, -1);
   }
 
+  /**
+   * Returns the specification for downloading the whole object, which describes its size and MD5 along with the
+   * pre-signed URL.
+   */
+  @SneakyThrows
+  public ObjectSpecification getSpecification(@NonNull String objectId) {
+    return storageService.getExternalDownloadSpecification(objectId, 0, -1);
+  }
+
   /**
    * This method returns a pre-signed URL for downloading the blob associated with the objectId S3 key.
    * @param objectId
@@ -190,7 +202,8 @@ public class DownloadService {
     val remainingParts = totalParts - completedParts;
 
     log.info("Total parts: {}, completed parts: {}, remaining parts: {}", totalParts, completedParts, remainingParts);
-    val progress = new Progress(terminal, quiet, totalParts, completedParts);
+    val progress = new Progress(terminal, quiet, totalParts, completedParts,
+        metricsReport.start(request.getObjectId(), Mode.DOWNLOAD));
     downloadParts(spec.getParts(), request.getOutputDir(), request.getObjectId(), request.getObjectId(), progress,
         checksum);
 
@@ -275,7 +288,8 @@ public class DownloadService {
     downloadStateStore.init(dir, spec);
 
     // TODO: Assign session id
-    val progress = new Progress(terminal, quiet, spec.getParts().size(), 0);
+    val progress = new Progress(terminal, quiet, spec.getParts().size(), 0,
+        metricsReport.start(request.getObjectId(), Mode.DOWNLOAD));
     downloadParts(spec.getParts(), dir, request.getObjectId(), request.getObjectId(), progress, false);
 
     if (request.isValidate()) {
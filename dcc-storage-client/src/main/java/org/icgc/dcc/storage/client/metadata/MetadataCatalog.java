@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.metadata;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local catalog of all metadata entities, persisted as a compact binary snapshot and shared by the commands that
+ * resolve many entities at once.
+ * <p>
+ * The first build fetches all pages in parallel. Afterwards only entities created since the last sync are fetched,
+ * since entities are immutable once registered. A periodic full sync picks up removals.
+ */
+@Slf4j
+@Component
+public class MetadataCatalog {
+
+  /**
+   * Constants.
+   */
+  private static final int FORMAT_VERSION = 1;
+  private static final long FULL_SYNC_INTERVAL = DAYS.toMillis(7);
+  private static final long SYNC_OVERLAP = MINUTES.toMillis(10); // Tolerates clock skew and late commits
+
+  /**
+   * Configuration.
+   */
+  private final File file;
+
+  /**
+   * Dependencies.
+   */
+  private final MetadataClient metadataClient;
+
+  /**
+   * State.
+   */
+  private Map<String, Entity> entities;
+  private Multimap<String, Entity> gnosIdIndex = ImmutableMultimap.of();
+  private long fullSyncTime;
+  private boolean synced;
+
+  @Autowired
+  public MetadataCatalog(@Value("${metadata.catalog.dir}") File dir, @NonNull MetadataClient metadataClient) {
+    // One catalog per metadata server
+    val name = metadataClient.getServerUrl().replaceAll("^https?://", "").replaceAll("[^A-Za-z0-9.-]", "_");
+    this.file = new File(dir, name + ".catalog");
+    this.metadataClient = metadataClient;
+  }
+
+  /**
+   * Loads the catalog, synchronizing it with the metadata service unless {@code sync} is {@code false} and a local
+   * copy exists.
+   */
+  synchronized public List<Entity> getEntities(boolean sync) {
+    load(sync);
+    return ImmutableList.copyOf(entities.values());
+  }
+
+  /**
+   * Loads and synchronizes the catalog once per process.
+   */
+  synchronized public void load() {
+    load(true);
+  }
+
+  /**
+   * @return the entity if the catalog has been loaded and contains it
+   */
+  synchronized public Optional<Entity> findEntity(@NonNull String objectId) {
+    return entities == null ? Optional.empty() : Optional.ofNullable(entities.get(objectId));
+  }
+
+  /**
+   * @return the entities of the bundle if the catalog has been loaded
+   */
+  synchronized public Collection<Entity> findEntitiesByGnosId(@NonNull String gnosId) {
+    return gnosIdIndex.get(gnosId);
+  }
+
+  private void load(boolean sync) {
+    if (entities == null && file.exists()) {
+      entities = read();
+      index();
+    }
+
+    if (entities == null) {
+      build();
+    } else if (sync && !synced) {
+      if (System.currentTimeMillis() - fullSyncTime > FULL_SYNC_INTERVAL) {
+        build();
+      } else {
+        update();
+      }
+    }
+  }
+
+  private void index() {
+    if (entities != null) {
+      val bundled = entities.values().stream().filter(entity -> entity.getGnosId() != null).iterator();
+      gnosIdIndex = Multimaps.index(bundled, Entity::getGnosId);
+    }
+  }
+
+  private void build() {
+    log.info("Building metadata catalog '{}'...", file);
+    val watch = Stopwatch.createStarted();
+
+    val values = new LinkedHashMap<String, Entity>();
+    for (val entity : metadataClient.findEntities()) {
+      values.put(entity.getId(), entity);
+    }
+
+    entities = values;
+    fullSyncTime = System.currentTimeMillis();
+    synced = true;
+    index();
+    write();
+
+    log.info("Built metadata catalog of {} entities in {}", entities.size(), watch);
+  }
+
+  private void update() {
+    val createdTime = entities.values().stream().mapToLong(Entity::getCreatedTime).max().orElse(0) - SYNC_OVERLAP;
+    val created = metadataClient.findEntitiesCreatedSince(createdTime);
+
+    int count = 0;
+    for (val entity : created) {
+      if (entities.put(entity.getId(), entity) == null) {
+        count++;
+      }
+    }
+
+    synced = true;
+    if (count > 0) {
+      index();
+      write();
+    }
+
+    log.info("Synced metadata catalog with {} new entities", count);
+  }
+
+  @SneakyThrows
+  private Map<String, Entity> read() {
+    try {
+      @Cleanup
+      val in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+      if (in.readInt() != FORMAT_VERSION) {
+        log.info("Discarding metadata catalog '{}' of a different format", file);
+        return null;
+      }
+
+      fullSyncTime = in.readLong();
+      val count = in.readInt();
+      val values = new LinkedHashMap<String, Entity>(count * 2);
+      for (int i = 0; i < count; i++) {
+        val entity = new Entity();
+        entity.setId(in.readUTF());
+        entity.setFileName(readString(in));
+        entity.setGnosId(readString(in));
+        entity.setCreatedTime(in.readLong());
+        entity.setProjectCode(readString(in));
+        entity.setAccess(readString(in));
+
+        values.put(entity.getId(), entity);
+      }
+
+      return values;
+    } catch (IOException e) {
+      log.warn("Discarding unreadable metadata catalog '{}': {}", file, e.getMessage());
+      return null;
+    }
+  }
+
+  @SneakyThrows
+  private void write() {
+    val dir = file.getParentFile();
+    if (!dir.exists() && !dir.mkdirs()) {
+      log.warn("Could not create metadata catalog directory '{}'", dir);
+      return;
+    }
+
+    // Replace atomically so that concurrent commands never observe a partial catalog
+    val temp = File.createTempFile(file.getName(), ".tmp", dir);
+    try {
+      try (val out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp))))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(fullSyncTime);
+        out.writeInt(entities.size());
+        for (val entity : entities.values()) {
+          out.writeUTF(entity.getId());
+          writeString(out, entity.getFileName());
+          writeString(out, entity.getGnosId());
+          out.writeLong(entity.getCreatedTime());
+          writeString(out, entity.getProjectCode());
+          writeString(out, entity.getAccess());
+        }
+      }
+
+      Files.move(temp.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+    } finally {
+      temp.delete();
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+}
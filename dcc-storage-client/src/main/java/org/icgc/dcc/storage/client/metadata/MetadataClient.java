@@ -21,9 +21,13 @@ import static java.util.stream.Collectors.joining;
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import org.icgc.dcc.common.core.security.SSLCertificateValidation;
@@ -34,10 +38,12 @@ import org.springframework.stereotype.Component;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
@@ -53,6 +59,8 @@ public class MetadataClient {
    * Constants.
    */
   private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final int PAGE_SIZE = 2000;
+  private static final int PAGE_THREADS = 8;
 
   /**
    * Configuration.
@@ -99,23 +107,64 @@ public class MetadataClient {
     }
   }
 
+  /**
+   * Finds the entities created at or after {@code createdTime}, newest first.
+   */
   @SneakyThrows
-  private List<Entity> readAll(@NonNull String path) {
+  public List<Entity> findEntitiesCreatedSince(long createdTime, String... fields) throws EntityNotFoundException {
+    val path = "/?" + (fields.length > 0 ? resolveFields(fields) + "&" : "") + "sort=createdTime,desc&sort=id,asc";
     val results = Lists.<Entity> newArrayList();
     boolean last = false;
     int pageNumber = 0;
 
     try {
       while (!last) {
-        val url = resolveUrl(path + (path.contains("?") ? "&" : "?") + "size=2000&page=" + pageNumber);
-        log.debug("Getting {}...", url);
+        val result = readPage(path, pageNumber++);
+        last = result.isLast();
 
-        val result = MAPPER.readValue(url, ObjectNode.class);
-        last = result.path("last").asBoolean();
-        List<Entity> page = MAPPER.convertValue(result.path("content"), new TypeReference<ArrayList<Entity>>() {});
+        for (val entity : result.getEntities()) {
+          if (entity.getCreatedTime() < createdTime) {
+            last = true;
+            break;
+          }
 
-        results.addAll(page);
-        pageNumber++;
+          results.add(entity);
+        }
+      }
+    } catch (FileNotFoundException e) {
+      throw new EntityNotFoundException(e.getMessage());
+    }
+
+    return results.stream().distinct().collect(toImmutableList());
+  }
+
+  @SneakyThrows
+  private List<Entity> readAll(@NonNull String path) {
+    // Order by creation so that concurrent inserts are appended rather than shifting the pages being read
+    val sortedPath = path + (path.contains("?") ? "&" : "?") + "sort=createdTime,asc&sort=id,asc";
+
+    val results = Lists.<Entity> newArrayList();
+    try {
+      val first = readPage(sortedPath, 0);
+      results.addAll(first.getEntities());
+
+      if (first.getTotalPages() > 1) {
+        // Fetch the remaining pages in parallel
+        val threads = Math.min(PAGE_THREADS, first.getTotalPages() - 1);
+        val executor = Executors.newFixedThreadPool(threads);
+        try {
+          val pages = Lists.<Future<Page>> newArrayList();
+          for (int pageNumber = 1; pageNumber < first.getTotalPages(); pageNumber++) {
+            val n = pageNumber;
+            pages.add(executor.submit(() -> readPage(sortedPath, n)));
+          }
+
+          for (val page : pages) {
+            results.addAll(getPage(page).getEntities());
+          }
+        } finally {
+          executor.shutdownNow();
+        }
       }
     } catch (FileNotFoundException e) {
       throw new EntityNotFoundException(e.getMessage());
@@ -126,6 +175,25 @@ public class MetadataClient {
     return results.stream().distinct().collect(toImmutableList());
   }
 
+  private Page readPage(String path, int pageNumber) throws IOException {
+    val url = resolveUrl(path + (path.contains("?") ? "&" : "?") + "size=" + PAGE_SIZE + "&page=" + pageNumber);
+    log.debug("Getting {}...", url);
+
+    val result = MAPPER.readValue(url, ObjectNode.class);
+    List<Entity> entities = MAPPER.convertValue(result.path("content"), new TypeReference<ArrayList<Entity>>() {});
+
+    return new Page(entities, result.path("totalPages").asInt(1), result.path("last").asBoolean());
+  }
+
+  private static Page getPage(Future<Page> page) throws IOException, InterruptedException {
+    try {
+      return page.get();
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
   @SneakyThrows
   private URL resolveUrl(String path) {
     return new URL(serverUrl + "/entities" + path);
@@ -135,4 +203,14 @@ public class MetadataClient {
     return Stream.of(fields).map(f -> "fields=" + f).collect(joining("&"));
   }
 
+  @Getter
+  @RequiredArgsConstructor
+  private static class Page {
+
+    private final List<Entity> entities;
+    private final int totalPages;
+    private final boolean last;
+
+  }
+
 }
@@ -17,19 +17,30 @@
  */
 package org.icgc.dcc.storage.client.metadata;
 
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import lombok.NonNull;
 import lombok.val;
 
 @Service
 public class MetadataService {
 
+  /**
+   * Constants.
+   */
+  private static final int MIN_CATALOG_LOOKUPS = 10; // Below which individual requests beat loading the catalog
+
   @Autowired
   private MetadataClient metadataClient;
+  @Autowired
+  private MetadataCatalog metadataCatalog;
 
   public List<Entity> getEntities() {
     return metadataClient.findEntities();
@@ -39,12 +50,62 @@ public class MetadataService {
     return metadataClient.findEntities(fields);
   }
 
+  /**
+   * @param sync whether to synchronize the local catalog with the metadata service if it already exists
+   */
+  public List<Entity> getCatalogEntities(boolean sync) {
+    return metadataCatalog.getEntities(sync);
+  }
+
+  /**
+   * Looks up many entities, using the local catalog when there are enough of them.
+   */
+  public List<Entity> getEntities(@NonNull Collection<String> objectIds) {
+    prepareLookups(objectIds.size());
+
+    return objectIds.stream().map(this::getEntity).collect(toList());
+  }
+
+  /**
+   * Loads the local catalog ahead of {@code count} lookups with {@link #getEntity(String)} when there are enough of
+   * them.
+   */
+  public void prepareLookups(int count) {
+    if (count >= MIN_CATALOG_LOOKUPS) {
+      metadataCatalog.load();
+    }
+  }
+
   public Entity getEntity(String objectId) {
+    // Entities are immutable so a catalog entry never needs revalidation
+    return metadataCatalog.findEntity(objectId).orElseGet(() -> metadataClient.findEntity(objectId));
+  }
+
+  /**
+   * Looks up the entities of a bundle from the metadata service without waiting on the local catalog, which may be
+   * synchronizing.
+   */
+  public List<Entity> getServerEntitiesByGnosId(String gnosId) {
+    return metadataClient.findEntitiesByGnosId(gnosId);
+  }
+
+  /**
+   * Looks up an entity from the metadata service without waiting on the local catalog, which may be synchronizing.
+   */
+  public Entity getServerEntity(String objectId) {
     return metadataClient.findEntity(objectId);
   }
 
   public Optional<Entity> getIndexEntity(Entity entity) {
-    val entities = metadataClient.findEntitiesByGnosId(entity.getGnosId());
+    val cached = findIndexEntity(metadataCatalog.findEntitiesByGnosId(entity.getGnosId()), entity);
+    if (cached.isPresent()) {
+      return cached;
+    }
+
+    return findIndexEntity(metadataClient.findEntitiesByGnosId(entity.getGnosId()), entity);
+  }
+
+  private static Optional<Entity> findIndexEntity(Collection<Entity> entities, Entity entity) {
     return entities
         .stream()
         .filter(e -> isIndexFile(e, entity.getFileName()))
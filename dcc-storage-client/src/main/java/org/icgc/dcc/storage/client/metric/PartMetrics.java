@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.metric;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import lombok.Getter;
+
+/**
+ * Timings of a single part transfer.
+ * <p>
+ * All durations are in milliseconds. Time to first byte and transfer time refer to the last attempt, while bytes,
+ * hash time and restarts accumulate over all attempts. A part restarts after a failed transfer and after a failed
+ * checksum alike.
+ */
+@JsonPropertyOrder({ "partNumber", "offset", "partSize", "queueWait", "timeToFirstByte", "transferTime", "hashTime",
+    "restarts", "bytes" })
+public class PartMetrics {
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final int partNumber;
+  @Getter
+  private final long offset;
+  @Getter
+  private final long partSize;
+
+  /**
+   * State.
+   */
+  private volatile long queuedNanos;
+  private volatile long startedNanos;
+  private volatile long attemptNanos;
+  private volatile long firstByteNanos;
+  private volatile long transferNanos;
+  private final AtomicLong hashNanos = new AtomicLong();
+  private final AtomicInteger restarts = new AtomicInteger();
+  private final AtomicLong bytes = new AtomicLong();
+
+  public PartMetrics(Part part) {
+    this.partNumber = part.getPartNumber();
+    this.offset = part.getOffset();
+    this.partSize = part.getPartSize();
+  }
+
+  public void queued() {
+    queuedNanos = System.nanoTime();
+  }
+
+  public void started() {
+    if (startedNanos == 0) {
+      startedNanos = System.nanoTime();
+      attemptNanos = startedNanos;
+    }
+  }
+
+  public void restarted() {
+    restarts.incrementAndGet();
+    attemptNanos = System.nanoTime();
+    firstByteNanos = 0;
+  }
+
+  public void transferred(long byteCount) {
+    if (firstByteNanos == 0) {
+      firstByteNanos = System.nanoTime();
+    }
+
+    bytes.addAndGet(byteCount);
+  }
+
+  public void transferTime(long nanos) {
+    transferNanos = nanos;
+  }
+
+  public void hashTime(long nanos) {
+    hashNanos.addAndGet(nanos);
+  }
+
+  public long getQueueWait() {
+    return queuedNanos == 0 || startedNanos == 0 ? 0 : millis(startedNanos - queuedNanos);
+  }
+
+  public long getTimeToFirstByte() {
+    return firstByteNanos == 0 ? 0 : millis(firstByteNanos - attemptNanos);
+  }
+
+  public long getTransferTime() {
+    return millis(transferNanos);
+  }
+
+  public long getHashTime() {
+    return millis(hashNanos.get());
+  }
+
+  public int getRestarts() {
+    return restarts.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  private static long millis(long nanos) {
+    return NANOSECONDS.toMillis(nanos);
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.metric;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * An {@link InputStream} that hashes the bytes read from it like {@link com.google.common.hash.HashingInputStream},
+ * timing only the hashing.
+ */
+public class TimedHashingInputStream extends FilterInputStream implements HashTimed {
+
+  /**
+   * State.
+   */
+  private final Hasher hasher;
+  private long hashNanos;
+
+  public TimedHashingInputStream(@NonNull HashFunction hashFunction, @NonNull InputStream in) {
+    super(in);
+    this.hasher = hashFunction.newHasher();
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b != -1) {
+      val start = System.nanoTime();
+      hasher.putByte((byte) b);
+      hashNanos += System.nanoTime() - start;
+    }
+
+    return b;
+  }
+
+  @Override
+  public int read(byte[] bytes, int off, int len) throws IOException {
+    int n = in.read(bytes, off, len);
+    if (n != -1) {
+      val start = System.nanoTime();
+      hasher.putBytes(bytes, off, n);
+      hashNanos += System.nanoTime() - start;
+    }
+
+    return n;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(int readlimit) {
+  }
+
+  @Override
+  public void reset() throws IOException {
+    throw new IOException("reset not supported");
+  }
+
+  @Override
+  public long getHashNanos() {
+    return hashNanos;
+  }
+
+  public HashCode hash() {
+    return hasher.hash();
+  }
+
+}
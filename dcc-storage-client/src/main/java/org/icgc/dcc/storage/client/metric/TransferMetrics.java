@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.metric;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.icgc.dcc.storage.client.transport.Transport.Mode;
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * Per-part timings and throughput samples of a single object transfer.
+ */
+@JsonPropertyOrder({ "objectId", "mode", "startTime", "duration", "parts", "throughput" })
+public class TransferMetrics {
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final String objectId;
+  @Getter
+  private final Mode mode;
+
+  /**
+   * State.
+   */
+  @Getter
+  private final long startTime = System.currentTimeMillis();
+  private final long startNanos = System.nanoTime();
+  private volatile long endNanos;
+
+  private final Map<Integer, PartMetrics> parts = new ConcurrentSkipListMap<>();
+  private final List<ThroughputSample> throughput = new CopyOnWriteArrayList<>();
+  private long lastBytesRead;
+  private long lastBytesWritten;
+
+  public TransferMetrics(@NonNull String objectId, @NonNull Mode mode) {
+    this.objectId = objectId;
+    this.mode = mode;
+  }
+
+  public PartMetrics queued(@NonNull Part part) {
+    val metrics = getPart(part);
+    metrics.queued();
+
+    return metrics;
+  }
+
+  public PartMetrics started(@NonNull Part part) {
+    val metrics = getPart(part);
+    metrics.started();
+
+    return metrics;
+  }
+
+  public synchronized void sample(long bytesRead, long bytesWritten) {
+    throughput.add(new ThroughputSample(elapsed(), bytesRead - lastBytesRead, bytesWritten - lastBytesWritten));
+    lastBytesRead = bytesRead;
+    lastBytesWritten = bytesWritten;
+  }
+
+  public void end() {
+    endNanos = System.nanoTime();
+  }
+
+  public long getDuration() {
+    return endNanos == 0 ? elapsed() : NANOSECONDS.toMillis(endNanos - startNanos);
+  }
+
+  public Collection<PartMetrics> getParts() {
+    return parts.values();
+  }
+
+  public List<ThroughputSample> getThroughput() {
+    return throughput;
+  }
+
+  private PartMetrics getPart(Part part) {
+    return parts.computeIfAbsent(part.getPartNumber(), partNumber -> new PartMetrics(part));
+  }
+
+  private long elapsed() {
+    return NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.metric;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT;
+import static com.google.common.base.Charsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.icgc.dcc.storage.client.transport.Transport.Mode;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects {@link TransferMetrics} of all transfers of a command and writes them as a JSON or CSV report.
+ * <p>
+ * Collection is only enabled once a report file has been set. A CSV report is split into a parts file and a sibling
+ * {@code -throughput.csv} file for the per-second samples.
+ */
+@Slf4j
+@Component
+public class TransferMetricsReport {
+
+  /**
+   * Constants.
+   */
+  private static final ObjectMapper MAPPER = new ObjectMapper().enable(INDENT_OUTPUT);
+  private static final Joiner CSV = Joiner.on(',');
+  private static final String CSV_EXTENSION = "csv";
+
+  /**
+   * State.
+   */
+  private final List<TransferMetrics> transfers = new CopyOnWriteArrayList<>();
+  private volatile File file;
+
+  public void setFile(File file) {
+    this.file = file;
+    transfers.clear();
+  }
+
+  public boolean isEnabled() {
+    return file != null;
+  }
+
+  public TransferMetrics start(@NonNull String objectId, @NonNull Mode mode) {
+    val metrics = new TransferMetrics(objectId, mode);
+    if (isEnabled()) {
+      transfers.add(metrics);
+    }
+
+    return metrics;
+  }
+
+  public void write() {
+    if (!isEnabled()) {
+      return;
+    }
+
+    try {
+      if (CSV_EXTENSION.equalsIgnoreCase(Files.getFileExtension(file.getName()))) {
+        writeCsv();
+      } else {
+        MAPPER.writeValue(file, transfers);
+      }
+      log.info("Wrote transfer metrics of {} transfer(s) to '{}'", transfers.size(), file);
+    } catch (IOException e) {
+      log.warn("Could not write transfer metrics to '{}': {}", file, e.getMessage());
+    }
+  }
+
+  private void writeCsv() throws IOException {
+    try (val writer = new PrintWriter(Files.newWriter(file, UTF_8))) {
+      writer.println("objectId,mode,partNumber,offset,partSize,queueWait,timeToFirstByte,transferTime,hashTime,"
+          + "restarts,bytes");
+      for (val transfer : transfers) {
+        for (val part : transfer.getParts()) {
+          writer.println(CSV.join(transfer.getObjectId(), transfer.getMode(), part.getPartNumber(), part.getOffset(),
+              part.getPartSize(), part.getQueueWait(), part.getTimeToFirstByte(), part.getTransferTime(),
+              part.getHashTime(), part.getRestarts(), part.getBytes()));
+        }
+      }
+    }
+
+    try (val writer = new PrintWriter(Files.newWriter(getThroughputFile(), UTF_8))) {
+      writer.println("objectId,mode,elapsed,bytesRead,bytesWritten");
+      for (val transfer : transfers) {
+        for (val sample : transfer.getThroughput()) {
+          writer.println(CSV.join(transfer.getObjectId(), transfer.getMode(), sample.getElapsed(),
+              sample.getBytesRead(), sample.getBytesWritten()));
+        }
+      }
+    }
+  }
+
+  private File getThroughputFile() {
+    val baseName = Files.getNameWithoutExtension(file.getName());
+    return new File(file.getAbsoluteFile().getParentFile(), baseName + "-throughput." + CSV_EXTENSION);
+  }
+
+}
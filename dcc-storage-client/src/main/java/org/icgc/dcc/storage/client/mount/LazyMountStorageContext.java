@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.mount;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.util.stream.Collectors.toList;
+import static org.icgc.dcc.storage.fs.StorageFile.storageFile;
+
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.icgc.dcc.storage.client.download.DownloadService;
+import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.icgc.dcc.storage.client.metadata.Entity;
+import org.icgc.dcc.storage.client.metadata.EntityNotFoundException;
+import org.icgc.dcc.storage.client.metadata.MetadataService;
+import org.icgc.dcc.storage.client.transport.StorageService;
+import org.icgc.dcc.storage.core.model.ObjectInfo;
+import org.icgc.dcc.storage.fs.StorageFile;
+import org.icgc.dcc.storage.fs.StorageFileLayout;
+import org.icgc.dcc.storage.fs.StorageFileTree;
+import org.icgc.dcc.storage.fs.cache.BlockCache;
+import org.icgc.dcc.storage.fs.cache.DiskBlockCache;
+import org.icgc.dcc.storage.fs.cache.ReadAhead;
+import org.icgc.dcc.storage.fs.util.HttpConnectionPool;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A {@link MountStorageContext} that can be mounted before the files of the mount are indexed.
+ * <p>
+ * Until one of the {@code index} methods is called, paths below the root are resolved a bundle at a time from the
+ * metadata and storage services, so that a lookup only waits on its own bundle. Listing the root waits on the index.
+ */
+@Slf4j
+public class LazyMountStorageContext extends MountStorageContext {
+
+  /**
+   * Constants.
+   */
+  private static final int LOAD_THREADS = 8;
+  private static final Pattern ID_PATTERN = Pattern.compile("[\\w-]+"); // Names that could be bundle or object ids
+
+  /**
+   * Configuration.
+   */
+  private final Set<String> objectIds; // Of the manifest view, if any
+
+  /**
+   * Dependencies.
+   */
+  private final MetadataService metadataService;
+  private final StorageService storageService;
+
+  /**
+   * State.
+   */
+  private final CompletableFuture<List<StorageFile>> files = new CompletableFuture<>();
+  private final LoadingCache<String, List<StorageFile>> bundles =
+      CacheBuilder.newBuilder().build(CacheLoader.from(this::loadBundle));
+  private final LoadingCache<String, StorageFileTree> trees =
+      CacheBuilder.newBuilder().build(CacheLoader.from(this::loadTree));
+  private final StorageFileTree emptyTree;
+  private final ExecutorService executor = Executors.newFixedThreadPool(LOAD_THREADS,
+      new ThreadFactoryBuilder().setNameFormat("bundle-%s").setDaemon(true).build());
+
+  public LazyMountStorageContext(StorageFileLayout layout, DownloadService downloadService,
+      HttpConnectionPool connectionPool, BlockCache blockCache, ReadAhead readAhead, DiskBlockCache diskBlockCache,
+      @NonNull MetadataService metadataService, @NonNull StorageService storageService, Set<String> objectIds) {
+    super(layout, downloadService, connectionPool, ImmutableList.of(), ImmutableList.of(), blockCache, readAhead,
+        diskBlockCache);
+    this.metadataService = metadataService;
+    this.storageService = storageService;
+    this.objectIds = objectIds;
+    this.emptyTree = new StorageFileTree(layout, ImmutableList.of());
+  }
+
+  /**
+   * Completes the index with {@code entities} joined to the {@code objects} in the repository.
+   */
+  public void index(@NonNull List<Entity> entities, @NonNull List<ObjectInfo> objects) {
+    index(joinFiles(entities, objects));
+  }
+
+  /**
+   * Completes the index with the files of {@code gnosIds}, loading them in parallel and sharing any that were already
+   * loaded by lookups.
+   */
+  @SneakyThrows
+  public void indexBundles(@NonNull Collection<String> gnosIds) {
+    // Bundle loads wait on file loads in the shared executor so are run on a pool of their own
+    val executor = Executors.newFixedThreadPool(LOAD_THREADS);
+    try {
+      val futures = gnosIds.stream()
+          .distinct()
+          .map(gnosId -> executor.submit(() -> bundles.getUnchecked(gnosId)))
+          .collect(toList());
+
+      val files = ImmutableList.<StorageFile> builder();
+      for (val future : futures) {
+        files.addAll(future.get());
+      }
+
+      index(files.build());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public boolean isIndexed() {
+    return files.isDone();
+  }
+
+  @Override
+  public List<StorageFile> getFiles() {
+    return files.join();
+  }
+
+  @Override
+  public StorageFileTree getFileTree(@NonNull String path) {
+    if (isIndexed() || path.equals(StorageFileTree.ROOT)) {
+      return super.getFileTree(path);
+    }
+
+    val name = path.substring(1).split("/")[0];
+    val id = getLayout() == StorageFileLayout.OBJECT_ID && name.contains(".") ?
+        name.substring(0, name.indexOf('.')) : name; // Hidden index aliases are named after the indexed object
+    if (!ID_PATTERN.matcher(id).matches()) {
+      return emptyTree;
+    }
+
+    try {
+      return trees.get(id);
+    } catch (Exception e) {
+      log.warn("Could not load '{}' ahead of the index, waiting for it instead: {}", path, e.getMessage());
+      return super.getFileTree(path);
+    }
+  }
+
+  @Override
+  public boolean isAuthorized() {
+    // The probe needs an indexed file. Until then, reads of a denied object fail on their own
+    return !isIndexed() || super.isAuthorized();
+  }
+
+  private void index(List<StorageFile> files) {
+    this.files.complete(files);
+
+    // Only consulted before the index is complete
+    trees.invalidateAll();
+    bundles.invalidateAll();
+  }
+
+  private StorageFileTree loadTree(String id) {
+    if (getLayout() == StorageFileLayout.BUNDLE) {
+      return new StorageFileTree(getLayout(), bundles.getUnchecked(id));
+    }
+
+    try {
+      val entity = metadataService.getServerEntity(id);
+      return new StorageFileTree(getLayout(), bundles.getUnchecked(entity.getGnosId()));
+    } catch (EntityNotFoundException e) {
+      return emptyTree;
+    }
+  }
+
+  @SneakyThrows
+  private List<StorageFile> loadBundle(String gnosId) {
+    val start = System.nanoTime();
+    val futures = metadataService.getServerEntitiesByGnosId(gnosId).stream()
+        .filter(entity -> objectIds == null || objectIds.contains(entity.getId()))
+        .map(entity -> executor.submit(() -> loadFile(entity)))
+        .collect(toList());
+
+    val files = ImmutableList.<StorageFile> builder();
+    for (val future : futures) {
+      val file = future.get();
+      if (file != null) {
+        files.add(file);
+      }
+    }
+
+    getMetrics().recordLatency("bundleLoad", System.nanoTime() - start);
+
+    return files.build();
+  }
+
+  @SneakyThrows
+  private StorageFile loadFile(Entity entity) {
+    val objectId = entity.getId();
+    try {
+      // Signing a URL is the only per-object way to learn its size, so the URL is kept for the first read
+      val spec = storageService.getExternalDownloadSpecification(objectId, 0, -1);
+      cacheUrl(objectId, new URL(getOnlyElement(spec.getParts()).getUrl()));
+
+      return storageFile()
+          .objectId(objectId)
+          .fileName(entity.getFileName())
+          .gnosId(entity.getGnosId())
+          .lastModified(entity.getCreatedTime()) // Superseded by the object's once indexed
+          .size(spec.getObjectSize())
+          .build();
+    } catch (NotRetryableException e) {
+      log.debug("Skipping object '{}' that is not in the repository: {}", objectId, e.getMessage());
+      return null;
+    }
+  }
+
+}
@@ -25,11 +25,13 @@ import java.nio.file.FileSystem;
 import java.nio.file.Path;
 import java.util.Map;
 
+import org.icgc.dcc.storage.fs.StoragePath;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.google.common.collect.Maps;
 
+import co.paralleluniverse.javafs.DirectIOJavaFS;
 import co.paralleluniverse.javafs.JavaFS;
 import jnr.ffi.provider.ClosureManager;
 import jnr.ffi.provider.jffi.NativeRuntime;
@@ -53,7 +55,8 @@ public class MountService {
    */
   public static final String INTERNAL_MOUNT_OPTIONS =
       // @formatter:off
-      // Important: prevent async_read read-ahead which will cause multiple reconnects with HTTP backend
+      // Important: prevent async_read read-ahead which will cause multiple reconnects with HTTP backend. Concurrent
+      // reads of the same channel are positional. Parallel read-ahead is done by the file system itself.
       "sync_read," + 
 
       // This option disables flushing the cache of the file contents on every open(2). This
@@ -75,8 +78,10 @@ public class MountService {
       throws IOException, InterruptedException {
     patchFfi();
 
+    // The statistics file changes on every read so must not be served from the kernel cache
     val readOnly = true;
-    JavaFS.mount(fileSystem, mountPoint, readOnly, logging, resolveOptions(options));
+    val statsPath = "/" + StoragePath.STATS_FILE_NAME;
+    DirectIOJavaFS.mount(fileSystem, mountPoint, readOnly, logging, resolveOptions(options), statsPath::equals);
   }
 
   /**
@@ -30,7 +30,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.icgc.dcc.storage.client.download.DownloadService;
 import org.icgc.dcc.storage.client.metadata.Entity;
@@ -39,22 +40,37 @@ import org.icgc.dcc.storage.core.model.ObjectInfo;
 import org.icgc.dcc.storage.fs.StorageContext;
 import org.icgc.dcc.storage.fs.StorageFile;
 import org.icgc.dcc.storage.fs.StorageFileLayout;
+import org.icgc.dcc.storage.fs.StorageFileTree;
+import org.icgc.dcc.storage.fs.cache.BlockCache;
+import org.icgc.dcc.storage.fs.cache.DiskBlockCache;
+import org.icgc.dcc.storage.fs.cache.ReadAhead;
+import org.icgc.dcc.storage.fs.metric.StorageMetrics;
+import org.icgc.dcc.storage.fs.util.HttpConnectionPool;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @RequiredArgsConstructor
 public class MountStorageContext implements StorageContext {
 
+  /**
+   * Constants.
+   */
+  private static final int URL_THREADS = 8;
+  private static final int MAX_PREFETCH_URLS = 1000; // Per listing, to avoid signing a whole flat repository
+
   /**
    * Configuration.
    */
@@ -66,15 +82,23 @@ public class MountStorageContext implements StorageContext {
    */
   @NonNull
   private final DownloadService downloadService;
+  @Getter
+  @NonNull
+  private final HttpConnectionPool connectionPool;
 
   /**
    * Caches.
    */
   private final List<Entity> entities;
   private final List<ObjectInfo> objects;
+  private final BlockCache blockCache;
+  private final ReadAhead readAhead;
+  private final DiskBlockCache diskBlockCache;
 
   @Getter(lazy = true)
   private final List<StorageFile> files = resolveFiles();
+  @Getter(lazy = true)
+  private final StorageFileTree fileTree = resolveFileTree();
   @Getter(lazy = true, value = PRIVATE)
   private final Map<String, StorageFile> fileObjectIdIndex = resolveFileObjectIdIndex();
   @Getter(lazy = true, value = PRIVATE)
@@ -84,15 +108,21 @@ public class MountStorageContext implements StorageContext {
   @Getter(lazy = true)
   private final boolean authorized = resolveAuthorized();
   @Getter
-  private Map<String, Long> metrics = new ConcurrentHashMap<>();
+  private final StorageMetrics metrics = new StorageMetrics();
+
+  /**
+   * State.
+   */
+  private final ExecutorService urlExecutor = Executors.newFixedThreadPool(URL_THREADS,
+      new ThreadFactoryBuilder().setNameFormat("url-%s").setDaemon(true).build());
 
   @SneakyThrows
   public boolean resolveAuthorized() {
     try {
       // TODO: Figure out why getFirst fails. All objects should exist! May need to filter out junk bucket paths on
       // server as this could be causing the failure.
-      val probe = getLast(objects);
-      val probeUrl = downloadService.getUrl(probe.getId());
+      val probe = getLast(getFiles());
+      val probeUrl = downloadService.getUrl(probe.getObjectId());
       probeUrl.openStream();
     } catch (IOException e) {
       // FIXME: Hack!
@@ -112,9 +142,38 @@ public class MountStorageContext implements StorageContext {
     return getUrlCache().get(objectId);
   }
 
+  @Override
+  public void prefetchUrls(@NonNull Collection<String> objectIds) {
+    val urlCache = getUrlCache();
+    objectIds.stream()
+        .filter(objectId -> urlCache.getIfPresent(objectId) == null)
+        .limit(MAX_PREFETCH_URLS)
+        .forEach(objectId -> urlExecutor.execute(() -> prefetchUrl(objectId)));
+  }
+
+  @Override
+  public StorageFileTree getFileTree(String path) {
+    return getFileTree();
+  }
+
+  @Override
+  public Optional<BlockCache> getBlockCache() {
+    return Optional.ofNullable(blockCache);
+  }
+
+  @Override
+  public Optional<ReadAhead> getReadAhead() {
+    return Optional.ofNullable(readAhead);
+  }
+
+  @Override
+  public Optional<DiskBlockCache> getDiskBlockCache() {
+    return Optional.ofNullable(diskBlockCache);
+  }
+
   @Override
   public StorageFile getFile(String objectId) {
-    return resolveFileObjectIdIndex().get(objectId);
+    return getFileObjectIdIndex().get(objectId);
   }
 
   @Override
@@ -135,15 +194,21 @@ public class MountStorageContext implements StorageContext {
     return getFileGnosIdIndex().get(gnosId);
   }
 
-  @Override
-  public void incrementCount(String name, long n) {
-    val value = metrics.get(name);
-    val count = (value == null ? 0 : value) + n;
-
-    metrics.put(name, count);
+  /**
+   * Seeds the URL cache with a URL that was signed as a by-product of another request.
+   */
+  protected void cacheUrl(@NonNull String objectId, @NonNull URL url) {
+    getUrlCache().put(objectId, url);
   }
 
   private List<StorageFile> resolveFiles() {
+    return joinFiles(entities, objects);
+  }
+
+  /**
+   * Joins {@code entities} to the {@code objects} that exist in the repository.
+   */
+  protected static List<StorageFile> joinFiles(List<Entity> entities, List<ObjectInfo> objects) {
     val entityIndex = uniqueIndex(entities, Entity::getId);
 
     val files = ImmutableList.<StorageFile> builder();
@@ -168,6 +233,10 @@ public class MountStorageContext implements StorageContext {
     return files.build();
   }
 
+  private StorageFileTree resolveFileTree() {
+    return new StorageFileTree(layout, getFiles());
+  }
+
   private Map<String, StorageFile> resolveFileObjectIdIndex() {
     return uniqueIndex(getFiles(), StorageFile::getObjectId);
   }
@@ -176,14 +245,37 @@ public class MountStorageContext implements StorageContext {
     return index(getFiles(), StorageFile::getGnosId);
   }
 
+  private void prefetchUrl(String objectId) {
+    try {
+      // Concurrent loads of the same key are coalesced by the cache
+      getUrlCache().get(objectId);
+    } catch (Exception e) {
+      log.warn("Could not prefetch URL of object '{}': {}", objectId, e.getMessage());
+    }
+  }
+
+  private URL signUrl(String objectId) {
+    val start = System.nanoTime();
+    try {
+      return downloadService.getUrl(objectId);
+    } finally {
+      metrics.recordLatency("urlSign", System.nanoTime() - start);
+    }
+  }
+
   private LoadingCache<String, URL> createURLCache() {
-    val loader = CacheLoader.<String, URL> from(objectId -> downloadService.getUrl(objectId));
+    // Reloads happen in the background while the current URL continues to be served
+    val loader = CacheLoader.asyncReloading(
+        CacheLoader.<String, URL> from(this::signUrl), urlExecutor);
     val cache = CacheBuilder.newBuilder();
 
     // See https://jira.oicr.on.ca/browse/COL-131
     // See https://jira.oicr.on.ca/browse/COL-313
     val serverExpiration = 24;
-    return cache.expireAfterWrite(serverExpiration - 1, HOURS).build(loader);
+    return cache
+        .refreshAfterWrite(serverExpiration / 2, HOURS)
+        .expireAfterWrite(serverExpiration - 1, HOURS)
+        .build(loader);
   }
 
 }
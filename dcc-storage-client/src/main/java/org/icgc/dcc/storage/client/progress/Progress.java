@@ -12,9 +12,13 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.icgc.dcc.storage.client.cli.Terminal;
+import org.icgc.dcc.storage.client.metric.PartMetrics;
+import org.icgc.dcc.storage.client.metric.TransferMetrics;
+import org.icgc.dcc.storage.core.model.Part;
 
 import com.google.common.base.Stopwatch;
 
+import lombok.Getter;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -51,6 +55,9 @@ public class Progress {
   private final AtomicLong bytesWritten = new AtomicLong(0);
   private volatile long bytesWrittenPerSec;
 
+  @Getter
+  private final TransferMetrics metrics;
+
   /**
    * State - Other.
    */
@@ -63,18 +70,19 @@ public class Progress {
    */
   private final Terminal terminal;
 
-  public Progress(Terminal terminal, boolean quiet, int totalParts, int completedParts) {
+  public Progress(Terminal terminal, boolean quiet, int totalParts, int completedParts, TransferMetrics metrics) {
     this.terminal = terminal;
     this.quiet = quiet;
     this.totalParts = totalParts;
     this.totalChecksumParts = completedParts;
+    this.metrics = metrics;
 
     incrementParts(completedParts);
   }
 
   public void start() {
     progressMonitor = Executors.newSingleThreadScheduledExecutor();
-    progressMonitor.scheduleWithFixedDelay(this::display, DISPLAY_INTERVAL, DISPLAY_INTERVAL, SECONDS);
+    progressMonitor.scheduleWithFixedDelay(this::update, DISPLAY_INTERVAL, DISPLAY_INTERVAL, SECONDS);
   }
 
   public synchronized void startTransfer() {
@@ -100,12 +108,13 @@ public class Progress {
       log.debug("Cannot stop the stopwatch: ", e);
     }
 
-    display();
+    update();
     terminal.println("");
     terminal.println("Finalizing...");
   }
 
   public void end(boolean incomplete) {
+    metrics.end();
     if (incomplete) {
       terminal
           .println(terminal.error("Data transfer has been interrupted. Some parts are missing. Waiting to retry..."));
@@ -136,6 +145,19 @@ public class Progress {
     bytesWrittenPerSec = bytesWritten.addAndGet(byteCount) / duration() * 1000;
   }
 
+  public PartMetrics queuePart(Part part) {
+    return metrics.queued(part);
+  }
+
+  public PartMetrics startPart(Part part) {
+    return metrics.started(part);
+  }
+
+  private void update() {
+    metrics.sample(bytesRead.get(), bytesWritten.get());
+    display();
+  }
+
   private synchronized void display() {
     if (quiet) {
       return;
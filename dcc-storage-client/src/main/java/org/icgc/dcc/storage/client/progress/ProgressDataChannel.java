@@ -21,28 +21,71 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import org.icgc.dcc.storage.client.metric.HashTimed;
+import org.icgc.dcc.storage.client.metric.PartMetrics;
 import org.icgc.dcc.storage.core.model.DataChannel;
+import org.icgc.dcc.storage.core.model.Part;
 import org.icgc.dcc.storage.core.util.ForwardingDataChannel;
 
 import lombok.NonNull;
+import lombok.val;
 
 public class ProgressDataChannel extends ForwardingDataChannel {
 
+  private final DataChannel delegate;
   private final Progress progress;
+  private final PartMetrics metrics;
 
-  public ProgressDataChannel(@NonNull DataChannel delegate, @NonNull Progress progress) {
+  public ProgressDataChannel(@NonNull DataChannel delegate, @NonNull Progress progress, @NonNull Part part) {
     super(delegate);
+    this.delegate = delegate;
     this.progress = progress;
+    this.metrics = progress.startPart(part);
   }
 
   @Override
   public void readFrom(InputStream inputStream) throws IOException {
-    super.readFrom(new ProgressInputStream(inputStream, progress));
+    val start = System.nanoTime();
+    try {
+      super.readFrom(new ProgressInputStream(inputStream, progress, metrics));
+      recordHashTime(inputStream);
+    } finally {
+      metrics.transferTime(System.nanoTime() - start);
+    }
   }
 
   @Override
   public void writeTo(OutputStream outputStream) throws IOException {
-    super.writeTo(new ProgressOutputStream(outputStream, progress));
+    val start = System.nanoTime();
+    try {
+      super.writeTo(new ProgressOutputStream(outputStream, progress, metrics));
+      recordHashTime(delegate);
+    } finally {
+      metrics.transferTime(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void reset() throws IOException {
+    super.reset();
+    metrics.restarted();
+  }
+
+  @Override
+  public boolean verifyMd5(String expectedMd5) throws IOException {
+    val verified = super.verifyMd5(expectedMd5);
+    recordHashTime(delegate);
+
+    return verified;
+  }
+
+  /**
+   * Records the time spent hashing the part, which is streamed through {@code hashed} when it keeps the time.
+   */
+  private void recordHashTime(Object hashed) {
+    if (hashed instanceof HashTimed) {
+      metrics.hashTime(((HashTimed) hashed).getHashNanos());
+    }
   }
 
 }
@@ -20,6 +20,7 @@ package org.icgc.dcc.storage.client.progress;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.icgc.dcc.storage.client.metric.PartMetrics;
 import org.icgc.dcc.storage.core.util.ForwardingInputStream;
 
 import lombok.NonNull;
@@ -28,10 +29,13 @@ import lombok.val;
 public class ProgressInputStream extends ForwardingInputStream {
 
   private final Progress progress;
+  private final PartMetrics metrics;
 
-  public ProgressInputStream(@NonNull InputStream inputStream, @NonNull Progress progress) {
+  public ProgressInputStream(@NonNull InputStream inputStream, @NonNull Progress progress,
+      @NonNull PartMetrics metrics) {
     super(inputStream);
     this.progress = progress;
+    this.metrics = metrics;
   }
 
   @Override
@@ -39,6 +43,7 @@ public class ProgressInputStream extends ForwardingInputStream {
     val value = super.read();
     if (value > 0) {
       progress.incrementBytesRead(1);
+      metrics.transferred(1);
     }
 
     return value;
@@ -49,6 +54,7 @@ public class ProgressInputStream extends ForwardingInputStream {
     val value = super.read(b);
     if (value > 0) {
       progress.incrementBytesRead(value);
+      metrics.transferred(value);
     }
 
     return value;
@@ -59,6 +65,7 @@ public class ProgressInputStream extends ForwardingInputStream {
     val value = super.read(b, off, len);
     if (value > 0) {
       progress.incrementBytesRead(value);
+      metrics.transferred(value);
     }
 
     return value;
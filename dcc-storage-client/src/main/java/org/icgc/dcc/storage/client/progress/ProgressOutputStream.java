@@ -20,6 +20,7 @@ package org.icgc.dcc.storage.client.progress;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.icgc.dcc.storage.client.metric.PartMetrics;
 import org.icgc.dcc.storage.core.util.ForwardingOutputStream;
 
 import lombok.NonNull;
@@ -27,28 +28,34 @@ import lombok.NonNull;
 public class ProgressOutputStream extends ForwardingOutputStream {
 
   private final Progress progress;
+  private final PartMetrics metrics;
 
-  public ProgressOutputStream(@NonNull OutputStream outputStream, @NonNull Progress progress) {
+  public ProgressOutputStream(@NonNull OutputStream outputStream, @NonNull Progress progress,
+      @NonNull PartMetrics metrics) {
     super(outputStream);
     this.progress = progress;
+    this.metrics = metrics;
   }
 
   @Override
   public void write(int b) throws IOException {
     super.write(b);
     progress.incrementBytesWritten(1);
+    metrics.transferred(1);
   }
 
   @Override
   public void write(byte[] b) throws IOException {
     super.write(b);
     progress.incrementBytesWritten(b.length);
+    metrics.transferred(b.length);
   }
 
   @Override
   public void write(byte[] b, int off, int len) throws IOException {
     super.write(b, off, len);
     progress.incrementBytesWritten(len);
+    metrics.transferred(len);
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.slicing;
+
+import static htsjdk.samtools.util.BlockCompressedFilePointerUtil.compare;
+import static htsjdk.samtools.util.BlockCompressedFilePointerUtil.getBlockAddress;
+import static htsjdk.samtools.util.BlockCompressedFilePointerUtil.getBlockOffset;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+import htsjdk.samtools.BAMIndex;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.seekablestream.SeekableStream;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Writes the alignments of an indexed BAM file that overlap a set of intervals to a BAM file with the same header
+ * without decoding most of them.
+ * <p>
+ * Alignments that start inside an interval are contiguous in a coordinate sorted file, so the compressed BGZF blocks
+ * between the first and the last of them are copied byte for byte. Only the alignments in the blocks at the edges of
+ * an interval are decoded, to find where they start and to filter those that start before it, and re-encoded.
+ */
+@RequiredArgsConstructor
+public class BlockCopyingSliceWriter {
+
+  /**
+   * Constants.
+   */
+  private static final byte[] BAM_MAGIC = "BAM\1".getBytes();
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Configuration.
+   */
+  @NonNull
+  private final SAMFileHeader header;
+  @NonNull
+  private final BAMIndex index;
+
+  /**
+   * Dependencies.
+   */
+  @NonNull
+  private final SeekableStream input;
+
+  /**
+   * State.
+   */
+  @Getter
+  private long encodedCount;
+  @Getter
+  private long copiedBytes;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+
+  /**
+   * Writes the alignments overlapping any of {@code intervals} to {@code file}, each once and in coordinate order.
+   */
+  public void write(@NonNull QueryInterval[] intervals, @NonNull File file) throws IOException {
+    @Cleanup
+    val raw = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+    @Cleanup
+    val output = new BlockCompressedOutputStream(raw, file);
+    writeHeader(output);
+
+    val codec = new BAMRecordCodec(header);
+    codec.setOutputStream(output);
+
+    QueryInterval previous = null;
+    for (val interval : merge(intervals)) {
+      write(interval, previous, codec, output, raw);
+      previous = interval;
+    }
+  }
+
+  private void write(QueryInterval interval, QueryInterval previous, BAMRecordCodec codec,
+      BlockCompressedOutputStream output, OutputStream raw) throws IOException {
+    val span = index.getSpanOverlapping(interval.referenceIndex, interval.start, interval.end);
+    if (span == null || span.isEmpty()) {
+      return;
+    }
+
+    // Not closed, which would close the input
+    val stream = new BlockCompressedInputStream(input);
+    stream.seek(span.getFirstOffset());
+    val decoder = new BAMRecordCodec(header);
+    decoder.setInputStream(stream);
+
+    // Head: alignments that start before the interval may or may not overlap it
+    SAMRecord record;
+    while ((record = decoder.decode()) != null) {
+      val position = locate(record, interval);
+      if (position > 0) {
+        // Nothing starts inside the interval
+        return;
+      }
+
+      // Those that overlap the previous interval were written with it
+      if (position == 0 || (overlaps(record, interval) && !overlaps(record, previous))) {
+        encode(codec, record);
+      }
+
+      if (position == 0) {
+        break;
+      }
+    }
+
+    if (record == null) {
+      return;
+    }
+
+    // Body: everything up to where the alignments starting after the interval may begin
+    val end = getFollowingOffset(interval);
+    if (compare(end, stream.getFilePointer()) > 0) {
+      copy(stream, end, output, raw);
+    }
+
+    // Tail: alignments that start inside the interval until the first that does not
+    while ((record = decoder.decode()) != null && locate(record, interval) == 0) {
+      encode(codec, record);
+    }
+  }
+
+  private void encode(BAMRecordCodec codec, SAMRecord record) {
+    codec.encode(record);
+    encodedCount++;
+  }
+
+  /**
+   * Copies the uncompressed bytes from the current position of {@code stream} up to {@code end}. Whole blocks in
+   * between are copied compressed, leaving {@code stream} positioned at {@code end}.
+   */
+  private void copy(BlockCompressedInputStream stream, long end, BlockCompressedOutputStream output,
+      OutputStream raw) throws IOException {
+    val endBlock = getBlockAddress(end);
+    if (getBlockAddress(stream.getFilePointer()) == endBlock) {
+      inflate(stream, getBlockOffset(end) - getBlockOffset(stream.getFilePointer()), output);
+      return;
+    }
+
+    // Rest of the current block, after which the stream points to the start of the next
+    inflate(stream, stream.available(), output);
+    val startBlock = getBlockAddress(stream.getFilePointer());
+
+    // Completes the block being compressed so copied blocks follow it
+    output.flush();
+    input.seek(startBlock);
+    long remaining = endBlock - startBlock;
+    while (remaining > 0) {
+      val n = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (n < 0) {
+        throw new EOFException("Unexpected end of BAM at " + (endBlock - remaining));
+      }
+
+      raw.write(buffer, 0, n);
+      remaining -= n;
+    }
+    copiedBytes += endBlock - startBlock;
+
+    // Virtual offset of the start of the block
+    stream.seek(endBlock << 16);
+    inflate(stream, getBlockOffset(end), output);
+  }
+
+  private void inflate(BlockCompressedInputStream stream, int length, OutputStream output) throws IOException {
+    int remaining = length;
+    while (remaining > 0) {
+      val n = stream.read(buffer, 0, Math.min(buffer.length, remaining));
+      if (n < 0) {
+        throw new EOFException("Unexpected end of BAM block");
+      }
+
+      output.write(buffer, 0, n);
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Returns a virtual offset at or before the first alignment that follows those starting inside {@code interval}.
+   */
+  private long getFollowingOffset(QueryInterval interval) {
+    val length = header.getSequence(interval.referenceIndex).getSequenceLength();
+    if (interval.end > 0 && interval.end < length) {
+      // Every alignment that starts after the interval overlaps the rest of the reference
+      val span = index.getSpanOverlapping(interval.referenceIndex, interval.end + 1, -1);
+      if (span != null && !span.isEmpty()) {
+        return span.getFirstOffset();
+      }
+    }
+
+    for (int i = interval.referenceIndex + 1; i < header.getSequenceDictionary().size(); i++) {
+      val span = index.getSpanOverlapping(i, 1, -1);
+      if (span != null && !span.isEmpty()) {
+        return span.getFirstOffset();
+      }
+    }
+
+    // Unplaced alignments, if any, follow the last linear bin. Without one the tail is decoded
+    return Math.max(index.getStartOfLastLinearBin(), 0);
+  }
+
+  private void writeHeader(OutputStream output) {
+    val text = new StringWriter();
+    new SAMTextHeaderCodec().encode(text, header);
+
+    val codec = new BinaryCodec(output);
+    codec.writeBytes(BAM_MAGIC);
+    codec.writeString(text.toString(), true, false);
+
+    val sequences = header.getSequenceDictionary().getSequences();
+    codec.writeInt(sequences.size());
+    for (val sequence : sequences) {
+      codec.writeString(sequence.getSequenceName(), true, true);
+      codec.writeInt(sequence.getSequenceLength());
+    }
+  }
+
+  /**
+   * Sorts and merges intervals that overlap or abut, where a non-positive end is the end of the reference.
+   */
+  private static List<QueryInterval> merge(QueryInterval[] intervals) {
+    val merged = Lists.<QueryInterval> newArrayList();
+    for (val interval : Ordering.natural().sortedCopy(Arrays.asList(intervals))) {
+      val last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      val adjacent = last != null && last.referenceIndex == interval.referenceIndex
+          && (last.end <= 0 || interval.start <= last.end + 1);
+      if (!adjacent) {
+        merged.add(interval);
+        continue;
+      }
+
+      val end = last.end <= 0 || interval.end <= 0 ? -1 : Math.max(last.end, interval.end);
+      merged.set(merged.size() - 1, new QueryInterval(last.referenceIndex, last.start, end));
+    }
+
+    return merged;
+  }
+
+  /**
+   * @return negative if {@code record} starts before {@code interval}, zero if inside it and positive if after it
+   */
+  private static int locate(SAMRecord record, QueryInterval interval) {
+    val referenceIndex = record.getReferenceIndex();
+    if (referenceIndex != interval.referenceIndex) {
+      return referenceIndex < 0 || referenceIndex > interval.referenceIndex ? 1 : -1;
+    }
+
+    val start = record.getAlignmentStart();
+    if (start < interval.start) {
+      return -1;
+    }
+
+    return interval.end > 0 && start > interval.end ? 1 : 0;
+  }
+
+  /**
+   * Matches the overlap test of an htsjdk query, which places unmapped alignments at their start.
+   */
+  private static boolean overlaps(SAMRecord record, QueryInterval interval) {
+    if (interval == null || record.getReferenceIndex() != interval.referenceIndex) {
+      return false;
+    }
+
+    val start = record.getAlignmentStart();
+    val end = record.getReadUnmappedFlag() ? start : record.getAlignmentEnd();
+
+    return end >= interval.start && (interval.end <= 0 || start <= interval.end);
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.slicing;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.CloseableIterator;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Iterates over the alignments of sorted, merged query intervals in coordinate order while querying contiguous chunks
+ * of them concurrently, each through a reader of its own.
+ * <p>
+ * Chunks are queried in order and buffer a bounded number of alignments until they are reached, so memory use does not
+ * depend on the size of the slice. Alignments that overlap the last interval of the preceding chunk are only returned
+ * by that chunk.
+ */
+@Slf4j
+public class ParallelQueryIterator implements CloseableIterator<SAMRecord> {
+
+  /**
+   * Constants.
+   */
+  private static final int CHUNKS_PER_THREAD = 4; // Smaller chunks balance uneven regions across workers
+  private static final int CHUNK_CAPACITY = 1000; // Alignments buffered per chunk ahead of the consumer
+  private static final long CLOSE_TIMEOUT_SECONDS = 10;
+  private static final Object END = new Object();
+
+  /**
+   * Configuration.
+   */
+  private final boolean containedOnly;
+
+  /**
+   * Dependencies.
+   */
+  private final Function<QueryInterval[], CloseableIterator<SAMRecord>> query; // Closing the result closes its reader
+  private final ExecutorService executor;
+
+  /**
+   * State.
+   */
+  private final Deque<Chunk> chunks = new ArrayDeque<>(); // Pending, in output order
+  private SAMRecord next;
+
+  public ParallelQueryIterator(@NonNull Function<QueryInterval[], CloseableIterator<SAMRecord>> query,
+      @NonNull QueryInterval[] intervals, boolean containedOnly, int threads) {
+    this.query = query;
+    this.containedOnly = containedOnly;
+    this.executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("query-%s").setDaemon(true).build());
+
+    val chunkCount = Math.min(intervals.length, threads * CHUNKS_PER_THREAD);
+    QueryInterval previous = null;
+    for (int i = 0; i < chunkCount; i++) {
+      val from = (int) ((long) intervals.length * i / chunkCount);
+      val to = (int) ((long) intervals.length * (i + 1) / chunkCount);
+      val chunk = new Chunk(Arrays.copyOfRange(intervals, from, to), previous);
+      chunks.add(chunk);
+      executor.execute(chunk);
+
+      previous = intervals[to - 1];
+    }
+
+    // Workers exit once every chunk is queried
+    executor.shutdown();
+    log.debug("Querying {} intervals in {} chunks with {} threads", intervals.length, chunkCount, threads);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      next = advance();
+    }
+
+    return next != null;
+  }
+
+  @Override
+  public SAMRecord next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    val record = next;
+    next = null;
+
+    return record;
+  }
+
+  @Override
+  @SneakyThrows
+  public void close() {
+    executor.shutdownNow();
+    if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      log.warn("Timed out waiting for query workers to stop");
+    }
+  }
+
+  @SneakyThrows
+  private SAMRecord advance() {
+    while (!chunks.isEmpty()) {
+      val chunk = chunks.peek();
+      val item = chunk.queue.take();
+      if (item != END) {
+        return (SAMRecord) item;
+      }
+
+      chunks.remove();
+      if (chunk.error != null) {
+        close();
+        throw Throwables.propagate(chunk.error);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * A contiguous run of intervals queried on a worker, together with the last interval of the preceding chunk whose
+   * overlapping alignments it skips.
+   */
+  private class Chunk implements Runnable {
+
+    private final QueryInterval[] intervals;
+    private final QueryInterval previous;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(CHUNK_CAPACITY);
+    private volatile Throwable error;
+
+    Chunk(QueryInterval[] intervals, QueryInterval previous) {
+      this.intervals = intervals;
+      this.previous = previous;
+    }
+
+    @Override
+    public void run() {
+      try {
+        query();
+      } catch (InterruptedException e) {
+        // Closed
+        return;
+      } catch (Throwable t) {
+        error = t;
+      }
+
+      try {
+        queue.put(END);
+      } catch (InterruptedException e) {
+        // Closed
+      }
+    }
+
+    private void query() throws InterruptedException {
+      try (val iterator = query.apply(intervals)) {
+        while (iterator.hasNext()) {
+          val record = iterator.next();
+          if (!isQueriedBefore(record)) {
+            queue.put(record);
+          }
+        }
+      }
+    }
+
+    /**
+     * Intervals are merged and sorted, so an alignment that also overlaps an interval of the preceding chunk must start
+     * at or before the end of its last one.
+     */
+    private boolean isQueriedBefore(SAMRecord record) {
+      if (containedOnly || previous == null || record.getReferenceIndex() != previous.referenceIndex) {
+        return false;
+      }
+
+      val end = previous.end <= 0 ? Integer.MAX_VALUE : previous.end;
+      return record.getAlignmentStart() <= end;
+    }
+
+  }
+
+}
@@ -17,23 +17,32 @@
  */
 package org.icgc.dcc.storage.client.slicing;
 
+import static htsjdk.samtools.util.BlockCompressedFilePointerUtil.getBlockAddress;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang.StringUtils;
 import org.icgc.dcc.storage.client.command.ViewCommand.OutputFormat;
 import org.icgc.dcc.storage.client.metadata.Entity;
+import org.icgc.dcc.storage.client.transport.RangeCoalescingSeekableStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 
+import htsjdk.samtools.MergingSamRecordIterator;
 import htsjdk.samtools.QueryInterval;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMFileHeader.SortOrder;
@@ -42,10 +51,13 @@ import htsjdk.samtools.SAMFileWriterFactory;
 import htsjdk.samtools.SAMProgramRecord;
 import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamFileHeaderMerger;
 import htsjdk.samtools.SamInputResource;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
 import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.DelegatingIterator;
 import htsjdk.samtools.util.RuntimeIOException;
 import lombok.Cleanup;
 import lombok.NonNull;
@@ -59,6 +71,12 @@ public class SamFileBuilder {
   // arbitrary limit - actual max for file name (not including path) is probably 255
   public final static int MAX_FILENAME_LENGTH = 128;
 
+  // compressed size limit of a BGZF block
+  private final static int MAX_BLOCK_SIZE = 64 * 1024;
+
+  // alignments looked ahead at for the read groups of a trimmed header before streaming the rest
+  public final static int MAX_BUFFERED_ALIGNMENTS = 10000;
+
   /**
    * Options
    */
@@ -70,6 +88,7 @@ public class SamFileBuilder {
   private boolean outputIndex = false;
   private boolean stdout = false;
   private File bedFile;
+  private int threads = 1;
 
   /**
    * Informational - for @PG record
@@ -86,7 +105,8 @@ public class SamFileBuilder {
    * Intermediate Objects
    */
   private Entity entity;
-  private SamInputResource samInputResource;
+  private SamInput samInput;
+  private Supplier<SamInput> samInputFactory;
 
   private boolean queryCompiledFlag = false;
 
@@ -136,7 +156,25 @@ public class SamFileBuilder {
   }
 
   public SamFileBuilder samInput(SamInputResource resource) {
-    samInputResource = resource;
+    samInput = SamInput.of(resource);
+    return this;
+  }
+
+  public SamFileBuilder samInput(SamInput input) {
+    samInput = input;
+    return this;
+  }
+
+  /**
+   * Supplies a new resource for the same input to each reader querying regions concurrently.
+   */
+  public SamFileBuilder samInputFactory(Supplier<SamInput> factory) {
+    samInputFactory = factory;
+    return this;
+  }
+
+  public SamFileBuilder threads(int count) {
+    threads = count;
     return this;
   }
 
@@ -174,16 +212,20 @@ public class SamFileBuilder {
       throw new IllegalStateException("Missing entity description");
     }
 
-    if (samInputResource == null) {
+    if (samInput == null) {
       throw new IllegalStateException("Missing Input Resource");
     }
   }
 
-  @SneakyThrows
   protected SamReader createSamReader() {
+    return createSamReader(samInput.getResource());
+  }
+
+  @SneakyThrows
+  private SamReader createSamReader(SamInputResource resource) {
     try {
       // Need to use non-STRICT due to header date formats in the wild.
-      return SamReaderFactory.makeDefault().validationStringency(ValidationStringency.LENIENT).open(samInputResource);
+      return SamReaderFactory.makeDefault().validationStringency(ValidationStringency.LENIENT).open(resource);
     } catch (RuntimeIOException e) {
       log.error("Error opening SamReader: ", e);
       val rootCause = Throwables.getRootCause(e);
@@ -248,6 +290,30 @@ public class SamFileBuilder {
     return createSamFileWriter(outputHeader, fileName);
   }
 
+  /**
+   * Constructs writer for output of a SAM/BAM file merged from several sources.
+   * @param fileName Output file name
+   * @param mergedHeader Header reconciled from the headers of all sources
+   * @return Writer for output
+   */
+  private SAMFileWriter prepareMergedOutput(@NonNull String fileName, @NonNull SAMFileHeader mergedHeader) {
+    if (stdout) {
+      session.info("Preparing to write merged output to stdout");
+    } else {
+      session.info("Preparing to write merged output to {}", fileName);
+    }
+
+    if (useOriginalHeader) {
+      return createSamFileWriter(mergedHeader, fileName);
+    }
+
+    val outputHeader = mergedHeader.clone();
+    outputHeader.setProgramRecords(updateProgramRecords(mergedHeader.getProgramRecords()));
+    outputHeader.setSortOrder(SortOrder.coordinate);
+
+    return createSamFileWriter(outputHeader, fileName);
+  }
+
   /**
    * Appends output path to output file name.
    * @param fileName File name
@@ -278,28 +344,90 @@ public class SamFileBuilder {
   }
 
   /**
-   * Outputs SAM/BAM file containing only the supplied list of alignments. This is the "trimmed" format of output. By
-   * default, the header's Reference Sequence Dictionary will only contain entries that match alignments in the file.
+   * Outputs SAM/BAM file containing only the alignments that satisfy the supplied intervals. This is the "trimmed"
+   * format of output. Alignments are written as they are read, so memory use does not depend on the size of the slice.
+   * <p>
+   * Unless the original header is used, the header only contains the read groups of the alignments if there are at
+   * most {@link #MAX_BUFFERED_ALIGNMENTS} of them. Larger slices keep every read group of the source. BAM output with
+   * the original header is copied as compressed blocks where possible, see {@link #isBlockCopying}.
    * @param reader Reader initialized with source SAM/BAM file
    * @param entity Contains the source SAM/BAM file name
    * @param queries Ordered list of query strings (used to construct output file name)
-   * @param alignments Ordered list of alignments to write to output SAM/BAM file
+   * @param intervals Sorted list of intervals to write alignments of to output SAM/BAM file
    */
   @SneakyThrows
-  private void createTrimmed(SamReader reader, Entity entity, List<String> queries, List<SAMRecord> alignments) {
+  private void createTrimmed(SamReader reader, Entity entity, List<String> queries, QueryInterval[] intervals) {
     validate();
 
     val outputFileName = bedFile == null ? generateOutputFileName(entity, queries) : generateOutputFileName(entity);
 
+    if (isBlockCopying(reader, samInput)) {
+      createBlockCopied(reader, outputFileName, intervals);
+      return;
+    }
+
     // Ok - now we can finally write things out
     val sourceHeader = reader.getFileHeader();
 
-    val readGroups = Sets.<SAMReadGroupRecord> newHashSet();
-    alignments.stream().forEach(e -> readGroups.add(e.getReadGroup()));
+    @Cleanup
+    val iterator = query(reader, samInput, intervals);
+
+    // The header is written first, so look ahead for the read groups of small slices
+    val buffered = Lists.<SAMRecord> newArrayList();
+    val lookahead = useOriginalHeader ? 0 : MAX_BUFFERED_ALIGNMENTS;
+    while (buffered.size() < lookahead && iterator.hasNext()) {
+      buffered.add(iterator.next());
+    }
+
+    val readGroups = iterator.hasNext() ?
+        Sets.newHashSet(sourceHeader.getReadGroups()) :
+        buffered.stream().map(SAMRecord::getReadGroup).filter(Objects::nonNull).collect(toSet());
 
     @Cleanup
     val writer = prepareOutput(outputFileName, sourceHeader, readGroups);
-    alignments.stream().forEach(e -> writer.addAlignment(e));
+    buffered.forEach(writer::addAlignment);
+
+    long count = buffered.size();
+    buffered.clear();
+    while (iterator.hasNext()) {
+      writer.addAlignment(iterator.next());
+      count++;
+    }
+
+    session.info("    Query returned {} alignments (entirely contained = {})", count, containedOnly);
+  }
+
+  /**
+   * Outputs the alignments that satisfy the supplied intervals by copying the compressed blocks of the source BAM file,
+   * so that only the alignments at the edges of each interval are decoded and re-encoded.
+   * @param reader Reader initialized with source BAM file
+   * @param fileName Output file name
+   * @param intervals Sorted list of intervals to write alignments of to output BAM file
+   */
+  @SneakyThrows
+  private void createBlockCopied(SamReader reader, String fileName, QueryInterval[] intervals) {
+    session.info("Preparing to write to {} using original header, copying compressed blocks", fileName);
+    prefetch(reader, samInput, intervals);
+
+    val outFile = new File(fileName);
+    if (outFile.exists()) {
+      outFile.delete();
+    }
+
+    val writer = new BlockCopyingSliceWriter(reader.getFileHeader(), reader.indexing().getIndex(), samInput.getStream());
+    writer.write(intervals, outFile);
+
+    session.info("    Query copied {} compressed bytes and re-encoded {} alignments at slice edges", writer.getCopiedBytes(),
+        writer.getEncodedCount());
+  }
+
+  /**
+   * Compressed blocks can be copied from BAM to BAM with the original header, unless alignments have to be filtered by
+   * containment or decoded to build an index.
+   */
+  private boolean isBlockCopying(SamReader reader, SamInput input) {
+    return outputFormat == OutputFormat.BAM && useOriginalHeader && !containedOnly && !stdout && !outputIndex
+        && input.getStream() != null && reader.type() == SamReader.Type.BAM_TYPE && reader.hasIndex();
   }
 
   /**
@@ -337,25 +465,80 @@ public class SamFileBuilder {
   }
 
   /**
-   * Temporarily changed to public
-   * 
-   * Returns list of SAMRecord alignments that satisfy the specified list of queries. Refers to the <b>containedOnly</b>
-   * member variable.
+   * Returns the alignments that satisfy the specified intervals in coordinate order. Multiple intervals are split
+   * across {@link #threads} readers of their own when an input factory is available.
    * @param reader Instance of the SAM Reader open to source SAM/BAM file
+   * @param input Input the reader was opened with
    * @param intervals Sorted list of queries to run
-   * @return Ordered list of alignment records that satisfy the specified queries
+   * @return Iterator over the alignments, which must be closed
    */
-  public List<SAMRecord> doQuery(SamReader reader, QueryInterval[] intervals) {
-    val alignments = Lists.<SAMRecord> newArrayList();
-    val iterator = reader.query(intervals, containedOnly);
-    while (iterator.hasNext()) {
-      val record = iterator.next();
-      alignments.add(record);
+  private CloseableIterator<SAMRecord> query(SamReader reader, SamInput input, QueryInterval[] intervals) {
+    if (threads <= 1 || samInputFactory == null || intervals.length <= 1) {
+      prefetch(reader, input, intervals);
+      return reader.query(intervals, containedOnly);
     }
-    iterator.close();
 
-    session.info("    Query returned {} alignments (entirely contained = {})", alignments.size(), containedOnly);
-    return alignments;
+    session.info("  Querying {} slices with {} threads", intervals.length, threads);
+    return new ParallelQueryIterator(this::query, intervals, containedOnly, threads);
+  }
+
+  /**
+   * Queries the intervals with a reader of their own, which is closed along with the returned iterator.
+   */
+  private CloseableIterator<SAMRecord> query(QueryInterval[] intervals) {
+    val input = samInputFactory.get();
+    val reader = createSamReader(input.getResource());
+    prefetch(reader, input, intervals);
+
+    return new DelegatingIterator<SAMRecord>(reader.query(intervals, containedOnly)) {
+
+      @Override
+      @SneakyThrows
+      public void close() {
+        try {
+          super.close();
+        } finally {
+          reader.close();
+        }
+      }
+
+    };
+  }
+
+  /**
+   * Plans the compressed byte ranges of the index chunks that a query of {@code intervals} will read, so they can be
+   * fetched with few requests ahead of the reader.
+   */
+  private void prefetch(SamReader reader, SamInput input, QueryInterval[] intervals) {
+    prefetch(reader, input, intervals, RangeCoalescingSeekableStream.MAX_PREFETCH_SIZE);
+  }
+
+  /**
+   * Plans the index chunks of a query like {@link #prefetch(SamReader, SamInput, QueryInterval[])}, holding at most
+   * about {@code maxSize} bytes of them in memory.
+   */
+  private void prefetch(SamReader reader, SamInput input, QueryInterval[] intervals, long maxSize) {
+    if (!(input.getStream() instanceof RangeCoalescingSeekableStream) || !reader.hasIndex()) {
+      return;
+    }
+
+    val index = reader.indexing().getIndex();
+    val ranges = Lists.<Range<Long>> newArrayList();
+    for (val interval : intervals) {
+      val span = index.getSpanOverlapping(interval.referenceIndex, interval.start, interval.end);
+      if (span == null) {
+        continue;
+      }
+
+      for (val chunk : span.getChunks()) {
+        // The block a chunk ends in is read in full
+        val start = getBlockAddress(chunk.getChunkStart());
+        val end = getBlockAddress(chunk.getChunkEnd()) + MAX_BLOCK_SIZE;
+        ranges.add(Range.closedOpen(start, end));
+      }
+    }
+
+    ((RangeCoalescingSeekableStream) input.getStream()).prefetch(ranges, maxSize);
   }
 
   /**
@@ -394,7 +577,7 @@ public class SamFileBuilder {
   private int getIcgcProgramRecordCount(List<SAMProgramRecord> pgRecords) {
     int count = 0;
     for (val pg : pgRecords) {
-      if (pg.getId().substring(0, programId.length() - 1).equalsIgnoreCase(programId)) {
+      if (pg.getId().regionMatches(true, 0, programId, 0, programId.length())) {
         count += 1;
       }
     }
@@ -490,20 +673,23 @@ public class SamFileBuilder {
    * @return output file name
    */
   String generateOutputFileName(@NonNull Entity entity, List<String> queries) {
-    val bob = new StringBuilder();
-    boolean firstValue = true;
-    for (val q : queries) {
-      if (!firstValue) {
-        bob.append("__");
-      }
-      bob.append(encodeQuery(q));
-      firstValue = false;
-    }
     val fullName =
-        handleMaxFilenameLength(injectFileNameModifier(entity, bob.toString()), getExtension(getSourceType(entity)));
+        handleMaxFilenameLength(injectFileNameModifier(entity, encodeQueries(queries)),
+            getExtension(getSourceType(entity)));
     return addOutputPath(fullName);
   }
 
+  /**
+   * Construct output file name of merged output, which has no single source file name to amend.
+   * @param queries - ordered list of queries to embed in output file name
+   * @return output file name
+   */
+  String generateMergedOutputFileName(List<String> queries) {
+    val modifier = bedFile == null ? encodeQueries(queries) : bedFile.getName();
+    val extension = getExtension(outputFormat);
+    return addOutputPath(handleMaxFilenameLength(String.format("merged.%s%s", modifier, extension), extension));
+  }
+
   /**
    * Construct output file name. Embeds indicator that this is only the header; no alignments included in output.
    * @param entity - provides base filename to amend
@@ -534,6 +720,24 @@ public class SamFileBuilder {
     return String.format("%s%s%s", left, "~", extension);
   }
 
+  /**
+   * Joins encoded queries with double underscores.
+   * @param queries
+   * @return string of all queries
+   */
+  private String encodeQueries(List<String> queries) {
+    val bob = new StringBuilder();
+    boolean firstValue = true;
+    for (val q : queries) {
+      if (!firstValue) {
+        bob.append("__");
+      }
+      bob.append(encodeQuery(q));
+      firstValue = false;
+    }
+    return bob.toString();
+  }
+
   /**
    * Replaces colons with underscores.
    * @param query
@@ -557,19 +761,55 @@ public class SamFileBuilder {
     val reader = createSamReader();
     QueryInterval[] intervals = normalizeQueries(reader, query);
 
-    val alignments = doQuery(reader, intervals);
-    createTrimmed(reader, entity, query, alignments);
+    createTrimmed(reader, entity, query, intervals);
   }
 
+  /**
+   * Outputs a single SAM/BAM file of the alignments of all {@code inputs} that satisfy the queries, merged in
+   * coordinate order. Read group and program ids that collide across inputs are made unique.
+   * <p>
+   * Every input keeps an open reader with its decompression buffers and the next alignment, so memory use grows with
+   * the number of inputs rather than the size of the slices. The inputs share a single prefetch budget.
+   * @param inputs Coordinate sorted and indexed SAM/BAM files
+   */
   @SneakyThrows
-  public void buildMerged() {
-    session.info("----- Constructing Merged Output");
-    @Cleanup
-    val reader = createSamReader();
-    QueryInterval[] intervals = normalizeQueries(reader, query);
+  public void buildMerged(@NonNull List<SamInput> inputs) {
+    session.info("----- Constructing Merged Output of {} inputs", inputs.size());
+    val readers = Lists.<SamReader> newArrayList();
+    try {
+      for (val input : inputs) {
+        readers.add(createSamReader(input.getResource()));
+      }
 
-    for (QueryInterval q : intervals) {
-      doQuery(reader, Collections.singletonList(q).toArray(new QueryInterval[1]));
+      val headers = readers.stream().map(SamReader::getFileHeader).collect(toList());
+      val merger = new SamFileHeaderMerger(SortOrder.coordinate, headers, true);
+      val iterators = Maps.<SamReader, CloseableIterator<SAMRecord>> newLinkedHashMap();
+      val prefetchSize = RangeCoalescingSeekableStream.MAX_PREFETCH_SIZE / Math.max(readers.size(), 1);
+      for (int i = 0; i < readers.size(); i++) {
+        // Reference indexes differ between inputs
+        val reader = readers.get(i);
+        val intervals = normalizeQueries(reader, query);
+        prefetch(reader, inputs.get(i), intervals, prefetchSize);
+        iterators.put(reader, reader.query(intervals, containedOnly));
+      }
+
+      @Cleanup
+      val iterator = new MergingSamRecordIterator(merger, iterators, true);
+
+      @Cleanup
+      val writer = prepareMergedOutput(generateMergedOutputFileName(query), merger.getMergedHeader());
+
+      long count = 0;
+      while (iterator.hasNext()) {
+        writer.addAlignment(iterator.next());
+        count++;
+      }
+
+      session.info("    Merged query returned {} alignments (entirely contained = {})", count, containedOnly);
+    } finally {
+      for (val reader : readers) {
+        reader.close();
+      }
     }
   }
 
@@ -577,8 +817,8 @@ public class SamFileBuilder {
   public String toString() {
     return "SamFileBuilder [containedOnly=" + containedOnly + ", useOriginalHeader=" + useOriginalHeader
         + ", outputFormat=" + outputFormat + ", query=" + query + ", outputDir=" + outputDir + ", outputIndex="
-        + outputIndex + ", bedFile=" + bedFile + ", session=" + session + ", entity=" + entity + ", samInputResource="
-        + samInputResource + ", queryCompiledFlag=" + queryCompiledFlag + "]";
+        + outputIndex + ", bedFile=" + bedFile + ", threads=" + threads + ", session=" + session + ", entity=" + entity + ", samInput="
+        + samInput + ", queryCompiledFlag=" + queryCompiledFlag + "]";
   }
 
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.slicing;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.icgc.dcc.storage.client.transport.RangeCoalescingSeekableStream.readRange;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.fs.cache.DiskStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import htsjdk.samtools.seekablestream.ByteArraySeekableStream;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent, size bounded LRU cache of the indexes of the BAM files that are sliced and of the leading bytes of the
+ * BAM files that hold their header, so repeated slicing of the same objects only transfers alignments.
+ * <p>
+ * Entries are stored as {@code <dir>/<object id>/<size>-<md5>.<kind>}, so an entry is only found while the object is
+ * unchanged. Objects without an MD5 are never stored, since a changed object of the same size could not be told apart.
+ * Downloaded indexes must match the size and MD5 of their specification before they are stored. Entries are kept in a
+ * {@link DiskStore} that is opened on first use. A capacity of {@code 0} disables storage.
+ */
+@Slf4j
+@Component
+public class SamResourceCache {
+
+  /**
+   * Constants.
+   */
+  private static final String INDEX_EXTENSION = ".bai";
+  private static final String HEADER_EXTENSION = ".header";
+  private static final int HEADER_FETCH_SIZE = 256 * 1024; // Initial range requested for a header, doubled until it fits
+  private static final int MAX_HEADER_SIZE = 64 * 1024 * 1024;
+  private static final int MAX_BLOCK_SIZE = 64 * 1024; // Compressed size of a BGZF block
+  private static final byte[] BAM_MAGIC = "BAM\1".getBytes(US_ASCII);
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final Path dir;
+  @Getter
+  private final long capacity;
+
+  /**
+   * State.
+   */
+  private DiskStore store;
+
+  @Autowired
+  public SamResourceCache(@Value("${view.cache.dir}") @NonNull File dir, @Value("${view.cache.size}") long capacityMb) {
+    this.dir = dir.toPath();
+    this.capacity = capacityMb * 1024 * 1024;
+  }
+
+  /**
+   * @return the content of the index object described by {@code spec}
+   */
+  public byte[] getIndex(@NonNull String objectId, @NonNull ObjectSpecification spec) throws IOException {
+    val path = getPath(objectId, spec, INDEX_EXTENSION);
+    val cached = read(path);
+    if (cached != null && cached.length == spec.getObjectSize()) {
+      return cached;
+    }
+
+    val index = readRange(getUrl(spec), 0, spec.getObjectSize());
+    validate(objectId, spec, index);
+    write(path, index);
+
+    return index;
+  }
+
+  /**
+   * @return the leading bytes of the BAM object described by {@code spec} up to and including the block of its first
+   * alignment, or none if it is not a BAM
+   */
+  public byte[] getHeader(@NonNull String objectId, @NonNull ObjectSpecification spec) throws IOException {
+    val path = getPath(objectId, spec, HEADER_EXTENSION);
+    val cached = read(path);
+    if (cached != null && cached.length <= spec.getObjectSize()) {
+      return cached;
+    }
+
+    val header = fetchHeader(getUrl(spec), spec.getObjectSize());
+    if (header.length > 0) {
+      write(path, header);
+    }
+
+    return header;
+  }
+
+  synchronized public long getSize() {
+    return store == null ? 0 : store.getSize();
+  }
+
+  /**
+   * @return the path of the entry of the object, or {@code null} if the object has no MD5 to version it by
+   */
+  private Path getPath(String objectId, ObjectSpecification spec, String extension) {
+    if (spec.getObjectMd5() == null) {
+      return null;
+    }
+
+    val version = spec.getObjectSize() + "-" + spec.getObjectMd5();
+    return dir.resolve(objectId).resolve(version + extension);
+  }
+
+  private static byte[] fetchHeader(URL url, long size) throws IOException {
+    long length = Math.min(HEADER_FETCH_SIZE, size);
+    while (true) {
+      val bytes = readRange(url, 0, length);
+      if (!isBam(bytes)) {
+        return new byte[0];
+      }
+
+      val block = getFirstAlignmentBlock(bytes);
+      if (block >= 0) {
+        return Arrays.copyOf(bytes, (int) Math.min(bytes.length, block + MAX_BLOCK_SIZE));
+      }
+
+      if (length >= size || length >= MAX_HEADER_SIZE) {
+        // Leave it to the reader
+        log.warn("Could not locate the end of the header of '{}' in its first {} bytes", url, length);
+        return new byte[0];
+      }
+
+      length = Math.min(length * 2, size);
+    }
+  }
+
+  private static boolean isBam(byte[] bytes) {
+    try {
+      if (!BlockCompressedInputStream.isValidFile(new ByteArrayInputStream(bytes))) {
+        return false;
+      }
+
+      @Cleanup
+      val in = new BlockCompressedInputStream(new ByteArraySeekableStream(bytes));
+      val magic = new byte[BAM_MAGIC.length];
+      ByteStreams.readFully(in, magic);
+
+      return Arrays.equals(magic, BAM_MAGIC);
+    } catch (IOException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return the compressed offset of the block holding the first alignment, or {@code -1} if {@code bytes} ends before
+   * the header does
+   */
+  private static long getFirstAlignmentBlock(byte[] bytes) {
+    try {
+      @Cleanup
+      val in = new BlockCompressedInputStream(new ByteArraySeekableStream(bytes));
+      val codec = new BinaryCodec(in);
+      ByteStreams.skipFully(in, BAM_MAGIC.length);
+      ByteStreams.skipFully(in, codec.readInt()); // Text
+
+      val referenceCount = codec.readInt();
+      for (int i = 0; i < referenceCount; i++) {
+        ByteStreams.skipFully(in, codec.readInt()); // Name
+        codec.readInt(); // Length
+      }
+
+      return BlockCompressedInputStream.getFileBlock(in.getFilePointer());
+    } catch (IOException | RuntimeException e) {
+      // Truncated
+      return -1;
+    }
+  }
+
+  @SneakyThrows
+  private static URL getUrl(ObjectSpecification spec) {
+    return new URL(getOnlyElement(spec.getParts()).getUrl());
+  }
+
+  private static void validate(String objectId, ObjectSpecification spec, byte[] bytes) throws IOException {
+    if (bytes.length != spec.getObjectSize()) {
+      throw new IOException(
+          String.format("Size of '%s' was %s but was expecting %s", objectId, bytes.length, spec.getObjectSize()));
+    }
+
+    val expectedMd5 = spec.getObjectMd5();
+    if (expectedMd5 != null) {
+      val md5 = Hashing.md5().hashBytes(bytes).toString();
+      if (!md5.equalsIgnoreCase(expectedMd5)) {
+        throw new IOException(String.format("MD5 of '%s' was %s but was expecting %s", objectId, md5, expectedMd5));
+      }
+    }
+  }
+
+  private byte[] read(Path path) throws IOException {
+    val store = getStore();
+    if (path == null || store == null) {
+      return null;
+    }
+
+    try {
+      val bytes = Files.readAllBytes(path);
+      store.touch(path);
+      log.debug("Read cached '{}'", path);
+
+      return bytes;
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Stores {@code bytes} in place of other versions of the object. Failures are logged since the cache is optional.
+   */
+  private void write(Path path, byte[] bytes) {
+    if (path == null) {
+      return;
+    }
+
+    try {
+      val store = getStore();
+      if (store == null) {
+        return;
+      }
+
+      store.write(path, ByteBuffer.wrap(bytes));
+      removeVersions(store, path);
+    } catch (IOException e) {
+      log.warn("Failed to cache '{}': {}", path, e.getMessage());
+    }
+  }
+
+  /**
+   * Removes the other versions of the same kind of entry.
+   */
+  @SneakyThrows
+  private static void removeVersions(DiskStore store, Path path) {
+    val extension = path.getFileName().toString().substring(path.getFileName().toString().lastIndexOf('.'));
+
+    @Cleanup
+    val paths = Files.list(path.getParent());
+    paths.filter(other -> !other.equals(path) && other.getFileName().toString().endsWith(extension))
+        .forEach(store::remove);
+  }
+
+  /**
+   * Opens the store on first use, so that it is only indexed when slicing.
+   * @return the store, or {@code null} if disabled
+   */
+  synchronized private DiskStore getStore() throws IOException {
+    if (capacity <= 0) {
+      return null;
+    }
+
+    if (store == null) {
+      store = new DiskStore(dir, capacity);
+    }
+
+    return store;
+  }
+
+}
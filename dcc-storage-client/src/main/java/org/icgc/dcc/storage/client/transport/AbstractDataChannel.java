@@ -21,6 +21,7 @@ package org.icgc.dcc.storage.client.transport;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.icgc.dcc.storage.client.metric.HashTimed;
 import org.icgc.dcc.storage.core.model.DataChannel;
 
 import com.google.common.io.ByteStreams;
@@ -32,7 +33,12 @@ import lombok.extern.slf4j.Slf4j;
  * A representation of a channel for data tranfser.
  */
 @Slf4j
-public abstract class AbstractDataChannel implements DataChannel {
+public abstract class AbstractDataChannel implements DataChannel, HashTimed {
+
+  /**
+   * State.
+   */
+  protected long hashNanos; // Of the last write
 
   @Override
   public boolean verifyMd5(String expectedMd5) throws IOException {
@@ -52,4 +58,10 @@ public abstract class AbstractDataChannel implements DataChannel {
   public void readFrom(InputStream is) throws IOException {
     throw new AssertionError("Not implemented");
   }
+
+  @Override
+  public long getHashNanos() {
+    return hashNanos;
+  }
+
 }
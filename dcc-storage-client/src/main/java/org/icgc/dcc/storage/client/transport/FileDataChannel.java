@@ -27,10 +27,11 @@ import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import org.icgc.dcc.storage.client.metric.TimedHashingOutputStream;
+
 import lombok.AllArgsConstructor;
 
 import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingOutputStream;
 
 /**
  * A data Channel based on {@link java.io.File File}
@@ -50,11 +51,12 @@ public class FileDataChannel extends AbstractDataChannel {
   @Override
   public void writeTo(OutputStream os) throws IOException {
     try (FileInputStream is = new FileInputStream(file)) {
-      HashingOutputStream hos = new HashingOutputStream(Hashing.md5(), os);
+      TimedHashingOutputStream hos = new TimedHashingOutputStream(Hashing.md5(), os);
       try (WritableByteChannel toChannel = Channels.newChannel(hos)) {
         is.getChannel().transferTo(offset, length, toChannel);
       }
       md5 = hos.hash().toString();
+      hashNanos = hos.getHashNanos();
     }
   }
 
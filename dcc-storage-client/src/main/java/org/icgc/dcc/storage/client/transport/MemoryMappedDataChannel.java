@@ -30,9 +30,9 @@ import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.icgc.dcc.storage.client.metric.TimedHashingOutputStream;
 
 import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingOutputStream;
 
 /**
  * Channel based on {@link java.nio.MappedByteBuffer memory mapped buffer}
@@ -64,10 +64,11 @@ public class MemoryMappedDataChannel extends AbstractDataChannel {
    */
   @Override
   public void writeTo(OutputStream os) throws IOException {
-    try (val hos = new HashingOutputStream(Hashing.md5(), os)) {
+    try (val hos = new TimedHashingOutputStream(Hashing.md5(), os)) {
       val writeChannel = Channels.newChannel(hos);
       writeChannel.write(buffer);
       md5 = hos.hash().toString();
+      hashNanos = hos.getHashNanos();
     }
   }
 
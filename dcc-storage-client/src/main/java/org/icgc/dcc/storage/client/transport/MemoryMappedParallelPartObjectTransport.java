@@ -101,6 +101,7 @@ public class MemoryMappedParallelPartObjectTransport extends ParallelPartObjectT
         // log.debug("Pausing before creating new Callable task");
         // TimeUnit.SECONDS.sleep(3);
         log.debug("Submitting new Callable task");
+        progress.queuePart(part);
         // progress.incrementByteRead(part.getPartSize());
         results.add(executor.submit(new Callable<Part>() {
 
@@ -108,7 +109,8 @@ public class MemoryMappedParallelPartObjectTransport extends ParallelPartObjectT
           public Part call() throws Exception {
             try {
               DataChannel channel =
-                  new ProgressDataChannel(new MemoryMappedDataChannel(buffer, 0, part.getPartSize(), null), progress);
+                  new ProgressDataChannel(new MemoryMappedDataChannel(buffer, 0, part.getPartSize(), null), progress,
+                      part);
               if (part.isCompleted()) {
                 log.info("Checksumming part: {}", part);
                 if (checksum && isCorrupted(channel, part, file)) {
@@ -197,6 +199,7 @@ public class MemoryMappedParallelPartObjectTransport extends ParallelPartObjectT
       val currOffset = offset;
 
       log.debug("Submitting part # '{}' download.", part.getPartNumber());
+      progress.queuePart(part);
       results.push(downloadExecutorService.submit(new Callable<MemoryMappedDataChannel>() {
 
         @Override
@@ -210,7 +213,7 @@ public class MemoryMappedParallelPartObjectTransport extends ParallelPartObjectT
               val buffer = channel.map(FileChannel.MapMode.READ_WRITE, currOffset, part.getPartSize());
               log.debug("Created memory buffer of capacity {}", buffer.capacity());
               val memoryChannel = new MemoryMappedDataChannel(buffer, part.getOffset(), part.getPartSize(), null);
-              val progressChannel = new ProgressDataChannel(memoryChannel, progress);
+              val progressChannel = new ProgressDataChannel(memoryChannel, progress, part);
               try {
                 log.debug("Checking if part #{} is downloaded", part.getPartNumber());
                 if (part.isCompleted()) {
@@ -97,12 +97,14 @@ public class ParallelPartObjectTransport implements Transport {
     ImmutableList.Builder<Future<Part>> results = ImmutableList.builder();
     progress.start();
     for (final Part part : parts) {
+      progress.queuePart(part);
       results.add(executor.submit(new Callable<Part>() {
 
         @Override
         public Part call() throws Exception {
           DataChannel channel =
-              new ProgressDataChannel(new FileDataChannel(file, part.getOffset(), part.getPartSize(), null), progress);
+              new ProgressDataChannel(new FileDataChannel(file, part.getOffset(), part.getPartSize(), null), progress,
+                  part);
           if (part.isCompleted()) {
             if (isCorrupted(channel, part, file)) {
               progress.startTransfer();
@@ -149,6 +151,7 @@ public class ParallelPartObjectTransport implements Transport {
 
     progress.start();
     for (final Part part : parts) {
+      progress.queuePart(part);
       results.add(executor.submit(new Callable<Part>() {
 
         @Override
@@ -156,7 +159,7 @@ public class ParallelPartObjectTransport implements Transport {
           DataChannel channel =
               new ProgressDataChannel(
                   new FileDataChannel(getPartFile(outputDir, part), part.getOffset(), part.getPartSize(), null),
-                  progress);
+                  progress, part);
 
           if (part.isCompleted()) {
             if (checksum && isCorrupted(channel, part, outputDir)) {
@@ -23,9 +23,9 @@ import java.io.PipedInputStream;
 
 import org.apache.commons.compress.utils.IOUtils;
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.icgc.dcc.storage.client.metric.TimedHashingOutputStream;
 
 import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingOutputStream;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -54,9 +54,10 @@ public class PipedDataChannel extends AbstractDataChannel {
 
   @Override
   public void writeTo(OutputStream os) throws IOException {
-    HashingOutputStream hos = new HashingOutputStream(Hashing.md5(), os);
+    TimedHashingOutputStream hos = new TimedHashingOutputStream(Hashing.md5(), os);
     IOUtils.copy(is, hos);
     md5 = hos.hash().toString();
+    hashNanos = hos.getHashNanos();
   }
 
   @Override
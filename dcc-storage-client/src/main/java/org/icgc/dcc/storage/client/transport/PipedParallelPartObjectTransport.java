@@ -59,12 +59,14 @@ public class PipedParallelPartObjectTransport extends ParallelPartObjectTranspor
       final PipedOutputStream pos = new PipedOutputStream();
       final PipedInputStream pis = new PipedInputStream(pos, (int) part.getPartSize());
 
+      progress.queuePart(part);
+
       results.add(executor.submit(new Callable<Part>() {
 
         @Override
         public Part call() throws Exception {
           DataChannel dataChannel =
-              new ProgressDataChannel(new PipedDataChannel(pis, 0, part.getPartSize(), null), progress);
+              new ProgressDataChannel(new PipedDataChannel(pis, 0, part.getPartSize(), null), progress, part);
           progress.startTransfer();
           proxy.uploadPart(dataChannel, part, objectId, uploadId);
           // progress.incrementByteWritten(part.getPartSize());
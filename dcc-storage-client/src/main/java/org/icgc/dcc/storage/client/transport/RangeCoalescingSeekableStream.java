@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static java.util.Comparator.comparing;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.collect.Range;
+import com.google.common.io.ByteStreams;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A {@link SeekableStream} over a remote resource that serves reads of planned byte ranges from memory.
+ * <p>
+ * Planned ranges that are close together are coalesced into larger {@code Range} requests, which are fetched in
+ * parallel ahead of the reader and released once it has moved past them. Reads outside of them go through the
+ * underlying stream. The leading bytes of the resource may be supplied up front.
+ */
+@Slf4j
+public class RangeCoalescingSeekableStream extends SeekableStream {
+
+  /**
+   * Constants.
+   */
+  private static final long MAX_GAP = 64 * 1024; // Unplanned bytes worth fetching to save a request
+  private static final long MIN_RANGE_SIZE = 64 * 1024; // One compressed block
+  private static final long MAX_RANGE_SIZE = 4 * 1024 * 1024; // Per request, so large spans are fetched in parallel
+  public static final long MAX_PREFETCH_SIZE = 16 * 1024 * 1024; // Fetched ahead of the reader
+  private static final int CONNECT_TIMEOUT_MS = 15 * 1000;
+  private static final int READ_TIMEOUT_MS = 60 * 1000;
+  private static final long FETCH_TIMEOUT_SECONDS = 5 * 60; // Before the reader gives up waiting on a range
+
+  /**
+   * Configuration.
+   */
+  private final URL url;
+  private final byte[] prefix;
+
+  /**
+   * Dependencies.
+   */
+  private final SeekableStream delegate;
+  private final ExecutorService executor;
+
+  /**
+   * State.
+   */
+  private long position;
+  private long prefetchSize = MAX_PREFETCH_SIZE;
+  private long rangeSize = MAX_RANGE_SIZE;
+  private final Deque<Range<Long>> planned = new ArrayDeque<>(); // Not yet fetched, in order
+  private final TreeMap<Long, Fetch> fetches = new TreeMap<>(); // By start
+
+  public RangeCoalescingSeekableStream(@NonNull URL url, @NonNull byte[] prefix, @NonNull SeekableStream delegate,
+      @NonNull ExecutorService executor) {
+    this.url = url;
+    this.prefix = prefix;
+    this.delegate = delegate;
+    this.executor = executor;
+  }
+
+  /**
+   * Replaces the planned ranges with {@code ranges} of the resource, which the reader will read in order.
+   */
+  public void prefetch(@NonNull Collection<Range<Long>> ranges) {
+    prefetch(ranges, MAX_PREFETCH_SIZE);
+  }
+
+  /**
+   * Replaces the planned ranges with {@code ranges} of the resource, holding at most about {@code maxSize} bytes of
+   * them ahead of the reader. Streams read side by side share a budget this way.
+   */
+  public void prefetch(@NonNull Collection<Range<Long>> ranges, long maxSize) {
+    cancel();
+    prefetchSize = Math.max(maxSize, MIN_RANGE_SIZE);
+    rangeSize = Math.min(prefetchSize, MAX_RANGE_SIZE);
+
+    val sorted = ranges.stream().sorted(comparing(Range::lowerEndpoint)).iterator();
+    long start = -1;
+    long end = -1;
+    while (sorted.hasNext()) {
+      val range = sorted.next();
+      if (start >= 0 && range.lowerEndpoint() <= end + MAX_GAP) {
+        end = Math.max(end, range.upperEndpoint());
+        continue;
+      }
+
+      plan(start, end);
+      start = range.lowerEndpoint();
+      end = range.upperEndpoint();
+    }
+
+    plan(start, end);
+    log.debug("Planned {} ranges of '{}'", planned.size(), url);
+
+    schedule();
+  }
+
+  @Override
+  public long length() {
+    return delegate.length();
+  }
+
+  @Override
+  public long position() throws IOException {
+    return position;
+  }
+
+  @Override
+  public void seek(long position) throws IOException {
+    this.position = position;
+  }
+
+  @Override
+  public int read() throws IOException {
+    val bytes = new byte[1];
+    return read(bytes, 0, 1) < 0 ? -1 : bytes[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+
+    int n;
+    if (position < prefix.length) {
+      n = (int) Math.min(length, prefix.length - position);
+      System.arraycopy(prefix, (int) position, buffer, offset, n);
+    } else {
+      release();
+      n = readFetched(buffer, offset, length);
+      if (n < 0) {
+        delegate.seek(position);
+        n = delegate.read(buffer, offset, length);
+      }
+    }
+
+    if (n > 0) {
+      position += n;
+    }
+
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    cancel();
+    delegate.close();
+  }
+
+  @Override
+  public boolean eof() throws IOException {
+    return position >= length();
+  }
+
+  @Override
+  public String getSource() {
+    return delegate.getSource();
+  }
+
+  /**
+   * Reads {@code length} bytes of {@code url} starting at {@code start} with a request of its own.
+   */
+  public static byte[] readRange(@NonNull URL url, long start, long length) throws IOException {
+    val connection = url.openConnection();
+    connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+    connection.setReadTimeout(READ_TIMEOUT_MS);
+    connection.setRequestProperty("Range", "bytes=" + start + "-" + (start + length - 1));
+
+    @Cleanup
+    val in = connection.getInputStream();
+    if (connection instanceof HttpURLConnection) {
+      val status = ((HttpURLConnection) connection).getResponseCode();
+      if (start > 0 && status != HttpURLConnection.HTTP_PARTIAL) {
+        throw new IOException("Range request of '" + url + "' returned status " + status);
+      }
+    } else {
+      // Local resources ignore the range
+      ByteStreams.skipFully(in, start);
+    }
+
+    return ByteStreams.toByteArray(ByteStreams.limit(in, length));
+  }
+
+  private void plan(long start, long end) {
+    end = Math.min(end, length());
+    for (long from = start; from >= 0 && from < end; from += rangeSize) {
+      planned.add(Range.closedOpen(from, Math.min(from + rangeSize, end)));
+    }
+  }
+
+  /**
+   * Keeps up to {@link #prefetchSize} bytes of planned ranges fetching ahead of the reader.
+   */
+  private void schedule() {
+    long size = fetches.values().stream().mapToLong(Fetch::getLength).sum();
+    while (!planned.isEmpty() && size < prefetchSize) {
+      val range = planned.remove();
+      val fetch = new Fetch(range, executor.submit(() -> readRange(url, range.lowerEndpoint(), getLength(range))));
+      fetches.put(range.lowerEndpoint(), fetch);
+      size += fetch.getLength();
+    }
+  }
+
+  /**
+   * Releases the ranges that end at or before the reader.
+   */
+  private void release() {
+    while (!planned.isEmpty() && planned.peek().upperEndpoint() <= position) {
+      planned.remove();
+    }
+
+    val passed = fetches.headMap(position, true).values().iterator();
+    while (passed.hasNext()) {
+      val fetch = passed.next();
+      if (fetch.range.upperEndpoint() <= position) {
+        fetch.bytes.cancel(true);
+        passed.remove();
+      }
+    }
+
+    schedule();
+  }
+
+  /**
+   * @return the number of bytes read from a fetched range or {@code -1} if none holds the position
+   */
+  @SneakyThrows
+  private int readFetched(byte[] buffer, int offset, int length) {
+    val entry = fetches.floorEntry(position);
+    if (entry == null || !entry.getValue().range.contains(position)) {
+      return -1;
+    }
+
+    byte[] bytes;
+    try {
+      bytes = entry.getValue().bytes.get(FETCH_TIMEOUT_SECONDS, SECONDS);
+    } catch (ExecutionException e) {
+      log.warn("Failed to prefetch range {} of '{}': {}", entry.getValue().range, url, e.getCause().getMessage());
+      fetches.remove(entry.getKey());
+      return -1;
+    } catch (TimeoutException e) {
+      log.warn("Timed out prefetching range {} of '{}'", entry.getValue().range, url);
+      entry.getValue().bytes.cancel(true);
+      fetches.remove(entry.getKey());
+      return -1;
+    }
+
+    val fetchOffset = (int) (position - entry.getKey());
+    if (fetchOffset >= bytes.length) {
+      return -1;
+    }
+
+    val n = Math.min(length, bytes.length - fetchOffset);
+    System.arraycopy(bytes, fetchOffset, buffer, offset, n);
+
+    return n;
+  }
+
+  private void cancel() {
+    fetches.values().forEach(fetch -> fetch.bytes.cancel(true));
+    fetches.clear();
+    planned.clear();
+  }
+
+  private static long getLength(Range<Long> range) {
+    return range.upperEndpoint() - range.lowerEndpoint();
+  }
+
+  @RequiredArgsConstructor
+  private static class Fetch {
+
+    private final Range<Long> range;
+    private final Future<byte[]> bytes;
+
+    long getLength() {
+      return RangeCoalescingSeekableStream.getLength(range);
+    }
+
+  }
+
+}
@@ -57,7 +57,8 @@ public class SequentialPartObjectTransport implements Transport {
     for (Part part : parts) {
       log.debug("processing part: {}", part);
       DataChannel channel =
-          new ProgressDataChannel(new FileDataChannel(file, part.getOffset(), part.getPartSize(), null), progress);
+          new ProgressDataChannel(new FileDataChannel(file, part.getOffset(), part.getPartSize(), null), progress,
+              part);
 
       boolean resend = false;
       if (part.getMd5() != null) {
@@ -30,10 +30,12 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 
+import org.icgc.dcc.storage.client.config.TransportProperties;
 import org.icgc.dcc.storage.client.download.DownloadStateStore;
 import org.icgc.dcc.storage.client.exception.NotResumableException;
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
 import org.icgc.dcc.storage.client.exception.RetryableException;
+import org.icgc.dcc.storage.client.metric.TimedHashingInputStream;
 import org.icgc.dcc.storage.core.model.DataChannel;
 import org.icgc.dcc.storage.core.model.ObjectInfo;
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
@@ -59,7 +61,6 @@ import org.springframework.web.client.RestTemplate;
 import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.SSEAlgorithm;
 import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingInputStream;
 
 import lombok.SneakyThrows;
 import lombok.val;
@@ -84,6 +85,8 @@ public class StorageService {
   @Autowired
   private DownloadStateStore downloadStateStore;
   @Autowired
+  private TransportProperties transportProperties;
+  @Autowired
   @Qualifier("serviceTemplate")
   private RestTemplate serviceTemplate;
   @Autowired
@@ -129,7 +132,7 @@ public class StorageService {
               request -> request.getHeaders().set(HttpHeaders.RANGE, Parts.getHttpRangeValue(part)),
 
               response -> {
-                try (HashingInputStream his = new HashingInputStream(Hashing.md5(), response.getBody())) {
+                try (TimedHashingInputStream his = new TimedHashingInputStream(Hashing.md5(), response.getBody())) {
                   channel.readFrom(his);
                   return his.hash().toString();
                 }
@@ -268,17 +271,33 @@ public class StorageService {
 
   }
 
+  /**
+   * Returns the stored specification of the whole object, as sized by the server.
+   */
   public ObjectSpecification getDownloadSpecification(String objectId) throws IOException {
-    return getDownloadSpecification(objectId, 0, -1L);
+    return getDownloadSpecification(objectId, 0, -1L, 0L);
   }
 
   public ObjectSpecification getDownloadSpecification(String objectId, long offset, long length) throws IOException {
+    return getDownloadSpecification(objectId, offset, length, transportProperties.getPreferredPartSize());
+  }
+
+  private ObjectSpecification getDownloadSpecification(String objectId, long offset, long length, long partSize)
+      throws IOException {
     log.debug("Endpoint: {}", endpoint);
     return retry.execute(ctx -> {
-      return serviceTemplate.exchange(endpoint + "/download/{object-id}?offset={offset}&length={length}",
+      if (partSize <= 0L) {
+        return serviceTemplate.exchange(endpoint + "/download/{object-id}?offset={offset}&length={length}",
+            GET,
+            defaultEntity(),
+            ObjectSpecification.class, objectId, offset, length).getBody();
+      }
+
+      return serviceTemplate.exchange(
+          endpoint + "/download/{object-id}?offset={offset}&length={length}&partSize={part-size}",
           GET,
           defaultEntity(),
-          ObjectSpecification.class, objectId, offset, length).getBody();
+          ObjectSpecification.class, objectId, offset, length, partSize).getBody();
     });
   }
 
@@ -31,6 +31,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.icgc.dcc.storage.client.cli.Terminal;
 import org.icgc.dcc.storage.client.exception.NotResumableException;
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.icgc.dcc.storage.client.metric.TransferMetricsReport;
 import org.icgc.dcc.storage.client.progress.Progress;
 import org.icgc.dcc.storage.client.transport.StorageService;
 import org.icgc.dcc.storage.client.transport.Transport;
@@ -68,6 +69,8 @@ public class UploadService {
   private Transport.Builder transportBuilder;
   @Autowired
   private Terminal terminal;
+  @Autowired
+  private TransferMetricsReport metricsReport;
 
   @PostConstruct
   public void setup() {
@@ -119,7 +122,8 @@ public class UploadService {
       UploadStateStore.create(file, spec, false);
     }
 
-    val progress = new Progress(terminal, quiet, spec.getParts().size(), 0);
+    val progress = new Progress(terminal, quiet, spec.getParts().size(), 0,
+        metricsReport.start(objectId, Mode.UPLOAD));
     uploadParts(spec.getParts(), file, objectId, spec.getUploadId(), progress);
     cleanupState(file, objectId);
   }
@@ -200,7 +204,8 @@ public class UploadService {
       });
     }
 
-    val progress = new Progress(terminal, quiet, totalParts, completedParts);
+    val progress = new Progress(terminal, quiet, totalParts, completedParts,
+        metricsReport.start(objectId, Mode.UPLOAD));
     uploadParts(parts, file, uploadProgress.getObjectId(), uploadProgress.getUploadId(), progress);
     cleanupState(file, objectId);
   }
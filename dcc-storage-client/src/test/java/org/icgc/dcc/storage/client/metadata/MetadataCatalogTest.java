@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.metadata;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+import lombok.Cleanup;
+import lombok.val;
+
+public class MetadataCatalogTest {
+
+  /**
+   * Constants.
+   */
+  private static final long CREATED_TIME = 1400000000000L;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  File dir;
+  MetadataClient client;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = tmp.newFolder("catalog");
+    client = mock(MetadataClient.class);
+    when(client.getServerUrl()).thenReturn("https://meta.icgc.org");
+    when(client.findEntities()).thenReturn(ImmutableList.of(
+        entity("a", "a.bam", "bundle-1", CREATED_TIME),
+        entity("b", null, null, CREATED_TIME + 1000)));
+  }
+
+  @Test
+  public void testWriteRead() {
+    new MetadataCatalog(dir, client).load();
+
+    // Served from the snapshot alone
+    val other = mock(MetadataClient.class);
+    when(other.getServerUrl()).thenReturn("https://meta.icgc.org");
+    val entities = new MetadataCatalog(dir, other).getEntities(false);
+    verify(other, never()).findEntities();
+
+    assertThat(entities).hasSize(2);
+    val a = entities.get(0);
+    assertThat(a.getId()).isEqualTo("a");
+    assertThat(a.getFileName()).isEqualTo("a.bam");
+    assertThat(a.getGnosId()).isEqualTo("bundle-1");
+    assertThat(a.getCreatedTime()).isEqualTo(CREATED_TIME);
+    assertThat(a.getProjectCode()).isEqualTo("PROJ-a");
+    assertThat(a.getAccess()).isEqualTo("controlled");
+    val b = entities.get(1);
+    assertThat(b.getFileName()).isNull();
+    assertThat(b.getGnosId()).isNull();
+  }
+
+  @Test
+  public void testAtomicReplace() {
+    new MetadataCatalog(dir, client).load();
+    val file = getCatalogFile();
+    val before = file.length();
+
+    when(client.findEntitiesCreatedSince(anyLong())).thenReturn(
+        ImmutableList.of(entity("c", "c.bam", "bundle-2", CREATED_TIME + 2000)));
+    new MetadataCatalog(dir, client).load();
+
+    // Replaced in place without leaving temporary files behind
+    assertThat(dir.list()).containsExactly(file.getName());
+    assertThat(file.length()).isGreaterThan(before);
+    assertThat(new MetadataCatalog(dir, client).getEntities(false)).hasSize(3);
+  }
+
+  @Test
+  public void testTruncated() throws IOException {
+    new MetadataCatalog(dir, client).load();
+    val file = getCatalogFile();
+    val bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+
+    assertRebuilt();
+  }
+
+  @Test
+  public void testCorrupt() throws IOException {
+    new MetadataCatalog(dir, client).load();
+    Files.write(getCatalogFile().toPath(), "not a catalog".getBytes());
+
+    assertRebuilt();
+  }
+
+  @Test
+  public void testIncrementalSync() {
+    new MetadataCatalog(dir, client).load();
+
+    // Entities near the newest are returned again within the overlap window
+    when(client.findEntitiesCreatedSince(anyLong())).thenReturn(ImmutableList.of(
+        entity("b", null, null, CREATED_TIME + 1000),
+        entity("c", "c.bam", "bundle-2", CREATED_TIME + 2000)));
+    val catalog = new MetadataCatalog(dir, client);
+    catalog.load();
+
+    verify(client).findEntitiesCreatedSince(CREATED_TIME + 1000 - MINUTES.toMillis(10));
+    verify(client).findEntities();
+    assertThat(catalog.getEntities(false)).extracting("id").containsExactly("a", "b", "c");
+    assertThat(catalog.findEntitiesByGnosId("bundle-2")).hasSize(1);
+  }
+
+  @Test
+  public void testFullSyncAfterAWeek() throws IOException {
+    new MetadataCatalog(dir, client).load();
+    setFullSyncTime(System.currentTimeMillis() - DAYS.toMillis(8));
+
+    // Removals are picked up by the full sync
+    when(client.findEntities()).thenReturn(ImmutableList.of(entity("a", "a.bam", "bundle-1", CREATED_TIME)));
+    val catalog = new MetadataCatalog(dir, client);
+    catalog.load();
+
+    verify(client, never()).findEntitiesCreatedSince(anyLong());
+    assertThat(catalog.getEntities(false)).extracting("id").containsExactly("a");
+  }
+
+  private void assertRebuilt() {
+    val catalog = new MetadataCatalog(dir, client);
+    assertThat(catalog.getEntities(false)).hasSize(2);
+    verify(client, never()).findEntitiesCreatedSince(anyLong());
+    verify(client, times(2)).findEntities();
+  }
+
+  private File getCatalogFile() {
+    return new File(dir, "meta.icgc.org.catalog");
+  }
+
+  /**
+   * Rewrites the time of the last full sync, which follows the format version.
+   */
+  private void setFullSyncTime(long time) throws IOException {
+    val file = getCatalogFile();
+    @Cleanup
+    val in = new GZIPInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+    val bytes = ByteStreams.toByteArray(in);
+    ByteBuffer.wrap(bytes).putLong(4, time);
+
+    val buffer = new ByteArrayOutputStream();
+    try (val out = new GZIPOutputStream(buffer)) {
+      out.write(bytes);
+    }
+
+    @Cleanup
+    val out = new FileOutputStream(file);
+    out.write(buffer.toByteArray());
+  }
+
+  private static Entity entity(String id, String fileName, String gnosId, long createdTime) {
+    val entity = new Entity();
+    entity.setId(id);
+    entity.setFileName(fileName);
+    entity.setGnosId(gnosId);
+    entity.setCreatedTime(createdTime);
+    entity.setProjectCode("PROJ-" + id);
+    entity.setAccess("controlled");
+
+    return entity;
+  }
+
+}
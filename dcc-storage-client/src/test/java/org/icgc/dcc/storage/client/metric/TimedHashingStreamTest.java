@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.metric;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import lombok.val;
+
+public class TimedHashingStreamTest {
+
+  byte[] bytes = new byte[1024 * 1024 + 3];
+
+  {
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i % 251);
+    }
+  }
+
+  @Test
+  public void testInputStream() throws IOException {
+    val in = new TimedHashingInputStream(Hashing.md5(), new ByteArrayInputStream(bytes));
+    in.read();
+    val read = ByteStreams.toByteArray(in);
+
+    assertThat(read.length).isEqualTo(bytes.length - 1);
+    assertThat(in.hash()).isEqualTo(Hashing.md5().hashBytes(bytes));
+    assertThat(in.getHashNanos()).isGreaterThan(0);
+  }
+
+  @Test
+  public void testOutputStream() throws IOException {
+    val buffer = new ByteArrayOutputStream();
+    val out = new TimedHashingOutputStream(Hashing.md5(), buffer);
+    out.write(bytes[0]);
+    out.write(bytes, 1, bytes.length - 1);
+
+    assertThat(buffer.toByteArray()).isEqualTo(bytes);
+    assertThat(out.hash()).isEqualTo(Hashing.md5().hashBytes(bytes));
+    assertThat(out.getHashNanos()).isGreaterThan(0);
+  }
+
+}
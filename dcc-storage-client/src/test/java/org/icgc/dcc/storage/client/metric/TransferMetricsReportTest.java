@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.metric;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.icgc.dcc.storage.client.transport.Transport.Mode;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Files;
+
+import lombok.val;
+
+public class TransferMetricsReportTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  TransferMetricsReport report = new TransferMetricsReport();
+
+  @Test
+  public void testDisabled() {
+    report.start("object-id", Mode.DOWNLOAD);
+    report.write();
+
+    assertThat(report.isEnabled()).isFalse();
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test
+  public void testWriteJson() throws IOException {
+    val file = new File(tmp.getRoot(), "metrics.json");
+    report.setFile(file);
+    record(report.start("object-id", Mode.DOWNLOAD));
+    report.write();
+
+    val json = new ObjectMapper().readTree(file);
+    assertThat(json.size()).isEqualTo(1);
+    assertThat(json.get(0).get("objectId").asText()).isEqualTo("object-id");
+    assertThat(json.get(0).get("mode").asText()).isEqualTo("DOWNLOAD");
+
+    val part = json.get(0).get("parts").get(0);
+    assertThat(part.get("partNumber").asInt()).isEqualTo(1);
+    assertThat(part.get("restarts").asInt()).isEqualTo(1);
+    assertThat(part.get("bytes").asLong()).isEqualTo(30);
+    assertThat(json.get(0).get("throughput").get(0).get("bytesRead").asLong()).isEqualTo(30);
+  }
+
+  @Test
+  public void testWriteCsv() throws IOException {
+    val file = new File(tmp.getRoot(), "metrics.csv");
+    report.setFile(file);
+    record(report.start("object-id", Mode.UPLOAD));
+    report.write();
+
+    val parts = Files.readLines(file, UTF_8);
+    assertThat(parts).hasSize(2);
+    assertThat(parts.get(1)).startsWith("object-id,UPLOAD,1,0,10,").endsWith(",1,30");
+
+    val throughput = Files.readLines(new File(tmp.getRoot(), "metrics-throughput.csv"), UTF_8);
+    assertThat(throughput).hasSize(2);
+    assertThat(throughput.get(1)).startsWith("object-id,UPLOAD,").endsWith(",30,0");
+  }
+
+  private static void record(TransferMetrics metrics) {
+    val part = new Part(1, 10, 0, null, null, null);
+    metrics.queued(part);
+
+    val partMetrics = metrics.started(part);
+    partMetrics.transferred(10);
+    partMetrics.restarted();
+    partMetrics.transferred(20);
+    metrics.sample(30, 0);
+    metrics.end();
+  }
+
+}
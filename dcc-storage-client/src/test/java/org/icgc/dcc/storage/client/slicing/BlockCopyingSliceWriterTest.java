@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.slicing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordCoordinateComparator;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.seekablestream.SeekableFileStream;
+import htsjdk.samtools.util.CloseableIterator;
+import lombok.Cleanup;
+import lombok.val;
+
+public class BlockCopyingSliceWriterTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  File bam;
+  File bai;
+  File output;
+
+  @Before
+  public void setUp() throws IOException {
+    bam = new File(tmp.getRoot(), "test.bam");
+    bai = new File(tmp.getRoot(), "test.bai");
+    output = new File(tmp.getRoot(), "output.bam");
+    writeBam(bam);
+  }
+
+  @Test
+  public void testSingleInterval() throws IOException {
+    val copied = assertSameAsQuery(new QueryInterval(0, 100000, 400000));
+    assertThat(copied).isGreaterThan(0);
+  }
+
+  @Test
+  public void testWholeReferences() throws IOException {
+    val copied = assertSameAsQuery(new QueryInterval(0, -1, -1), new QueryInterval(2, -1, -1));
+    assertThat(copied).isGreaterThan(0);
+  }
+
+  @Test
+  public void testOverlappingIntervals() throws IOException {
+    // Long alignments overlap several intervals but are written once
+    assertSameAsQuery(new QueryInterval(0, 1000, 1050), new QueryInterval(0, 1060, 1100),
+        new QueryInterval(0, 5000, 900000), new QueryInterval(0, 800000, 800100), new QueryInterval(2, 450000, -1));
+  }
+
+  @Test
+  public void testEmptyReference() throws IOException {
+    assertSameAsQuery(new QueryInterval(1, 1, 100000));
+    assertThat(readAll(output)).isEmpty();
+  }
+
+  /**
+   * @return number of compressed bytes copied
+   */
+  private long assertSameAsQuery(QueryInterval... intervals) throws IOException {
+    @Cleanup
+    val reader = SamReaderFactory.makeDefault().open(SamInputResource.of(bam).index(bai));
+    @Cleanup
+    val iterator = reader.query(QueryInterval.optimizeIntervals(intervals), false);
+    val expected = toStrings(iterator);
+
+    @Cleanup
+    val stream = new SeekableFileStream(bam);
+    @Cleanup
+    val source = SamReaderFactory.makeDefault().open(SamInputResource.of(stream).index(bai));
+    val writer = new BlockCopyingSliceWriter(source.getFileHeader(), source.indexing().getIndex(), stream);
+    writer.write(intervals, output);
+
+    assertThat(readAll(output)).isEqualTo(expected);
+
+    return writer.getCopiedBytes();
+  }
+
+  private static List<String> readAll(File file) throws IOException {
+    @Cleanup
+    val reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.STRICT).open(file);
+    @Cleanup
+    val iterator = reader.iterator();
+    return toStrings(iterator);
+  }
+
+  private static List<String> toStrings(CloseableIterator<SAMRecord> iterator) {
+    val records = Lists.<String> newArrayList();
+    while (iterator.hasNext()) {
+      records.add(iterator.next().getSAMString());
+    }
+
+    return records;
+  }
+
+  private static void writeBam(File file) {
+    val header = new SAMFileHeader();
+    header.setSortOrder(SortOrder.coordinate);
+    for (val name : ImmutableList.of("chr1", "chr2", "chr3")) {
+      header.addSequence(new SAMSequenceRecord(name, 1000000));
+    }
+
+    // No alignments on chr2, some long ones and some unmapped that are placed or not
+    val records = Lists.<SAMRecord> newArrayList();
+    for (int i = 0; i < 40000; i++) {
+      val record = new SAMRecord(header);
+      record.setReadName("read" + i);
+      record.setReferenceIndex(i % 2 == 0 ? 0 : 2);
+      record.setAlignmentStart(1 + (i * 7919) % 990000);
+      if (i % 97 == 0) {
+        record.setReadUnmappedFlag(true);
+      } else {
+        record.setCigarString(i % 53 == 0 ? "25M5000N25M" : "50M");
+      }
+      record.setReadString("ACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTAC");
+      record.setBaseQualityString("IIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIII");
+      records.add(record);
+    }
+    for (int i = 0; i < 100; i++) {
+      val record = new SAMRecord(header);
+      record.setReadName("unplaced" + i);
+      record.setReadUnmappedFlag(true);
+      record.setReadString("ACGT");
+      record.setBaseQualityString("IIII");
+      records.add(record);
+    }
+    records.sort(new SAMRecordCoordinateComparator());
+
+    @Cleanup
+    val writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, true, file);
+    records.forEach(writer::addAlignment);
+  }
+
+}
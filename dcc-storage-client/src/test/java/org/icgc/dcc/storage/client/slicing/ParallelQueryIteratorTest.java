@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.slicing;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordCoordinateComparator;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.DelegatingIterator;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.val;
+
+public class ParallelQueryIteratorTest {
+
+  /**
+   * Constants.
+   */
+  private static final int SEQUENCES = 2;
+  private static final int ALIGNMENTS_PER_SEQUENCE = 5000;
+  private static final int ALIGNMENT_SPACING = 19;
+  private static final int INTERVAL_SPACING = 500;
+  private static final int INTERVAL_LENGTH = 200;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  File bam;
+  AtomicInteger opened = new AtomicInteger();
+  AtomicInteger closed = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    bam = writeBam();
+  }
+
+  @Test
+  public void test_overlapping_matches_sequential_query() {
+    val intervals = createIntervals();
+    for (val threads : new int[] { 1, 3, 4 }) {
+      val expected = querySequential(intervals, false);
+      val actual = readNames(new ParallelQueryIterator(this::query, intervals, false, threads));
+
+      // Long alignments overlap the last interval of one chunk and the first ones of the next, but appear only once
+      assertThat(actual, equalTo(expected));
+    }
+
+    assertThat(opened.get(), greaterThan(0));
+    assertThat(closed.get(), equalTo(opened.get()));
+  }
+
+  @Test
+  public void test_contained_matches_sequential_query() {
+    val intervals = createIntervals();
+    for (val threads : new int[] { 1, 3, 4 }) {
+      val expected = querySequential(intervals, true);
+      val actual = readNames(new ParallelQueryIterator(this::queryContained, intervals, true, threads));
+
+      assertThat(actual, equalTo(expected));
+    }
+  }
+
+  @Test
+  public void test_worker_failure_is_rethrown_in_order() {
+    val intervals = createIntervals();
+    val first = intervals[0];
+    Function<QueryInterval[], CloseableIterator<SAMRecord>> failing = chunk -> {
+      if (chunk[0] != first) {
+        throw new IllegalStateException("Query failed");
+      }
+
+      return query(chunk);
+    };
+
+    @Cleanup
+    val iterator = new ParallelQueryIterator(failing, intervals, false, 4);
+    val names = Lists.<String> newArrayList();
+    try {
+      while (iterator.hasNext()) {
+        names.add(iterator.next().getReadName());
+      }
+      fail("Expected the failure of the second chunk");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), equalTo("Query failed"));
+    }
+
+    // Every alignment of the first chunk is returned before its failing successor is reached
+    val expected = querySequential(firstChunk(intervals, 4), false);
+    assertThat(names, equalTo(expected));
+    assertThat(closed.get(), equalTo(opened.get()));
+  }
+
+  @Test
+  public void test_early_close_stops_workers() {
+    // One interval per sequence, so each chunk queues more alignments than it buffers and its worker blocks
+    val intervals = new QueryInterval[SEQUENCES];
+    for (int i = 0; i < SEQUENCES; i++) {
+      intervals[i] = new QueryInterval(i, 1, 0);
+    }
+
+    val iterator = new ParallelQueryIterator(this::query, intervals, false, 1);
+    for (int i = 0; i < 10; i++) {
+      iterator.next();
+    }
+    iterator.close();
+
+    // The blocked worker closed its reader and the chunk that never started opened none
+    assertThat(opened.get(), equalTo(1));
+    assertThat(closed.get(), equalTo(1));
+  }
+
+  private CloseableIterator<SAMRecord> query(QueryInterval[] intervals) {
+    return query(intervals, false);
+  }
+
+  private CloseableIterator<SAMRecord> queryContained(QueryInterval[] intervals) {
+    return query(intervals, true);
+  }
+
+  /**
+   * Queries the intervals with a reader of their own, which is closed along with the returned iterator.
+   */
+  private CloseableIterator<SAMRecord> query(QueryInterval[] intervals, boolean containedOnly) {
+    val reader = openReader();
+    opened.incrementAndGet();
+
+    return new DelegatingIterator<SAMRecord>(reader.query(intervals, containedOnly)) {
+
+      @Override
+      @SneakyThrows
+      public void close() {
+        try {
+          super.close();
+        } finally {
+          reader.close();
+          closed.incrementAndGet();
+        }
+      }
+
+    };
+  }
+
+  @SneakyThrows
+  private List<String> querySequential(QueryInterval[] intervals, boolean containedOnly) {
+    @Cleanup
+    val reader = openReader();
+    return readNames(reader.query(intervals, containedOnly));
+  }
+
+  private SamReader openReader() {
+    // A resource holds the streams it opens, so every reader gets one of its own
+    return SamReaderFactory.makeDefault().open(SamInputResource.of(bam).index(new File(tmp.getRoot(), "test.bai")));
+  }
+
+  private static List<String> readNames(CloseableIterator<SAMRecord> iterator) {
+    val names = Lists.<String> newArrayList();
+    try {
+      while (iterator.hasNext()) {
+        names.add(iterator.next().getReadName());
+      }
+    } finally {
+      iterator.close();
+    }
+
+    return names;
+  }
+
+  /**
+   * Sorted, merged intervals that are shorter than the long alignments and leave gaps between each other.
+   */
+  private static QueryInterval[] createIntervals() {
+    val intervals = Lists.<QueryInterval> newArrayList();
+    for (int i = 0; i < SEQUENCES; i++) {
+      val length = ALIGNMENTS_PER_SEQUENCE * ALIGNMENT_SPACING;
+      for (int start = 1; start < length; start += INTERVAL_SPACING) {
+        intervals.add(new QueryInterval(i, start, start + INTERVAL_LENGTH - 1));
+      }
+    }
+
+    return QueryInterval.optimizeIntervals(intervals.toArray(new QueryInterval[intervals.size()]));
+  }
+
+  /**
+   * The intervals of the first chunk that {@link ParallelQueryIterator} splits {@code intervals} into.
+   */
+  private static QueryInterval[] firstChunk(QueryInterval[] intervals, int threads) {
+    val chunkCount = Math.min(intervals.length, threads * 4);
+    val chunk = new QueryInterval[intervals.length / chunkCount];
+    System.arraycopy(intervals, 0, chunk, 0, chunk.length);
+    assertThat(chunk.length, lessThan(intervals.length));
+
+    return chunk;
+  }
+
+  /**
+   * Writes an indexed BAM where every 10th alignment spans several intervals.
+   */
+  private File writeBam() {
+    val header = new SAMFileHeader();
+    header.setSortOrder(SortOrder.coordinate);
+    for (int i = 0; i < SEQUENCES; i++) {
+      header.addSequence(new SAMSequenceRecord("chr" + (i + 1), 1000000));
+    }
+
+    val records = Lists.<SAMRecord> newArrayList();
+    for (int i = 0; i < SEQUENCES; i++) {
+      for (int j = 0; j < ALIGNMENTS_PER_SEQUENCE; j++) {
+        val record = new SAMRecord(header);
+        record.setReadName("read-" + i + "-" + j);
+        record.setReferenceIndex(i);
+        record.setAlignmentStart(1 + j * ALIGNMENT_SPACING);
+        record.setCigarString(j % 10 == 0 ? "2M3000N2M" : "4M");
+        record.setReadString("ACGT");
+        record.setBaseQualityString("IIII");
+        records.add(record);
+      }
+    }
+    records.sort(new SAMRecordCoordinateComparator());
+
+    val bam = new File(tmp.getRoot(), "test.bam");
+    @Cleanup
+    val writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, true, bam);
+    records.forEach(writer::addAlignment);
+
+    return bam;
+  }
+
+}
@@ -17,23 +17,49 @@
  */
 package org.icgc.dcc.storage.client.slicing;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.icgc.dcc.storage.client.command.ViewCommand.OutputFormat;
 import org.icgc.dcc.storage.client.metadata.Entity;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordCoordinateComparator;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTag;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReaderFactory;
+import lombok.Cleanup;
+import lombok.val;
 
 /**
  * 
  */
 public class SamFileBuilderTest {
 
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
   SamFileBuilder sut;
 
   @Before
@@ -121,4 +147,188 @@ public class SamFileBuilderTest {
     String result = sut.generateOutputFileName(stub, queries);
     assertThat(result, equalTo(fname));
   }
+
+  @Test
+  public void test_merged_filename_construction() {
+    sut.outputFormat(OutputFormat.BAM);
+    String fname = "merged.chr1_1000-2000__chr5_150000-250000.bam";
+
+    List<String> queries = new ArrayList<String>();
+    queries.add("chr1:1000-2000");
+    queries.add("chr5:150000-250000");
+
+    String result = sut.generateMergedOutputFileName(queries);
+    assertThat(result, equalTo(fname));
+  }
+
+  @Test
+  public void test_merged_output_of_inputs_with_different_dictionaries() throws Exception {
+    // chr2 has a different reference index in each input and both use read group 'rg1' for different samples
+    val first = writeBam("first", ImmutableList.of("chr1", "chr2"), "sample1", 0);
+    val second = writeBam("second", ImmutableList.of("chr2", "chr3"), "sample2", 50);
+
+    sut.outputFormat(OutputFormat.BAM).outputDir(tmp.getRoot()).queries(ImmutableList.of("chr2:1-100000"));
+    sut.buildMerged(ImmutableList.of(first, second));
+
+    @Cleanup
+    val reader = SamReaderFactory.makeDefault().open(new File(tmp.getRoot(), "merged.chr2_1-100000.bam"));
+    val header = reader.getFileHeader();
+    assertThat(header.getSortOrder(), equalTo(SortOrder.coordinate));
+    assertThat(header.getSequenceDictionary().getSequenceIndex("chr1"), equalTo(0));
+    assertThat(header.getSequenceDictionary().getSequenceIndex("chr2"), equalTo(1));
+    assertThat(header.getSequenceDictionary().getSequenceIndex("chr3"), equalTo(2));
+
+    val samples = Lists.<String> newArrayList();
+    val readGroupIds = Lists.<String> newArrayList();
+    for (val readGroup : header.getReadGroups()) {
+      samples.add(readGroup.getSample());
+      readGroupIds.add(readGroup.getId());
+    }
+    assertThat(samples, containsInAnyOrder("sample1", "sample2"));
+    assertThat(readGroupIds.get(0), equalTo("rg1"));
+    assertThat(readGroupIds.get(1), equalTo("rg1.1"));
+
+    val comparator = new SAMRecordCoordinateComparator();
+    val records = Lists.<SAMRecord> newArrayList(reader.iterator());
+    for (int i = 1; i < records.size(); i++) {
+      assertThat(comparator.fileOrderCompare(records.get(i - 1), records.get(i)), lessThanOrEqualTo(0));
+    }
+
+    // Every alignment on chr2 of both inputs, with the read group of its own sample
+    assertThat(records.size(), equalTo(200));
+    for (val record : records) {
+      assertThat(record.getReferenceName(), equalTo("chr2"));
+      val sample = record.getReadName().startsWith("first") ? "sample1" : "sample2";
+      assertThat(record.getReadGroup().getSample(), equalTo(sample));
+    }
+  }
+
+  @Test
+  public void test_trimmed_header_has_read_groups_of_buffered_slice() throws Exception {
+    // Exactly as many alignments as are looked ahead at, all of read group 'rg1'
+    sut.useOriginalHeader(false);
+    val header = buildTrimmed("chr1:1-" + (1 + (SamFileBuilder.MAX_BUFFERED_ALIGNMENTS - 1) * 10 + 3),
+        SamFileBuilder.MAX_BUFFERED_ALIGNMENTS);
+
+    assertThat(readGroupIds(header), contains("rg1"));
+  }
+
+  @Test
+  public void test_trimmed_header_keeps_read_groups_of_larger_slice() throws Exception {
+    // One alignment past the lookahead, of read group 'rg2', so the header keeps every read group of the source
+    sut.useOriginalHeader(false);
+    val header = buildTrimmed("chr1:1-" + (1 + SamFileBuilder.MAX_BUFFERED_ALIGNMENTS * 10 + 3),
+        SamFileBuilder.MAX_BUFFERED_ALIGNMENTS + 1);
+
+    assertThat(readGroupIds(header), containsInAnyOrder("rg1", "rg2", "rg3"));
+  }
+
+  @Test
+  public void test_original_header_keeps_read_groups_of_small_slice() throws Exception {
+    sut.useOriginalHeader(true);
+    val header = buildTrimmed("chr1:1-100", 10);
+
+    assertThat(readGroupIds(header), containsInAnyOrder("rg1", "rg2", "rg3"));
+  }
+
+  /**
+   * Slices a BAM whose first {@link SamFileBuilder#MAX_BUFFERED_ALIGNMENTS} alignments are of read group 'rg1' and the
+   * next one of 'rg2', with 'rg3' unused, to SAM and returns the output header after checking its alignments.
+   */
+  private SAMFileHeader buildTrimmed(String query, int expectedCount) throws Exception {
+    val count = SamFileBuilder.MAX_BUFFERED_ALIGNMENTS + 1;
+    val header = new SAMFileHeader();
+    header.setSortOrder(SortOrder.coordinate);
+    header.addSequence(new SAMSequenceRecord("chr1", 1000000));
+    for (val id : ImmutableList.of("rg1", "rg2", "rg3")) {
+      val readGroup = new SAMReadGroupRecord(id);
+      readGroup.setSample("sample");
+      header.addReadGroup(readGroup);
+    }
+
+    val bam = new File(tmp.getRoot(), "source.bam");
+    {
+      @Cleanup
+      val writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, true, bam);
+      for (int i = 0; i < count; i++) {
+        val record = new SAMRecord(header);
+        record.setReadName("read-" + i);
+        record.setReferenceName("chr1");
+        record.setAlignmentStart(1 + i * 10);
+        record.setCigarString("4M");
+        record.setReadString("ACGT");
+        record.setBaseQualityString("IIII");
+        record.setAttribute(SAMTag.RG.name(), i < count - 1 ? "rg1" : "rg2");
+        writer.addAlignment(record);
+      }
+    }
+
+    val entity = new Entity();
+    entity.setFileName(bam.getName());
+    val outputDir = tmp.newFolder();
+    sut.outputFormat(OutputFormat.SAM).outputDir(outputDir).entity(entity).queries(ImmutableList.of(query))
+        .samInput(SamInputResource.of(bam).index(new File(tmp.getRoot(), "source.bai")));
+    sut.buildTrimmed();
+
+    val outputs = outputDir.listFiles();
+    assertThat(outputs.length, equalTo(1));
+
+    @Cleanup
+    val reader = SamReaderFactory.makeDefault().open(outputs[0]);
+    val records = Lists.<SAMRecord> newArrayList(reader.iterator());
+    assertThat(records.size(), equalTo(expectedCount));
+    for (val record : records) {
+      assertThat(record.getReadGroup(), notNullValue());
+    }
+
+    return reader.getFileHeader();
+  }
+
+  private static List<String> readGroupIds(SAMFileHeader header) {
+    val ids = Lists.<String> newArrayList();
+    for (val readGroup : header.getReadGroups()) {
+      ids.add(readGroup.getId());
+    }
+
+    return ids;
+  }
+
+  /**
+   * Writes an indexed BAM with 100 alignments to each of {@code sequences}, starting {@code shift} bases apart.
+   */
+  private SamInput writeBam(String name, List<String> sequences, String sample, int shift) {
+    val header = new SAMFileHeader();
+    header.setSortOrder(SortOrder.coordinate);
+    for (val sequence : sequences) {
+      header.addSequence(new SAMSequenceRecord(sequence, 1000000));
+    }
+    val readGroup = new SAMReadGroupRecord("rg1");
+    readGroup.setSample(sample);
+    header.addReadGroup(readGroup);
+
+    val records = Lists.<SAMRecord> newArrayList();
+    for (val sequence : sequences) {
+      for (int i = 0; i < 100; i++) {
+        val record = new SAMRecord(header);
+        record.setReadName(name + "-" + sequence + "-" + i);
+        record.setReferenceName(sequence);
+        record.setAlignmentStart(1 + shift + i * 100);
+        record.setCigarString("4M");
+        record.setReadString("ACGT");
+        record.setBaseQualityString("IIII");
+        record.setAttribute(SAMTag.RG.name(), "rg1");
+        records.add(record);
+      }
+    }
+    records.sort(new SAMRecordCoordinateComparator());
+
+    val bam = new File(tmp.getRoot(), name + ".bam");
+    @Cleanup
+    val writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, true, bam);
+    records.forEach(writer::addAlignment);
+
+    val bai = new File(tmp.getRoot(), name + ".bai");
+    return SamInput.of(SamInputResource.of(bam).index(bai));
+  }
+
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.slicing;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.icgc.dcc.storage.client.transport.RangeCoalescingSeekableStream;
+import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.seekablestream.ByteArraySeekableStream;
+import htsjdk.samtools.seekablestream.SeekableFileStream;
+import lombok.Cleanup;
+import lombok.val;
+
+public class SamResourceCacheTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  File bam;
+  File bai;
+  SamResourceCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    bam = new File(tmp.getRoot(), "test.bam");
+    bai = new File(tmp.getRoot(), "test.bai");
+    writeBam(bam);
+
+    cache = new SamResourceCache(tmp.newFolder("cache"), 1);
+  }
+
+  @Test
+  public void testIndex() throws IOException {
+    val spec = createSpec(bai, md5(bai));
+    val index = cache.getIndex("index-id", spec);
+    assertThat(index).isEqualTo(Files.readAllBytes(bai.toPath()));
+    assertThat(cache.getSize()).isEqualTo(bai.length());
+
+    // Served from the cache once the source is gone
+    bai.delete();
+    assertThat(cache.getIndex("index-id", spec)).isEqualTo(index);
+  }
+
+  @Test(expected = IOException.class)
+  public void testIndexChecksumMismatch() throws IOException {
+    try {
+      cache.getIndex("index-id", createSpec(bai, "00000000000000000000000000000000"));
+    } finally {
+      assertThat(cache.getSize()).isZero();
+    }
+  }
+
+  @Test
+  public void testIndexWithoutMd5() throws IOException {
+    val index = cache.getIndex("index-id", createSpec(bai, null));
+    assertThat(index).isEqualTo(Files.readAllBytes(bai.toPath()));
+
+    // A changed object of the same size could not be told apart
+    assertThat(cache.getSize()).isZero();
+    assertThat(cache.getDir().resolve("index-id").toFile()).doesNotExist();
+  }
+
+  @Test
+  public void testHeader() throws IOException {
+    val spec = createSpec(bam, md5(bam));
+    val header = cache.getHeader("bam-id", spec);
+    assertThat(header.length).isGreaterThan(0).isLessThan((int) bam.length());
+    assertThat(cache.getHeader("bam-id", spec)).isEqualTo(header);
+
+    @Cleanup
+    val reader = SamReaderFactory.makeDefault().open(
+        SamInputResource.of(new RangeCoalescingSeekableStream(bam.toURI().toURL(), header, new SeekableFileStream(bam),
+            MoreExecutors.newDirectExecutorService()))
+            .index(new ByteArraySeekableStream(Files.readAllBytes(bai.toPath()))));
+    assertThat(reader.getFileHeader().getReadGroups()).hasSize(2);
+
+    @Cleanup
+    val iterator = reader.query("chr2", 1, 10000, false);
+    int count = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    assertThat(count).isEqualTo(1000);
+  }
+
+  @Test
+  public void testHeaderNotBam() throws IOException {
+    val sam = tmp.newFile("test.sam");
+    Files.write(sam.toPath(), "@HD\tVN:1.4\n".getBytes(UTF_8));
+
+    assertThat(cache.getHeader("sam-id", createSpec(sam, md5(sam)))).isEmpty();
+    assertThat(cache.getSize()).isZero();
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    val disabled = new SamResourceCache(new File(tmp.getRoot(), "disabled"), 0);
+    disabled.getIndex("index-id", createSpec(bai, md5(bai)));
+
+    assertThat(disabled.getDir().toFile()).doesNotExist();
+  }
+
+  private static void writeBam(File file) {
+    val header = new SAMFileHeader();
+    header.setSortOrder(SortOrder.coordinate);
+    for (int i = 1; i <= 2000; i++) {
+      header.addSequence(new SAMSequenceRecord("chr" + i, 1000000));
+    }
+    for (val id : ImmutableList.of("A", "B")) {
+      val readGroup = new SAMReadGroupRecord(id);
+      readGroup.setSample("sample");
+      header.addReadGroup(readGroup);
+    }
+
+    @Cleanup
+    val writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, true, file);
+    for (int i = 0; i < 20000; i++) {
+      val record = new SAMRecord(header);
+      record.setReadName("read" + i);
+      record.setReferenceName("chr" + (1 + i / 1000));
+      record.setAlignmentStart(1 + (i % 1000) * 10);
+      record.setCigarString("50M");
+      record.setReadString("ACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTAC");
+      record.setBaseQualityString("IIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIII");
+      record.setAttribute("RG", i % 2 == 0 ? "A" : "B");
+      writer.addAlignment(record);
+    }
+  }
+
+  private static ObjectSpecification createSpec(File file, String md5) throws IOException {
+    val spec = new ObjectSpecification();
+    spec.setObjectSize(file.length());
+    spec.setObjectMd5(md5);
+    spec.setParts(ImmutableList.of(new Part(1, file.length(), 0, file.toURI().toURL().toString(), null, null)));
+
+    return spec;
+  }
+
+  private static String md5(File file) throws IOException {
+    return Hashing.md5().hashBytes(Files.readAllBytes(file.toPath())).toString();
+  }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import htsjdk.samtools.seekablestream.SeekableFileStream;
+import lombok.val;
+
+public class RangeCoalescingSeekableStreamTest {
+
+  /**
+   * Constants.
+   */
+  private static final int MB = 1024 * 1024;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  byte[] content;
+  File file;
+
+  /**
+   * Connections opened to the file, which keep the requested {@code Range}.
+   */
+  List<URLConnection> connections = new CopyOnWriteArrayList<>();
+  int failures;
+
+  RangeCoalescingSeekableStream sut;
+
+  @Before
+  public void setUp() throws IOException {
+    content = new byte[12 * MB];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) (i % 251);
+    }
+
+    file = tmp.newFile("object");
+    Files.write(file.toPath(), content);
+
+    // Fetches complete as they are scheduled
+    sut = new RangeCoalescingSeekableStream(url(), new byte[0], new SeekableFileStream(file),
+        MoreExecutors.newDirectExecutorService());
+  }
+
+  @Test
+  public void testCloseRangesAreCoalesced() throws IOException {
+    sut.prefetch(ImmutableList.of(range(0, 1000), range(50000, 60000), range(2 * MB, 2 * MB + 1000)));
+
+    // The first gap is small enough to be fetched along
+    assertThat(getRequestedRanges()).containsExactly("bytes=0-59999", "bytes=2097152-2098151");
+    assertRead(0, 60000);
+    assertRead(2 * MB, 1000);
+  }
+
+  @Test
+  public void testLargeRangesAreSplit() throws IOException {
+    sut.prefetch(ImmutableList.of(range(1000, 1000 + 10 * MB)));
+
+    assertThat(getRequestedRanges()).containsExactly("bytes=1000-4195303", "bytes=4195304-8389607",
+        "bytes=8389608-10486759");
+  }
+
+  @Test
+  public void testReadsAcrossRangeBoundaries() throws IOException {
+    sut.prefetch(ImmutableList.of(range(0, 6 * MB), range(7 * MB, 8 * MB)));
+
+    // Spans two requests, then the unplanned gap and a planned range
+    assertRead(4 * MB - 100, 200);
+    assertRead(6 * MB - 100, MB + 200);
+    assertThat(connections).hasSize(3);
+  }
+
+  @Test
+  public void testFailedFetchFallsBack() throws IOException {
+    failures = 1;
+    sut.prefetch(ImmutableList.of(range(0, 1000), range(MB, MB + 1000)));
+
+    assertThat(getRequestedRanges()).containsExactly("bytes=1048576-1049575");
+    assertRead(0, 1000);
+    assertRead(MB, 1000);
+  }
+
+  @Test
+  public void testReplanning() throws IOException {
+    sut.prefetch(ImmutableList.of(range(0, 1000)));
+    sut.prefetch(ImmutableList.of(range(5 * MB, 5 * MB + 1000)));
+
+    assertThat(getRequestedRanges()).containsExactly("bytes=0-999", "bytes=5242880-5243879");
+    assertRead(0, 1000);
+    assertRead(5 * MB, 1000);
+
+    // Nothing more was fetched for the first plan
+    assertThat(connections).hasSize(2);
+  }
+
+  @Test
+  public void testPrefetchBudget() throws IOException {
+    sut.prefetch(ImmutableList.of(range(0, MB)), 256 * 1024);
+
+    // Only one request of the budget is held ahead of the reader
+    assertThat(getRequestedRanges()).containsExactly("bytes=0-262143");
+    assertRead(0, MB);
+    assertThat(connections).hasSize(4);
+  }
+
+  private void assertRead(long position, int length) throws IOException {
+    val buffer = new byte[length];
+    sut.seek(position);
+    sut.readFully(buffer);
+
+    val expected = Arrays.copyOfRange(content, (int) position, (int) position + length);
+    assertThat(buffer).isEqualTo(expected);
+    assertThat(sut.position()).isEqualTo(position + length);
+  }
+
+  private List<String> getRequestedRanges() {
+    val ranges = ImmutableList.<String> builder();
+    for (val connection : connections) {
+      ranges.add(connection.getRequestProperty("Range"));
+    }
+
+    return ranges.build();
+  }
+
+  private URL url() throws IOException {
+    val fileUrl = file.toURI().toURL();
+    return new URL(null, fileUrl.toString(), new URLStreamHandler() {
+
+      @Override
+      protected URLConnection openConnection(URL url) throws IOException {
+        if (failures > 0) {
+          failures--;
+          throw new IOException("Failed to connect");
+        }
+
+        // Keeps its request properties readable once read from
+        val connection = new URLConnection(url) {
+
+          @Override
+          public void connect() {
+          }
+
+          @Override
+          public InputStream getInputStream() throws IOException {
+            return fileUrl.openStream();
+          }
+
+        };
+        connections.add(connection);
+        return connection;
+      }
+
+    });
+  }
+
+  private static Range<Long> range(long start, long end) {
+    return Range.closedOpen(start, end);
+  }
+
+}
@@ -22,6 +22,11 @@ import java.util.Collection;
 import java.util.Optional;
 
 import org.icgc.dcc.storage.core.model.IndexFileType;
+import org.icgc.dcc.storage.fs.cache.BlockCache;
+import org.icgc.dcc.storage.fs.cache.DiskBlockCache;
+import org.icgc.dcc.storage.fs.cache.ReadAhead;
+import org.icgc.dcc.storage.fs.metric.StorageMetrics;
+import org.icgc.dcc.storage.fs.util.HttpConnectionPool;
 
 public interface StorageContext {
 
@@ -31,6 +36,12 @@ public interface StorageContext {
 
   Collection<StorageFile> getFiles();
 
+  /**
+   * @return a tree that is complete for {@code path} and its children, waiting only on their metadata if it is still
+   * being indexed
+   */
+  StorageFileTree getFileTree(String path);
+
   StorageFile getFile(String objectId);
 
   Optional<StorageFile> getIndexFile(String objectId, IndexFileType indexFileType);
@@ -39,6 +50,19 @@ public interface StorageContext {
 
   URL getUrl(String objectId);
 
-  void incrementCount(String name, long value);
+  /**
+   * Loads the URLs of {@code objectIds} in the background so that subsequent reads do not wait on them.
+   */
+  void prefetchUrls(Collection<String> objectIds);
+
+  HttpConnectionPool getConnectionPool();
+
+  Optional<BlockCache> getBlockCache();
+
+  Optional<ReadAhead> getReadAhead();
+
+  Optional<DiskBlockCache> getDiskBlockCache();
+
+  StorageMetrics getMetrics();
 
 }
@@ -17,11 +17,15 @@
  */
 package org.icgc.dcc.storage.fs;
 
+import static java.util.stream.Stream.concat;
+
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
 import java.util.Iterator;
-import java.util.List;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ObjectArrays;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -37,30 +41,20 @@ public class StorageDirectoryStream implements DirectoryStream<Path> {
   @NonNull
   private final StoragePath path;
   @NonNull
-  private final StorageFileLayout layout;
-  @NonNull
   private final Filter<? super Path> filter;
 
   /**
    * Metadata.
    */
   @NonNull
-  private final List<StorageFile> files;
+  private final StorageFileTree tree;
 
   @Override
   public Iterator<Path> iterator() {
-    if (layout == StorageFileLayout.BUNDLE) {
-      if (isRoot()) {
-        return listGnosDirs();
-      } else {
-        val gnosId = getGnosId();
-        return listGnosDir(gnosId);
-      }
-    } else if (layout == StorageFileLayout.OBJECT_ID) {
-      return listRoot();
-    }
-
-    return null;
+    val children = tree.list(path.getTreePath()).stream().map(this::childPath);
+    val entries = isRoot() ? concat(Stream.of(statsPath()), children) : children;
+
+    return entries.filter(this::filterPath).iterator();
   }
 
   @Override
@@ -68,49 +62,17 @@ public class StorageDirectoryStream implements DirectoryStream<Path> {
     // Stateless
   }
 
-  private String getGnosId() {
-    return path.getParts()[0];
-  }
-
   private boolean isRoot() {
     // Don't trust StoragePath#equals yet
     return path.toAbsolutePath().toString().equals("/");
   }
 
-  private Iterator<Path> listGnosDirs() {
-    return files.stream()
-        .map(file -> file.getGnosId())
-        .distinct()
-        .map(this::gnosIdPath)
-        .filter(this::filterPath).iterator();
-  }
-
-  private Iterator<Path> listGnosDir(String gnosId) {
-    val objectFiles = files.stream()
-        .filter(entity -> entity.getGnosId().equals(gnosId))
-        .map(this::filePath)
-        .filter(this::filterPath).iterator();
-
-    return objectFiles;
-  }
-
-  private Iterator<Path> listRoot() {
-    return files.stream()
-        .map(this::filePath)
-        .filter(this::filterPath).iterator();
-  }
-
-  private Path gnosIdPath(String gnosId) {
-    return absolutePath(gnosId);
+  private Path statsPath() {
+    return absolutePath(StoragePath.STATS_FILE_NAME);
   }
 
-  private Path filePath(StorageFile file) {
-    if (layout == StorageFileLayout.BUNDLE) {
-      return absolutePath(file.getGnosId(), file.getFileName());
-    } else if (layout == StorageFileLayout.OBJECT_ID) {
-      return absolutePath(file.getObjectId());
-    }
-    return null;
+  private Path childPath(String name) {
+    return isRoot() ? absolutePath(name) : absolutePath(ObjectArrays.concat(path.getParts(), name));
   }
 
   private Path absolutePath(String... parts) {
@@ -122,4 +84,4 @@ public class StorageDirectoryStream implements DirectoryStream<Path> {
     return filter.accept(path);
   }
 
-}
\ No newline at end of file
+}
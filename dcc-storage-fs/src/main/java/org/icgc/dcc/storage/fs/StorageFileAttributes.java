@@ -17,16 +17,12 @@
  */
 package org.icgc.dcc.storage.fs;
 
-import static java.util.regex.Pattern.compile;
-
-import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.GroupPrincipal;
 import java.nio.file.attribute.PosixFileAttributes;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.UserPrincipal;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import org.icgc.dcc.storage.core.model.IndexFileType;
 
@@ -39,11 +35,11 @@ import lombok.val;
 @RequiredArgsConstructor
 public class StorageFileAttributes implements PosixFileAttributes {
 
-  private final Pattern REGULAR_FILE_PATTERN = compile(
-      "/" + "[^/]*/" + ".+"); // <root>/ <dir>/ <file>
-
   private final static FileTime DEFAULT_TIME = FileTime.fromMillis(System.currentTimeMillis());
 
+  // Nominal, since the statistics are rendered when opened and read with direct I/O regardless of the reported size
+  private final static long STATS_FILE_SIZE = 64 * 1024;
+
   /**
    * Configuration.
    */
@@ -58,6 +54,10 @@ public class StorageFileAttributes implements PosixFileAttributes {
 
   @Override
   public FileTime lastModifiedTime() {
+    if (path.isStatsFile()) {
+      return FileTime.fromMillis(System.currentTimeMillis());
+    }
+
     val real = path.getFile().isPresent();
     return real ? FileTime.fromMillis(path.getFile().get().getLastModified()) : DEFAULT_TIME;
   }
@@ -80,8 +80,12 @@ public class StorageFileAttributes implements PosixFileAttributes {
       return false;
     }
 
+    if (path.isStatsFile()) {
+      return true;
+    }
+
     if (context.getLayout() == StorageFileLayout.BUNDLE) {
-      return matches(path, REGULAR_FILE_PATTERN);
+      return path.getParts().length >= 2; // <root>/ <dir>/ <file>
     } else {
       return !path.toString().equals("/");
     }
@@ -113,6 +117,10 @@ public class StorageFileAttributes implements PosixFileAttributes {
 
   @Override
   public long size() {
+    if (path.isStatsFile()) {
+      return STATS_FILE_SIZE;
+    }
+
     return path.getFile().isPresent() ? path.getFile().get().getSize() : 0;
   }
 
@@ -136,8 +144,4 @@ public class StorageFileAttributes implements PosixFileAttributes {
     return ImmutableSet.of(PosixFilePermission.OWNER_READ);
   }
 
-  private static boolean matches(Path path, Pattern patern) {
-    return patern.matcher(path.toString()).matches();
-  }
-
 }
\ No newline at end of file
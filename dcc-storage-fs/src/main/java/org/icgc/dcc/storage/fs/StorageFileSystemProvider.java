@@ -17,7 +17,7 @@
  */
 package org.icgc.dcc.storage.fs;
 
-import static java.util.Comparator.comparing;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 
 import java.io.IOException;
@@ -38,12 +38,12 @@ import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.FileAttributeView;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.icgc.dcc.storage.core.model.IndexFileType;
+import org.icgc.dcc.storage.fs.util.ByteArraySeekableByteChannel;
 import org.icgc.dcc.storage.fs.util.ReadOnlyFileSystemProvider;
 
 import lombok.Getter;
@@ -106,14 +106,23 @@ public class StorageFileSystemProvider extends ReadOnlyFileSystemProvider {
       throws IOException {
     log.debug("newByteChannel(path={}, options={}, attrs={})", path, options, Arrays.toString(attrs));
 
-    return new StorageSeekableByteChannel((StoragePath) path, context);
+    val storagePath = (StoragePath) path;
+    if (storagePath.isStatsFile()) {
+      return new ByteArraySeekableByteChannel(getStats());
+    }
+
+    return new StorageSeekableByteChannel(storagePath, context);
   }
 
   @Override
   public DirectoryStream<Path> newDirectoryStream(Path path, Filter<? super Path> filter) throws IOException {
     log.debug("newDirectoryStream(path={}, filter={})", path, filter);
-    val files = getFiles();
-    return new StorageDirectoryStream((StoragePath) path, context.getLayout(), filter, files);
+    val storagePath = (StoragePath) path;
+    val treePath = storagePath.getTreePath();
+    val tree = context.getFileTree(treePath);
+    prefetchUrls(tree.getFiles(treePath));
+
+    return new StorageDirectoryStream(storagePath, filter, tree);
   }
 
   @Override
@@ -175,18 +184,17 @@ public class StorageFileSystemProvider extends ReadOnlyFileSystemProvider {
         Arrays.toString(options));
   }
 
-  private List<StorageFile> getFiles() {
-    val files = context.getFiles();
-
-    Comparator<StorageFile> comparison = null;
-    if (context.getLayout() == StorageFileLayout.BUNDLE) {
-      comparison = comparing(file -> file.getGnosId());
-      comparison = comparison.thenComparing(file -> file.getFileName());
-    } else if (context.getLayout() == StorageFileLayout.OBJECT_ID) {
-      comparison = comparing(file -> file.getObjectId());
+  /**
+   * Listings are usually followed by reads of the listed files, so sign their URLs ahead of time.
+   */
+  private void prefetchUrls(List<StorageFile> files) {
+    if (!files.isEmpty()) {
+      context.prefetchUrls(files.stream().map(StorageFile::getObjectId).collect(toList()));
     }
+  }
 
-    return files.stream().sorted(comparison).collect(toList());
+  private byte[] getStats() {
+    return (context.getMetrics().toJson(true) + "\n").getBytes(UTF_8);
   }
 
 }
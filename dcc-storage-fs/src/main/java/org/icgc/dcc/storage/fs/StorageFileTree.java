@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs;
+
+import static com.google.common.collect.Multimaps.index;
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.icgc.dcc.storage.core.model.IndexFileType;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * Immutable index of the directory tree that a {@link StorageFileLayout} presents over a collection of files. Built
+ * once so that path lookups are constant time and listings are proportional to the number of children.
+ * <p>
+ * Paths are absolute and {@code /} separated, with {@code /} denoting the root.
+ */
+public class StorageFileTree {
+
+  /**
+   * Constants.
+   */
+  public static final String ROOT = "/";
+
+  /**
+   * State.
+   */
+  private final Map<String, StorageFile> files;
+  private final Map<String, StorageFile> indexAliases; // By path with a lower case extension
+  private final Map<String, List<String>> directories;
+
+  public StorageFileTree(@NonNull StorageFileLayout layout, @NonNull Collection<StorageFile> files) {
+    val paths = new HashMap<String, StorageFile>();
+    val aliases = new HashMap<String, StorageFile>();
+    val children = new TreeMap<String, TreeSet<String>>();
+    children.put(ROOT, new TreeSet<>());
+
+    if (layout == StorageFileLayout.BUNDLE) {
+      for (val file : files) {
+        val directory = getPath(file.getGnosId());
+        paths.putIfAbsent(getPath(file.getGnosId(), file.getFileName()), file);
+        children.get(ROOT).add(file.getGnosId());
+        children.computeIfAbsent(directory, key -> new TreeSet<>()).add(file.getFileName());
+      }
+    } else if (layout == StorageFileLayout.OBJECT_ID) {
+      val bundles = index(files, StorageFile::getGnosId);
+      for (val file : files) {
+        paths.putIfAbsent(getPath(file.getObjectId()), file);
+        children.get(ROOT).add(file.getObjectId());
+
+        // Hidden aliases of the form <object id>.<index extension> that resolve to the file's index within its bundle
+        for (val indexFileType : IndexFileType.values()) {
+          bundles.get(file.getGnosId()).stream()
+              .filter(f -> isIndexFile(f.getFileName(), file.getFileName(), indexFileType))
+              .findFirst()
+              .ifPresent(indexFile -> aliases.putIfAbsent(
+                  getPath(file.getObjectId() + '.' + indexFileType.getExtension()), indexFile));
+        }
+      }
+    }
+
+    this.files = ImmutableMap.copyOf(paths);
+    this.indexAliases = ImmutableMap.copyOf(aliases);
+
+    val directories = ImmutableMap.<String, List<String>> builder();
+    children.forEach((path, names) -> directories.put(path, ImmutableList.copyOf(names)));
+    this.directories = directories.build();
+  }
+
+  public Optional<StorageFile> getFile(@NonNull String path) {
+    val file = files.get(path);
+    if (file != null) {
+      return Optional.of(file);
+    }
+
+    // Index extensions match in any case
+    return IndexFileType.fromPath(path)
+        .map(indexFileType -> indexAliases.get(
+            path.substring(0, path.lastIndexOf('.') + 1) + indexFileType.getExtension()));
+  }
+
+  public boolean isDirectory(@NonNull String path) {
+    return directories.containsKey(path);
+  }
+
+  /**
+   * @return the sorted names of the children of {@code path}, or an empty list if it is not a directory
+   */
+  public List<String> list(@NonNull String path) {
+    val names = directories.get(path);
+    return names == null ? ImmutableList.of() : names;
+  }
+
+  /**
+   * @return the files among the children of {@code path}, in name order
+   */
+  public List<StorageFile> getFiles(@NonNull String path) {
+    val prefix = path.equals(ROOT) ? ROOT : path + "/";
+    return list(path).stream()
+        .map(name -> files.get(prefix + name))
+        .filter(Objects::nonNull)
+        .collect(toList());
+  }
+
+  /**
+   * @return whether {@code name} contains {@code fileName} followed by the extension of {@code indexFileType} in any
+   * case
+   */
+  private static boolean isIndexFile(String name, String fileName, IndexFileType indexFileType) {
+    val extension = indexFileType.getExtension();
+    val prefix = fileName + '.';
+    for (int start = name.indexOf(prefix); start >= 0; start = name.indexOf(prefix, start + 1)) {
+      if (name.regionMatches(true, start + prefix.length(), extension, 0, extension.length())) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  public static String getPath(@NonNull String... parts) {
+    return ROOT + String.join("/", parts);
+  }
+
+}
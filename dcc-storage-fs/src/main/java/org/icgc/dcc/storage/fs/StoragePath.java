@@ -25,7 +25,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
-import org.icgc.dcc.storage.core.model.IndexFileType;
 import org.icgc.dcc.storage.fs.util.GenericPath;
 
 import lombok.val;
@@ -36,6 +35,11 @@ import lombok.val;
  */
 public class StoragePath extends GenericPath<StorageFileSystem> {
 
+  /**
+   * Constants.
+   */
+  public static final String STATS_FILE_NAME = ".icgc-stats"; // Virtual file of live file system statistics
+
   private final StorageFileLayout layout;
   private final StorageContext context;
 
@@ -52,34 +56,19 @@ public class StoragePath extends GenericPath<StorageFileSystem> {
   }
 
   public Optional<StorageFile> getFile() {
-    if (layout == StorageFileLayout.BUNDLE) {
-      if (parts.length < 2) {
-        return Optional.empty();
-      }
-
-      val gnosId = getGnosId();
-      val fileName = getFilename();
-
-      return context.getFilesByGnosId(gnosId).stream()
-          .filter(file -> file.getFileName().equals(fileName))
-          .findFirst();
-    } else if (layout == StorageFileLayout.OBJECT_ID) {
-      if (parts.length == 0) {
-        return Optional.empty();
-      }
-
-      val fileName = getFilename();
-
-      val indexFileType = IndexFileType.fromPath(fileName);
-      if (indexFileType.isPresent()) {
-        val objectId = IndexFileType.getFileName(fileName);
-        return context.getIndexFile(objectId, indexFileType.get());
-      }
+    val treePath = getTreePath();
+    return context.getFileTree(treePath).getFile(treePath);
+  }
 
-      return Optional.ofNullable(context.getFile(fileName));
-    }
+  /**
+   * @return the absolute path of this path within the {@link StorageFileTree}
+   */
+  public String getTreePath() {
+    return StorageFileTree.getPath(parts);
+  }
 
-    return Optional.empty();
+  public boolean isStatsFile() {
+    return parts.length == 1 && parts[0].equals(STATS_FILE_NAME);
   }
 
   public String getGnosId() {
@@ -19,7 +19,13 @@ package org.icgc.dcc.storage.fs;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
+import org.icgc.dcc.storage.fs.cache.BlockCache;
 import org.icgc.dcc.storage.fs.util.SeekableURLByteChannel;
 
 import lombok.NonNull;
@@ -28,6 +34,11 @@ import lombok.val;
 
 public class StorageSeekableByteChannel extends SeekableURLByteChannel {
 
+  /**
+   * Constants.
+   */
+  private static final int SEQUENTIAL_THRESHOLD = 2; // Consecutive blocks before reading ahead
+
   /**
    * Configuration.
    */
@@ -38,21 +49,159 @@ public class StorageSeekableByteChannel extends SeekableURLByteChannel {
    */
   private final StorageContext context;
 
+  /**
+   * State - Read-ahead
+   */
+  private long lastBlockIndex = -1;
+  private int sequentialCount;
+  private long readAheadIndex;
+  private final Deque<Future<?>> readAheads = new ArrayDeque<>();
+
   public StorageSeekableByteChannel(@NonNull StoragePath path, @NonNull StorageContext context) {
-    super(getUrl(path, context));
+    super(getUrl(path, context), context.getConnectionPool());
     this.path = path;
     this.context = context;
   }
 
   @Override
-  protected void onResolveInputStream() throws IOException {
-    val currentUrl = getUrl(path, context);
-    val timeout = url != currentUrl;
-    if (timeout) {
-      // Close the connection and assign new URL with extended timeout
-      close();
-      this.url = currentUrl;
+  public int read(ByteBuffer buffer, long position) throws IOException {
+    val file = path.getFile();
+    val blockCache = context.getBlockCache();
+    val start = System.nanoTime();
+    try {
+      val cached = file.isPresent() && blockCache.isPresent();
+      val n = cached ? readBlocks(buffer, position, blockCache.get(), file.get()) : super.read(buffer, position);
+      if (n > 0 && file.isPresent()) {
+        context.getMetrics().recordRead(file.get(), n, System.nanoTime() - start);
+      }
+
+      return n;
+    } finally {
+      publishCounts();
+    }
+  }
+
+  private int readBlocks(ByteBuffer buffer, long position, BlockCache cache, StorageFile file) throws IOException {
+    if (buffer.remaining() == 0) {
+      // Nothing to fill
+      return 0;
+    }
+
+    val size = size();
+    if (position >= size) {
+      // EOF
+      return -1;
+    }
+
+    // Serve from whole blocks, loading missing ones with a bounded request each so no connection is held between reads
+    val objectId = file.getObjectId();
+    int n = 0;
+    while (buffer.hasRemaining() && position < size) {
+      val blockIndex = cache.getBlockIndex(position);
+      readAhead(cache, file, blockIndex, size);
+      val start = cache.getBlockOffset(blockIndex);
+      val length = (int) Math.min(cache.getBlockSize(), size - start);
+      val block = cache.get(objectId, blockIndex,
+          () -> loadBlock(file, blockIndex, () -> readBlock(getUrl(path, context), start, length)));
+
+      val blockPosition = (int) (position - start);
+      val count = Math.min(buffer.remaining(), block.limit() - blockPosition);
+      block.position(blockPosition).limit(blockPosition + count);
+      buffer.put(block);
+
+      position += count;
+      n += count;
+    }
+
+    return n;
+  }
+
+  /**
+   * Loads a block from the disk cache if present, otherwise from {@code remote}, storing the result on disk.
+   */
+  private ByteBuffer loadBlock(StorageFile file, long blockIndex, Callable<ByteBuffer> remote) throws Exception {
+    val diskCache = context.getDiskBlockCache();
+    if (!diskCache.isPresent()) {
+      return remote.call();
+    }
+
+    val cached = diskCache.get().read(file, blockIndex);
+    if (cached != null) {
+      return cached;
     }
+
+    val block = remote.call();
+    diskCache.get().write(file, blockIndex, block);
+
+    return block;
+  }
+
+  /**
+   * Once access is sequential, keeps the next blocks loading in parallel. Any other access cancels pending loads.
+   */
+  synchronized private void readAhead(BlockCache cache, StorageFile file, long blockIndex, long size) {
+    val readAhead = context.getReadAhead();
+    if (!readAhead.isPresent() || blockIndex == lastBlockIndex) {
+      return;
+    }
+
+    if (blockIndex == lastBlockIndex + 1) {
+      sequentialCount++;
+    } else {
+      sequentialCount = 0;
+      cancelReadAhead();
+    }
+
+    lastBlockIndex = blockIndex;
+    if (sequentialCount < SEQUENTIAL_THRESHOLD) {
+      return;
+    }
+
+    readAheads.removeIf(Future::isDone);
+    val url = getUrl(path, context);
+    val end = Math.min(blockIndex + readAhead.get().getBlocks(), cache.getBlockIndex(size - 1));
+    for (long index = Math.max(readAheadIndex, blockIndex + 1); index <= end; index++) {
+      val start = cache.getBlockOffset(index);
+      val length = (int) Math.min(cache.getBlockSize(), size - start);
+      val blockIndexAhead = index;
+      val future = readAhead.get().submit(file.getObjectId(), index,
+          () -> loadBlock(file, blockIndexAhead, () -> readBlock(url, start, length)));
+      if (future != null) {
+        readAheads.add(future);
+      }
+    }
+
+    readAheadIndex = Math.max(readAheadIndex, end + 1);
+  }
+
+  private ByteBuffer readBlock(URL url, long start, int length) throws IOException {
+    val block = BlockCache.allocate(length);
+    val time = System.nanoTime();
+    val n = readRange(url, start, block, length);
+    block.flip();
+
+    val metrics = context.getMetrics();
+    metrics.recordLatency("blockLoad", System.nanoTime() - time);
+    metrics.increment("connectCount", 1);
+    metrics.increment("byteCount", n);
+
+    return block;
+  }
+
+  synchronized private void cancelReadAhead() {
+    for (val future : readAheads) {
+      future.cancel(false);
+    }
+
+    readAheads.clear();
+    readAheadIndex = 0;
+  }
+
+  @Override
+  protected void onResolveInputStream() throws IOException {
+    // An open range stream outlives the signature of the URL it was requested with, so a refreshed URL is only
+    // needed for the next request
+    this.url = getUrl(path, context);
   }
 
   @SneakyThrows
@@ -76,10 +225,19 @@ public class StorageSeekableByteChannel extends SeekableURLByteChannel {
   }
 
   @Override
-  synchronized public void close() throws IOException {
+  public void close() throws IOException {
     super.close();
-    context.incrementCount("connectCount", connectCount);
-    context.incrementCount("byteCount", byteCount);
+    cancelReadAhead();
+    publishCounts();
+  }
+
+  /**
+   * Moves this channel's connection and byte counts to the shared metrics so they are observable while it is open.
+   */
+  private void publishCounts() {
+    val metrics = context.getMetrics();
+    metrics.increment("connectCount", connectCount.getAndSet(0));
+    metrics.increment("byteCount", byteCount.getAndSet(0));
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * In-memory LRU cache of fixed size, aligned blocks of remote objects, shared by all channels of a file system.
+ * <p>
+ * Blocks are held in direct (off-heap) buffers so a large cache does not add to GC pressure. Concurrent requests for
+ * the same missing block wait for a single load.
+ */
+public class BlockCache {
+
+  /**
+   * Constants.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024; // 1 MB
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final int blockSize;
+  @Getter
+  private final long capacity;
+
+  /**
+   * State.
+   */
+  private final Cache<BlockKey, ByteBuffer> blocks;
+
+  public BlockCache(long capacity) {
+    this(capacity, DEFAULT_BLOCK_SIZE);
+  }
+
+  public BlockCache(long capacity, int blockSize) {
+    checkArgument(capacity > 0, "Cache capacity must be positive: %s", capacity);
+    checkArgument(blockSize > 0, "Block size must be positive: %s", blockSize);
+    this.capacity = capacity;
+    this.blockSize = blockSize;
+    this.blocks = CacheBuilder.newBuilder()
+        // Single segment so the whole capacity is one LRU rather than being split per segment. Loads do not hold the
+        // segment lock.
+        .concurrencyLevel(1)
+        .maximumWeight(capacity)
+        .weigher((BlockKey key, ByteBuffer block) -> block.capacity())
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * @return a read-only view of the block, loading it with {@code loader} if absent. The loaded buffer must be flipped
+   * (positioned at 0 with its limit at the block length).
+   */
+  public ByteBuffer get(@NonNull String objectId, long blockIndex, @NonNull Callable<ByteBuffer> loader)
+      throws IOException {
+    try {
+      return blocks.get(new BlockKey(objectId, blockIndex), loader).asReadOnlyBuffer();
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  public boolean contains(@NonNull String objectId, long blockIndex) {
+    return blocks.asMap().containsKey(new BlockKey(objectId, blockIndex));
+  }
+
+  public long getBlockIndex(long position) {
+    return position / blockSize;
+  }
+
+  public long getBlockOffset(long blockIndex) {
+    return blockIndex * blockSize;
+  }
+
+  public CacheStats getStats() {
+    return blocks.stats();
+  }
+
+  public long getSize() {
+    return blocks.size();
+  }
+
+  /**
+   * Allocates an off-heap buffer for a block of {@code length} bytes.
+   */
+  public static ByteBuffer allocate(int length) {
+    return ByteBuffer.allocateDirect(length);
+  }
+
+  @Value
+  private static class BlockKey {
+
+    String objectId;
+    long blockIndex;
+
+  }
+
+}
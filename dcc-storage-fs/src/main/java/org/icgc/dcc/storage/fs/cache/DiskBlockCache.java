@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.icgc.dcc.storage.fs.StorageFile;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent, size bounded LRU cache of object blocks that survives across mount sessions.
+ * <p>
+ * Blocks are stored as {@code <dir>/<object id>/<size>-<last modified>-<block size>/<block index>}, so a block is only
+ * found if the object is unchanged and the block geometry matches. Stale versions are removed the first time an object
+ * is accessed. Blocks are written to a {@link DiskStore} by a background thread. Writes are not synced: a block that did
+ * not reach the disk before a crash has the wrong length and is discarded when read.
+ */
+@Slf4j
+public class DiskBlockCache {
+
+  /**
+   * Constants.
+   */
+  private static final int MAX_PENDING_WRITES = 64; // Blocks held in memory while the disk falls behind
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final int blockSize;
+
+  /**
+   * Dependencies.
+   */
+  private final DiskStore store;
+
+  /**
+   * State.
+   */
+  private final Set<String> validatedObjectIds = ConcurrentHashMap.newKeySet();
+  private final ExecutorService writer;
+
+  /**
+   * State - Metrics
+   */
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong droppedWriteCount = new AtomicLong();
+
+  public DiskBlockCache(@NonNull Path dir, long capacity, int blockSize) throws IOException {
+    checkArgument(blockSize > 0, "Block size must be positive: %s", blockSize);
+    this.blockSize = blockSize;
+    this.store = new DiskStore(dir, capacity);
+
+    this.writer = new ThreadPoolExecutor(1, 1, 0, MILLISECONDS, new LinkedBlockingQueue<>(MAX_PENDING_WRITES),
+        new ThreadFactoryBuilder().setNameFormat("disk-cache-writer-%s").setDaemon(true).build(),
+        (task, executor) -> droppedWriteCount.incrementAndGet());
+  }
+
+  /**
+   * @return the cached block, flipped and ready for reading, or {@code null} if absent
+   */
+  public ByteBuffer read(@NonNull StorageFile file, long blockIndex) throws IOException {
+    validate(file);
+
+    val path = getBlockPath(file, blockIndex);
+    val length = getBlockLength(file, blockIndex);
+    try {
+      @Cleanup
+      val channel = FileChannel.open(path, READ);
+      if (channel.size() != length) {
+        log.warn("Removing corrupt cached block '{}' of size {} (expected {})", path, channel.size(), length);
+        store.remove(path);
+        missCount.incrementAndGet();
+        return null;
+      }
+
+      val block = BlockCache.allocate(length);
+      while (block.hasRemaining()) {
+        if (channel.read(block) < 0) break;
+      }
+      block.flip();
+
+      store.touch(path);
+      hitCount.incrementAndGet();
+      return block;
+    } catch (NoSuchFileException e) {
+      missCount.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Stores {@code block} from its position to its limit in the background, so the caller does not wait on the disk. The
+   * block's content must not change afterwards. Writes are dropped while too many are pending and failures are logged,
+   * since the cache is optional.
+   */
+  public void write(@NonNull StorageFile file, long blockIndex, @NonNull ByteBuffer block) {
+    val source = block.duplicate();
+    writer.execute(() -> store(file, blockIndex, source));
+  }
+
+  /**
+   * Finishes pending writes, waiting a bounded time.
+   */
+  public void shutdown() {
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, SECONDS)) {
+        log.warn("Gave up waiting for pending cache writes to '{}'", getDir());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public Path getDir() {
+    return store.getDir();
+  }
+
+  public long getCapacity() {
+    return store.getCapacity();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getEvictionCount() {
+    return store.getEvictionCount();
+  }
+
+  public long getDroppedWriteCount() {
+    return droppedWriteCount.get();
+  }
+
+  public long getSize() {
+    return store.getSize();
+  }
+
+  private void store(StorageFile file, long blockIndex, ByteBuffer block) {
+    try {
+      store.write(getBlockPath(file, blockIndex), block);
+    } catch (IOException e) {
+      log.warn("Failed to cache block {} of '{}': {}", blockIndex, file.getObjectId(), e.getMessage());
+    }
+  }
+
+  private Path getBlockPath(StorageFile file, long blockIndex) {
+    val version = file.getSize() + "-" + file.getLastModified() + "-" + blockSize;
+    return getDir().resolve(file.getObjectId()).resolve(version).resolve(Long.toString(blockIndex));
+  }
+
+  private int getBlockLength(StorageFile file, long blockIndex) {
+    return (int) Math.min(blockSize, file.getSize() - blockIndex * blockSize);
+  }
+
+  /**
+   * Removes versions of the object other than the current one, once per session.
+   */
+  @SneakyThrows
+  private void validate(StorageFile file) {
+    if (!validatedObjectIds.add(file.getObjectId())) {
+      return;
+    }
+
+    val objectDir = getDir().resolve(file.getObjectId());
+    if (!Files.isDirectory(objectDir)) {
+      return;
+    }
+
+    val current = getBlockPath(file, 0).getParent();
+    @Cleanup
+    val versions = Files.list(objectDir);
+    versions.filter(version -> !version.equals(current)).forEach(this::removeVersion);
+  }
+
+  @SneakyThrows
+  private void removeVersion(Path version) {
+    log.info("Removing stale cached blocks '{}'", version);
+    @Cleanup
+    val paths = Files.list(version);
+    paths.forEach(store::remove);
+    DiskStore.delete(version);
+  }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent, size bounded LRU store of the files under a directory, shared by the caches that keep content on disk
+ * across sessions.
+ * <p>
+ * Files are written to a temporary file and atomically renamed, so a partial file is never visible. Writes are not
+ * synced, so callers must validate what they read. Recency is kept in file modification times so the LRU order survives
+ * restarts. The least recently used files are deleted whenever the total size exceeds the capacity.
+ */
+@Slf4j
+public class DiskStore {
+
+  /**
+   * Constants.
+   */
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final Path dir;
+  @Getter
+  private final long capacity;
+
+  /**
+   * State.
+   */
+  private final LinkedHashMap<Path, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+  private long size;
+
+  /**
+   * State - Metrics
+   */
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  public DiskStore(@NonNull Path dir, long capacity) throws IOException {
+    checkArgument(capacity > 0, "Store capacity must be positive: %s", capacity);
+    this.dir = dir;
+    this.capacity = capacity;
+
+    Files.createDirectories(dir);
+    index();
+  }
+
+  /**
+   * Stores {@code content} from its position to its limit at {@code path} under {@link #dir}, replacing any previous
+   * content.
+   */
+  public void write(@NonNull Path path, @NonNull ByteBuffer content) throws IOException {
+    val temp = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+    try {
+      Files.createDirectories(path.getParent());
+      val length = content.remaining();
+      try (val channel = FileChannel.open(temp, CREATE_NEW, WRITE)) {
+        while (content.hasRemaining()) {
+          channel.write(content);
+        }
+      }
+
+      Files.move(temp, path, ATOMIC_MOVE);
+      add(path, length);
+    } catch (IOException e) {
+      delete(temp);
+      throw e;
+    }
+  }
+
+  /**
+   * Marks {@code path} as most recently used after it was read.
+   */
+  synchronized public void touch(@NonNull Path path) {
+    files.get(path);
+    try {
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // Only affects ordering after a restart
+    }
+  }
+
+  synchronized public void remove(@NonNull Path path) {
+    val length = files.remove(path);
+    if (length != null) {
+      size -= length;
+    }
+
+    delete(path);
+  }
+
+  synchronized public long getSize() {
+    return size;
+  }
+
+  synchronized public int getCount() {
+    return files.size();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  /**
+   * Rebuilds the LRU index from disk, oldest first, discarding leftovers of interrupted writes.
+   */
+  private void index() throws IOException {
+    @Cleanup
+    val paths = Files.walk(dir);
+    paths.filter(Files::isRegularFile)
+        .filter(path -> {
+          if (path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+            delete(path);
+            return false;
+          }
+
+          return true;
+        })
+        .sorted((a, b) -> getLastModifiedTime(a).compareTo(getLastModifiedTime(b)))
+        .forEach(path -> add(path, path.toFile().length()));
+
+    log.info("Indexed {} cached files of {} bytes in '{}'", files.size(), size, dir);
+  }
+
+  synchronized private void add(Path path, long length) {
+    val previous = files.put(path, length);
+    size += length - (previous == null ? 0 : previous);
+
+    evict();
+  }
+
+  synchronized private void evict() {
+    val iterator = files.entrySet().iterator();
+    while (size > capacity && iterator.hasNext()) {
+      val eldest = iterator.next();
+      iterator.remove();
+      size -= eldest.getValue();
+      delete(eldest.getKey());
+      evictionCount.incrementAndGet();
+    }
+  }
+
+  private static FileTime getLastModifiedTime(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  static void delete(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.debug("Could not delete '{}': {}", path, e.getMessage());
+    }
+  }
+
+}
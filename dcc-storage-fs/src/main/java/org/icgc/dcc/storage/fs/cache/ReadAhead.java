@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads blocks into a {@link BlockCache} ahead of sequential readers. Each block is fetched by its own worker so a
+ * read-ahead window is transferred over parallel connections.
+ */
+@Slf4j
+public class ReadAhead {
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final int blocks;
+
+  /**
+   * Dependencies.
+   */
+  @Getter
+  private final BlockCache cache;
+
+  /**
+   * State.
+   */
+  private final ExecutorService executor;
+
+  public ReadAhead(@NonNull BlockCache cache, int blocks) {
+    checkArgument(blocks > 0, "Read-ahead blocks must be positive: %s", blocks);
+    checkArgument((long) blocks * cache.getBlockSize() <= cache.getCapacity() / 2,
+        "Read-ahead of %s blocks exceeds half the block cache capacity", blocks);
+    this.cache = cache;
+    this.blocks = blocks;
+    this.executor = Executors.newFixedThreadPool(blocks,
+        new ThreadFactoryBuilder().setNameFormat("read-ahead-%s").setDaemon(true).build());
+  }
+
+  /**
+   * Schedules loading of a block unless it is already cached.
+   * 
+   * @return the pending load, which may be cancelled if the reader moves elsewhere
+   */
+  public Future<?> submit(@NonNull String objectId, long blockIndex, @NonNull Callable<ByteBuffer> loader) {
+    if (cache.contains(objectId, blockIndex)) {
+      return null;
+    }
+
+    return executor.submit(() -> {
+      try {
+        cache.get(objectId, blockIndex, loader);
+      } catch (Exception e) {
+        // The reader will retry the block itself
+        log.warn("Failed to read ahead block {} of '{}': {}", blockIndex, objectId, e.getMessage());
+      }
+    });
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.metric;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.val;
+
+/**
+ * Lock-free histogram of latencies bucketed by powers of two microseconds. Percentiles are reported as the upper
+ * bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+  /**
+   * Constants.
+   */
+  private static final int BUCKETS = 32; // Up to ~36 minutes
+
+  /**
+   * State.
+   */
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    val micros = Math.max(1, NANOSECONDS.toMicros(nanos));
+    val bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+
+    buckets[bucket].increment();
+    count.increment();
+    total.add(nanos);
+    max.accumulate(nanos);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public Map<String, Object> getSnapshot() {
+    val counts = new long[BUCKETS];
+    long n = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      n += counts[i];
+    }
+
+    return ImmutableMap.<String, Object> builder()
+        .put("count", n)
+        .put("meanMs", n == 0 ? 0.0 : toMillis(total.sum() / n))
+        .put("maxMs", toMillis(max.get()))
+        .put("p50Ms", getPercentile(counts, n, 0.50))
+        .put("p90Ms", getPercentile(counts, n, 0.90))
+        .put("p99Ms", getPercentile(counts, n, 0.99))
+        .build();
+  }
+
+  private static double getPercentile(long[] counts, long n, double percentile) {
+    if (n == 0) {
+      return 0.0;
+    }
+
+    long cumulative = 0;
+    int i = 0;
+    for (; i < counts.length - 1; i++) {
+      cumulative += counts[i];
+      if (cumulative >= percentile * n) {
+        break;
+      }
+    }
+
+    return toMillis((1L << (i + 1)) * 1000);
+  }
+
+  private static double toMillis(long nanos) {
+    return Math.round(nanos / 1000.0) / 1000.0;
+  }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.metric;
+
+import static com.google.common.collect.Iterables.limit;
+import static com.google.common.collect.Maps.immutableEntry;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.icgc.dcc.storage.fs.StorageFile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+
+/**
+ * Lock-free registry of file system counters, latencies and per-file statistics that may be updated concurrently by
+ * any number of channels and read-ahead workers and observed while the file system is in use.
+ * <p>
+ * At most {@link #MAX_TRACKED_FILES} files are tracked, evicting the one with the fewest bytes read to make room, and
+ * snapshots only report the {@link #MAX_REPORTED_FILES} with the most.
+ */
+public class StorageMetrics {
+
+  /**
+   * Constants.
+   */
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final ObjectMapper PRETTY_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+  public static final int MAX_TRACKED_FILES = 1000;
+  public static final int MAX_REPORTED_FILES = 20;
+
+  /**
+   * State.
+   */
+  private final long startTime = System.currentTimeMillis();
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+  private final Map<String, FileMetrics> files = new ConcurrentHashMap<>();
+  private final Map<String, Supplier<?>> gauges = new ConcurrentHashMap<>();
+
+  public void increment(@NonNull String name, long n) {
+    if (n != 0) {
+      getOrCreate(counters, name, key -> new LongAdder()).add(n);
+    }
+  }
+
+  public long getCount(@NonNull String name) {
+    val counter = counters.get(name);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  public void recordLatency(@NonNull String name, long nanos) {
+    getOrCreate(latencies, name, key -> new LatencyHistogram()).record(nanos);
+  }
+
+  /**
+   * Records a read served to a file system client.
+   */
+  public void recordRead(@NonNull StorageFile file, long bytes, long nanos) {
+    increment("readCount", 1);
+    increment("readBytes", bytes);
+    recordLatency("read", nanos);
+
+    getFileMetrics(file).record(bytes, nanos);
+  }
+
+  /**
+   * Registers a value that is sampled whenever a snapshot is taken.
+   */
+  public void registerGauge(@NonNull String name, @NonNull Supplier<?> gauge) {
+    gauges.put(name, gauge);
+  }
+
+  public Map<String, Object> getSnapshot() {
+    val snapshot = ImmutableMap.<String, Object> builder();
+    snapshot.put("uptimeSeconds", MILLISECONDS.toSeconds(System.currentTimeMillis() - startTime));
+    snapshot.put("counters", sample(counters, LongAdder::sum));
+    snapshot.put("latencies", sample(latencies, LatencyHistogram::getSnapshot));
+    snapshot.put("gauges", sample(gauges, Supplier::get));
+    snapshot.put("fileCount", files.size());
+    snapshot.put("files", sampleTopFiles());
+
+    return snapshot.build();
+  }
+
+  @SneakyThrows
+  public String toJson(boolean pretty) {
+    return (pretty ? PRETTY_MAPPER : MAPPER).writeValueAsString(getSnapshot());
+  }
+
+  private static <V> Map<String, Object> sample(Map<String, V> map, Function<V, ?> sampler) {
+    val sorted = new TreeMap<String, Object>();
+    map.forEach((name, value) -> sorted.put(name, sampler.apply(value)));
+
+    return sorted;
+  }
+
+  private FileMetrics getFileMetrics(StorageFile file) {
+    val metrics = files.get(file.getObjectId());
+    if (metrics != null) {
+      return metrics;
+    }
+
+    // Racing readers of new files may briefly exceed the bound, which is only approximate
+    if (files.size() >= MAX_TRACKED_FILES) {
+      evictFile();
+    }
+
+    return files.computeIfAbsent(file.getObjectId(), key -> new FileMetrics(file.getFileName()));
+  }
+
+  private void evictFile() {
+    files.entrySet().stream()
+        .min(Comparator.comparingLong(entry -> entry.getValue().getBytes()))
+        .ifPresent(entry -> files.remove(entry.getKey(), entry.getValue()));
+  }
+
+  /**
+   * @return the files with the most bytes read, in descending order
+   */
+  private Map<String, Object> sampleTopFiles() {
+    // Sort on values read once, since concurrent reads keep changing them
+    val byBytes = Lists.<Entry<String, Long>> newArrayList();
+    files.forEach((objectId, metrics) -> byBytes.add(immutableEntry(objectId, metrics.getBytes())));
+    byBytes.sort(Entry.<String, Long> comparingByValue().reversed());
+
+    val top = new LinkedHashMap<String, Object>();
+    for (val entry : limit(byBytes, MAX_REPORTED_FILES)) {
+      val metrics = files.get(entry.getKey());
+      if (metrics != null) {
+        top.put(entry.getKey(), metrics.getSnapshot());
+      }
+    }
+
+    return top;
+  }
+
+  private static <V> V getOrCreate(Map<String, V> map, String key, Function<String, V> factory) {
+    // Avoid the locking of computeIfAbsent on the common path where the key exists
+    val value = map.get(key);
+    return value != null ? value : map.computeIfAbsent(key, factory);
+  }
+
+  @RequiredArgsConstructor
+  private static class FileMetrics {
+
+    private final String fileName;
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    void record(long n, long time) {
+      reads.increment();
+      bytes.add(n);
+      nanos.add(time);
+    }
+
+    long getBytes() {
+      return bytes.sum();
+    }
+
+    Map<String, Object> getSnapshot() {
+      val count = reads.sum();
+      val meanMs = count == 0 ? 0.0 : Math.round(nanos.sum() / count / 1000.0) / 1000.0;
+
+      return ImmutableMap.of(
+          "fileName", fileName,
+          "readCount", count,
+          "readBytes", bytes.sum(),
+          "meanReadMs", meanMs);
+    }
+
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * A read-only {@link SeekableByteChannel} over an in-memory byte array.
+ */
+public class ByteArraySeekableByteChannel implements SeekableByteChannel {
+
+  /**
+   * State.
+   */
+  private final byte[] bytes;
+  private int position;
+  private boolean open = true;
+
+  public ByteArraySeekableByteChannel(@NonNull byte[] bytes) {
+    this.bytes = bytes;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() throws IOException {
+    open = false;
+  }
+
+  @Override
+  synchronized public int read(ByteBuffer buffer) throws IOException {
+    checkOpen();
+    if (position >= bytes.length) {
+      // EOF
+      return -1;
+    }
+
+    val n = Math.min(buffer.remaining(), bytes.length - position);
+    buffer.put(bytes, position, n);
+    position += n;
+
+    return n;
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  synchronized public long position() throws IOException {
+    checkOpen();
+    return position;
+  }
+
+  @Override
+  synchronized public SeekableByteChannel position(long newPosition) throws IOException {
+    checkOpen();
+    position = (int) Math.min(newPosition, bytes.length);
+
+    return this;
+  }
+
+  @Override
+  public long size() throws IOException {
+    checkOpen();
+    return bytes.length;
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) throws IOException {
+    throw new NonWritableChannelException();
+  }
+
+  private void checkOpen() throws ClosedChannelException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+  }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.net.HttpHeaders.RANGE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keep-alive HTTP client shared by all remote channels of a file system.
+ * <p>
+ * Connections are pooled with a per host limit, so seeks, reopens and parallel readers reuse established TCP
+ * connections. TLS sessions are resumed from the shared SSL context when a new connection is needed.
+ * <p>
+ * Streams that are kept open between reads can be {@link #park}ed, lending their connections back to the pool: the
+ * oldest parked stream is closed whenever a request would otherwise have to wait for a connection. A request that still
+ * cannot get one within the connection request timeout fails with an {@link IOException}.
+ */
+@Slf4j
+public class HttpConnectionPool implements Closeable {
+
+  /**
+   * Constants.
+   */
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 32;
+  public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS = (int) SECONDS.toMillis(60);
+  private static final int CONNECT_TIMEOUT_MS = (int) SECONDS.toMillis(30);
+  private static final int READ_TIMEOUT_MS = (int) SECONDS.toMillis(30);
+
+  /**
+   * Configuration.
+   */
+  private final int maxConnectionsPerHost;
+
+  /**
+   * State.
+   */
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CloseableHttpClient client;
+  private final Set<Closeable> parked = new LinkedHashSet<>(); // Oldest first
+
+  /**
+   * State - Metrics
+   */
+  private final AtomicLong connectCount = new AtomicLong();
+  private final AtomicLong requestCount = new AtomicLong();
+
+  public HttpConnectionPool() {
+    this(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+  }
+
+  public HttpConnectionPool(int maxConnectionsPerHost) {
+    this(maxConnectionsPerHost, DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS);
+  }
+
+  public HttpConnectionPool(int maxConnectionsPerHost, int connectionRequestTimeoutMs) {
+    checkArgument(maxConnectionsPerHost > 0, "Maximum connections per host must be positive: %s",
+        maxConnectionsPerHost);
+    checkArgument(connectionRequestTimeoutMs > 0, "Connection request timeout must be positive: %s",
+        connectionRequestTimeoutMs);
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+
+    // Honour the same javax.net.ssl.* settings as HttpURLConnection
+    val socketFactories = RegistryBuilder.<ConnectionSocketFactory> create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+        .build();
+
+    this.connectionManager = new PoolingHttpClientConnectionManager(socketFactories, new CountingConnectionFactory());
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+    connectionManager.setMaxTotal(maxConnectionsPerHost * 2);
+
+    this.client = HttpClients.custom()
+        .useSystemProperties()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT_MS)
+            .setSocketTimeout(READ_TIMEOUT_MS)
+            .setConnectionRequestTimeout(connectionRequestTimeoutMs)
+            .build())
+        .disableContentCompression()
+        .build();
+  }
+
+  /**
+   * Requests the inclusive byte range {@code start}-{@code end} of {@code url}.
+   * <p>
+   * Fully reading and closing the entity returns the connection to the pool. Closing the response before the end of
+   * the entity discards the connection instead.
+   */
+  public CloseableHttpResponse get(@NonNull URL url, long start, long end) throws IOException {
+    val request = new HttpGet(toURI(url));
+    request.setHeader(RANGE, String.format("bytes=%d-%d", start, end));
+
+    return execute(request, HttpStatus.SC_PARTIAL_CONTENT);
+  }
+
+  /**
+   * @return the {@code Content-Length} of {@code url}
+   */
+  public long getContentLength(@NonNull URL url) throws IOException {
+    try (val response = execute(new HttpHead(toURI(url)), HttpStatus.SC_OK)) {
+      val header = response.getFirstHeader("Content-Length");
+      if (header == null) {
+        throw new IOException("No Content-Length for '" + url + "'");
+      }
+
+      return Long.parseLong(header.getValue());
+    }
+  }
+
+  public long getConnectCount() {
+    return connectCount.get();
+  }
+
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * @return whether no request is waiting for a connection and at most half of them are leased, including the one held
+   * by the caller, so that it may hold on to it speculatively
+   */
+  public boolean hasSpareConnections() {
+    val stats = getStats();
+    return stats.getPending() == 0 && stats.getLeased() <= maxConnectionsPerHost / 2;
+  }
+
+  /**
+   * Lends the connection held by the idle {@code stream} to the pool until it is {@link #unpark}ed again. If a request
+   * needs the connection in the meantime, the stream is closed.
+   */
+  public void park(@NonNull Closeable stream) {
+    synchronized (parked) {
+      parked.add(stream);
+    }
+  }
+
+  /**
+   * @return whether {@code stream} was still parked and may be used again, as opposed to closed to free its connection
+   */
+  public boolean unpark(@NonNull Closeable stream) {
+    synchronized (parked) {
+      return parked.remove(stream);
+    }
+  }
+
+  public PoolStats getStats() {
+    return connectionManager.getTotalStats();
+  }
+
+  @Override
+  public void close() throws IOException {
+    client.close();
+  }
+
+  private CloseableHttpResponse execute(HttpUriRequest request, int expectedStatus) throws IOException {
+    requestCount.incrementAndGet();
+    evictParked();
+
+    CloseableHttpResponse response;
+    try {
+      response = client.execute(request);
+    } catch (ConnectionPoolTimeoutException e) {
+      throw new IOException("Timed out waiting for a connection to '" + request.getURI().getHost() + "', pool: "
+          + getStats(), e);
+    }
+
+    // A 200 for a range request would be the whole object, so only accept exactly what was asked for
+    val status = response.getStatusLine().getStatusCode();
+    if (status != expectedStatus) {
+      response.close();
+      throw new IOException("Server returned HTTP response code: " + status + " for URL: " + request.getURI());
+    }
+
+    return response;
+  }
+
+  /**
+   * Closes the oldest parked stream if every connection is taken, so the request about to be made does not wait for a
+   * reader that may never come back.
+   */
+  private void evictParked() {
+    Closeable stream;
+    synchronized (parked) {
+      val stats = getStats();
+      if (parked.isEmpty() || stats.getPending() == 0 && stats.getLeased() < maxConnectionsPerHost) {
+        return;
+      }
+
+      val iterator = parked.iterator();
+      stream = iterator.next();
+      iterator.remove();
+    }
+
+    log.debug("Closing parked stream to free a connection");
+    try {
+      stream.close();
+    } catch (IOException e) {
+      log.warn("Exception closing parked stream: ", e);
+    }
+  }
+
+  private static URI toURI(URL url) throws IOException {
+    try {
+      return url.toURI();
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Counts connections actually established, as opposed to leased from the pool.
+   */
+  private class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+
+    @Override
+    public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+      val n = connectCount.incrementAndGet();
+      log.debug("Opening connection #{} to {}", n, route.getTargetHost());
+
+      return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+    }
+
+  }
+
+}
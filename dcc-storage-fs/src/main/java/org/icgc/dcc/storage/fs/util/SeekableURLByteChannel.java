@@ -17,19 +17,22 @@
  */
 package org.icgc.dcc.storage.fs.util;
 
-import static com.google.common.net.HttpHeaders.RANGE;
-import static java.util.concurrent.TimeUnit.SECONDS;
-
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.naming.OperationNotSupportedException;
 
+import org.apache.http.client.methods.CloseableHttpResponse;
+
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.SneakyThrows;
@@ -37,23 +40,33 @@ import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * A read-only {@link SeekableByteChannel} implementation that is backed by an {@link HttpURLConnection}.
+ * A read-only {@link SeekableByteChannel} implementation that is backed by HTTP connections from a shared
+ * {@link HttpConnectionPool}.
  * <p>
  * The connection should support the HTTP {@code Range} header in order to support random access into the remote
- * resource at the specified {@link #url}.
+ * resource at the specified {@link #url}. Reads continue open range streams where they left off, so sequential
+ * readers at different offsets of the same channel can read concurrently without reconnecting. Idle streams are parked
+ * with the pool, which closes them when it runs out of connections for other requests.
  */
 @Slf4j
-public class SeekableURLByteChannel implements SeekableByteChannel {
+public class SeekableURLByteChannel implements PositionalByteChannel {
 
   /**
    * Constants.
    */
-  private static final int READ_TIMEOUT_MS = (int) SECONDS.toMillis(30);
+  private static final int SCRATCH_SIZE = 64 * 1024;
+  private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+  private static final int MAX_IDLE_STREAMS = 4; // Per channel, one per concurrent sequential reader
 
   /**
    * Configuration.
    */
-  protected URL url;
+  protected volatile URL url;
+
+  /**
+   * Dependencies.
+   */
+  protected final HttpConnectionPool pool;
 
   @Getter(lazy = true)
   private final long size = resolveSize();
@@ -62,35 +75,38 @@ public class SeekableURLByteChannel implements SeekableByteChannel {
    * State - Metrics
    */
   protected long position;
-  protected long lastPosition;
-  protected int connectCount;
-  protected int byteCount;
+  protected final AtomicInteger connectCount = new AtomicInteger();
+  protected final AtomicLong byteCount = new AtomicLong();
 
   /**
    * State - Data
    */
-  protected InputStream inputStream;
-  protected HttpURLConnection connection;
+  private final Deque<RangeStream> streams = new ArrayDeque<>(); // Idle, most recently used first
+  private boolean open = true;
 
-  public SeekableURLByteChannel(@NonNull URL url) {
+  public SeekableURLByteChannel(@NonNull URL url, @NonNull HttpConnectionPool pool) {
     this.url = url;
+    this.pool = pool;
   }
 
   @Override
   public boolean isOpen() {
-    return inputStream != null;
+    synchronized (streams) {
+      return open;
+    }
   }
 
   @Override
-  synchronized public void close() throws IOException {
-    inputStream = null;
-    if (connection != null) {
-      try {
-        connection.disconnect();
-      } catch (Exception e) {
-        log.error("Exception closing connection: ", e);
+  public void close() throws IOException {
+    synchronized (streams) {
+      open = false;
+      for (val stream : streams) {
+        if (pool.unpark(stream)) {
+          stream.close();
+        }
       }
-      connection = null;
+
+      streams.clear();
     }
   }
 
@@ -113,33 +129,33 @@ public class SeekableURLByteChannel implements SeekableByteChannel {
 
   @Override
   synchronized public int read(ByteBuffer buffer) throws IOException {
+    val n = read(buffer, position);
+    if (n > 0) {
+      position += n;
+    }
+
+    return n;
+  }
+
+  @Override
+  public int read(ByteBuffer buffer, long position) throws IOException {
     if (buffer.remaining() == 0) {
       // Nothing to fill
       return 0;
     }
 
-    if (position == size()) {
+    if (position >= size()) {
       // EOF
       return -1;
     }
 
     try {
       val length = (int) Math.min(buffer.remaining(), size() - position);
-      val start = position;
-      val end = position + length - 1;
-
-      log.debug("--------------------------------------------------------------");
-      log.debug("Current position: {}, Last position: {}, Buffer: '{}',", position, lastPosition, buffer);
-      log.debug("--------------------------------------------------------------");
-
-      log.debug("Reading range '{}:{}-{}', Connect count: {}", url, start, end, connectCount);
-      val n = read(buffer, length);
-      byteCount += n;
-      position += n;
-      lastPosition = position;
-      log.debug("Read bytes: {}, Current position: {}", n, position);
+      if (log.isDebugEnabled()) {
+        log.debug("Reading range '{}:{}-{}', Connect count: {}", url, position, position + length - 1, connectCount);
+      }
 
-      return n;
+      return read(position, buffer, length);
     } catch (Exception e) {
       log.error("Error reading '{}': {}", url, e);
 
@@ -149,7 +165,6 @@ public class SeekableURLByteChannel implements SeekableByteChannel {
 
   @Override
   synchronized public SeekableByteChannel position(long newPosition) throws IOException {
-    lastPosition = position;
     position = newPosition;
 
     return this;
@@ -167,56 +182,165 @@ public class SeekableURLByteChannel implements SeekableByteChannel {
     // No-op
   }
 
-  private int read(ByteBuffer buffer, int length) throws IOException, EOFException {
-    val inputStream = resolveInputStream();
+  /**
+   * Reads exactly {@code length} bytes starting at {@code start} into {@code buffer}, continuing an idle range stream
+   * that is positioned at {@code start} if there is one. Safe to call from any thread.
+   */
+  protected int read(long start, ByteBuffer buffer, int length) throws IOException, EOFException {
+    val stream = acquireStream(start);
+
+    int n;
+    try {
+      // TODO: Reconnect on timeout?
+      n = readFully(stream.getInputStream(), buffer, length);
+    } catch (IOException e) {
+      // Stream position is unknown so it cannot be reused
+      stream.close();
+      throw e;
+    }
+
+    byteCount.addAndGet(n);
+    stream.position = start + n;
+    releaseStream(stream);
+
+    return n;
+  }
+
+  /**
+   * Reads exactly {@code length} bytes of {@code url} starting at {@code start} into {@code buffer} with a request of
+   * its own, leaving this channel's range streams untouched. Safe to call from any thread.
+   */
+  protected int readRange(@NonNull URL url, long start, ByteBuffer buffer, int length) throws IOException {
+    if (log.isDebugEnabled()) {
+      log.debug("*** Request - Range: {}-{}", start, start + length - 1);
+    }
 
+    // Fully consuming the entity returns the connection to the pool
+    try (val response = pool.get(url, start, start + length - 1);
+        val inputStream = response.getEntity().getContent()) {
+      return readFully(inputStream, buffer, length);
+    }
+  }
+
+  /**
+   * Reads exactly {@code length} bytes into {@code buffer} without allocating. Heap buffers are filled in place and
+   * direct buffers through a scratch array reused by the calling thread.
+   */
+  private static int readFully(InputStream inputStream, ByteBuffer buffer, int length) throws IOException {
+    if (buffer.hasArray()) {
+      val array = buffer.array();
+      val offset = buffer.arrayOffset() + buffer.position();
+      readFully(inputStream, array, offset, length);
+      buffer.position(buffer.position() + length);
+
+      return length;
+    }
+
+    val scratch = SCRATCH.get();
     int n = 0;
-    byte[] bytes = new byte[length];
     while (n < length) {
-      // TODO: Reconnect on timeout?
-      int count = inputStream.read(bytes, n, length - n);
-      if (count < 0) throw new EOFException();
+      val count = Math.min(scratch.length, length - n);
+      readFully(inputStream, scratch, 0, count);
+      buffer.put(scratch, 0, count);
       n += count;
     }
 
-    buffer.put(bytes);
-
     return n;
   }
 
+  private static void readFully(InputStream inputStream, byte[] bytes, int offset, int length) throws IOException {
+    int n = 0;
+    while (n < length) {
+      int count = inputStream.read(bytes, offset + n, length - n);
+      if (count < 0) throw new EOFException();
+      n += count;
+    }
+  }
+
   @SneakyThrows
   private long resolveSize() {
-    val connection = (HttpURLConnection) url.openConnection();
-    return connection.getContentLengthLong();
+    return pool.getContentLength(url);
   }
 
-  private InputStream resolveInputStream() throws IOException {
+  private RangeStream acquireStream(long start) throws IOException {
+    synchronized (streams) {
+      val iterator = streams.iterator();
+      while (iterator.hasNext()) {
+        val stream = iterator.next();
+        if (stream.position == start) {
+          iterator.remove();
+          if (pool.unpark(stream)) {
+            return stream;
+          }
+
+          // Closed by the pool in the meantime
+        }
+      }
+    }
+
+    // Is new or non-serial read relative to every idle stream
     onResolveInputStream();
 
-    // Is new or non-serial read relative to the last read request
-    val reconnect = connection == null || position != lastPosition;
-    if (reconnect) {
-      if (connection != null) {
-        connection.disconnect();
-      }
+    if (log.isDebugEnabled()) {
+      log.debug("*** Request - Range: {}-{}", start, size() - 1);
+    }
 
-      val range = formatRange(position, size() - 1);
-      log.debug("*** Connect - Range: {}", range);
+    val response = pool.get(url, start, size() - 1);
+    connectCount.incrementAndGet();
 
-      connection = (HttpURLConnection) url.openConnection();
-      connection.setRequestProperty(RANGE, range);
-      connection.setReadTimeout(READ_TIMEOUT_MS);
-      connection.connect();
+    return new RangeStream(response, response.getEntity().getContent(), start);
+  }
 
-      inputStream = connection.getInputStream();
-      connectCount++;
+  private void releaseStream(RangeStream stream) throws IOException {
+    RangeStream evicted = stream;
+    if (stream.position < size()) {
+      synchronized (streams) {
+        streams.removeIf(RangeStream::isClosed);
+
+        // Only hold on to a connection while the pool can spare it, even for a single reader
+        val keep = open && streams.size() < MAX_IDLE_STREAMS && pool.hasSpareConnections();
+        if (keep) {
+          streams.addFirst(stream);
+          pool.park(stream);
+          evicted = null;
+        }
+      }
     }
 
-    return inputStream;
+    if (evicted != null) {
+      evicted.close();
+    }
   }
 
-  private static String formatRange(long start, long end) {
-    return String.format("bytes=%d-%d", start, end);
+  /**
+   * An open range request that reads through to the end of the resource.
+   */
+  private static class RangeStream implements Closeable {
+
+    private final CloseableHttpResponse response;
+    @Getter
+    private final InputStream inputStream;
+    private long position;
+    @Getter
+    private volatile boolean closed; // Possibly by the pool while parked
+
+    RangeStream(CloseableHttpResponse response, InputStream inputStream, long position) {
+      this.response = response;
+      this.inputStream = inputStream;
+      this.position = position;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      try {
+        // Discards rather than drains the connection if the rest of the range is not wanted
+        response.close();
+      } catch (Exception e) {
+        log.error("Exception closing connection: ", e);
+      }
+    }
+
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.storage.fs.StorageFileLayout.BUNDLE;
+import static org.icgc.dcc.storage.fs.StorageFileLayout.OBJECT_ID;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.val;
+
+public class StorageFileTreeTest {
+
+  StorageFile bam = file("o1", "g1", "x.bam");
+  StorageFile bai = file("o2", "g1", "x.bam.BAI");
+  StorageFile vcf = file("o3", "g2", "y.vcf.gz");
+  StorageFile tbi = file("o4", "g2", "sorted_y.vcf.gz.tbi");
+  StorageFile idx = file("o5", "g2", "y.vcf.gz.idx");
+  StorageFile unindexed = file("o6", "g2", "z.bam");
+
+  ImmutableList<StorageFile> files = ImmutableList.of(unindexed, vcf, bam, tbi, idx, bai);
+
+  @Test
+  public void testBundleLookup() {
+    val sut = new StorageFileTree(BUNDLE, files);
+
+    assertThat(sut.getFile("/g1/x.bam")).isEqualTo(Optional.of(bam));
+    assertThat(sut.getFile("/g1/x.bam.BAI")).isEqualTo(Optional.of(bai));
+    assertThat(sut.getFile("/g2/x.bam")).isEqualTo(Optional.empty());
+    assertThat(sut.getFile("/x.bam")).isEqualTo(Optional.empty());
+    assertThat(sut.getFile("/g1")).isEqualTo(Optional.empty());
+
+    // Object id aliases are specific to the OBJECT_ID layout
+    assertThat(sut.getFile("/o1.bai")).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void testBundleListing() {
+    val sut = new StorageFileTree(BUNDLE, files);
+
+    assertThat(sut.isDirectory("/")).isTrue();
+    assertThat(sut.isDirectory("/g1")).isTrue();
+    assertThat(sut.isDirectory("/g1/x.bam")).isFalse();
+    assertThat(sut.list("/")).containsExactly("g1", "g2");
+    assertThat(sut.list("/g2")).containsExactly("sorted_y.vcf.gz.tbi", "y.vcf.gz", "y.vcf.gz.idx", "z.bam");
+    assertThat(sut.list("/g3")).isEmpty();
+
+    assertThat(sut.getFiles("/")).isEmpty();
+    assertThat(sut.getFiles("/g1")).containsExactly(bam, bai);
+  }
+
+  @Test
+  public void testBundleDuplicateFileName() {
+    val duplicate = file("o7", "g1", "x.bam");
+    val sut = new StorageFileTree(BUNDLE, ImmutableList.of(bam, duplicate));
+
+    // First one wins, as when the bundle was scanned
+    assertThat(sut.getFile("/g1/x.bam")).isEqualTo(Optional.of(bam));
+    assertThat(sut.list("/g1")).containsExactly("x.bam");
+  }
+
+  @Test
+  public void testObjectIdLookup() {
+    val sut = new StorageFileTree(OBJECT_ID, files);
+
+    assertThat(sut.getFile("/o1")).isEqualTo(Optional.of(bam));
+    assertThat(sut.getFile("/o3")).isEqualTo(Optional.of(vcf));
+    assertThat(sut.getFile("/o9")).isEqualTo(Optional.empty());
+    assertThat(sut.getFile("/g1/x.bam")).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void testObjectIdListing() {
+    val sut = new StorageFileTree(OBJECT_ID, files);
+
+    // Index aliases are hidden
+    assertThat(sut.list("/")).containsExactly("o1", "o2", "o3", "o4", "o5", "o6");
+    assertThat(sut.getFiles("/")).containsExactly(bam, bai, vcf, tbi, idx, unindexed);
+    assertThat(sut.isDirectory("/o1")).isFalse();
+    assertThat(sut.list("/o1")).isEmpty();
+  }
+
+  @Test
+  public void testIndexAliases() {
+    val sut = new StorageFileTree(OBJECT_ID, files);
+
+    // The index is any file of the bundle whose name contains the file name followed by the index extension
+    assertThat(sut.getFile("/o1.bai")).isEqualTo(Optional.of(bai));
+    assertThat(sut.getFile("/o3.tbi")).isEqualTo(Optional.of(tbi));
+    assertThat(sut.getFile("/o3.idx")).isEqualTo(Optional.of(idx));
+
+    assertThat(sut.getFile("/o1.tbi")).isEqualTo(Optional.empty());
+    assertThat(sut.getFile("/o6.bai")).isEqualTo(Optional.empty());
+    assertThat(sut.getFile("/o9.bai")).isEqualTo(Optional.empty());
+    assertThat(sut.getFile("/o1.txt")).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void testIndexAliasesInAnyCase() {
+    val sut = new StorageFileTree(OBJECT_ID, files);
+
+    // Extension of the alias
+    assertThat(sut.getFile("/o1.BAI")).isEqualTo(Optional.of(bai));
+    assertThat(sut.getFile("/o1.Bai")).isEqualTo(Optional.of(bai));
+    assertThat(sut.getFile("/o3.TBI")).isEqualTo(Optional.of(tbi));
+
+    // Extension of the index file itself
+    val lower = file("o8", "g1", "x.bam.bai");
+    assertThat(new StorageFileTree(OBJECT_ID, ImmutableList.of(bam, lower)).getFile("/o1.BAI")).isEqualTo(Optional.of(lower));
+
+    // Object ids are case sensitive
+    assertThat(sut.getFile("/O1.bai")).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void testIndexAliasFirstMatchWins() {
+    val other = file("o8", "g1", "x.bam.bai");
+    val sut = new StorageFileTree(OBJECT_ID, ImmutableList.of(bam, other, bai));
+
+    assertThat(sut.getFile("/o1.bai")).isEqualTo(Optional.of(other));
+  }
+
+  @Test
+  public void testGetPath() {
+    assertThat(StorageFileTree.getPath()).isEqualTo("/");
+    assertThat(StorageFileTree.getPath("g1")).isEqualTo("/g1");
+    assertThat(StorageFileTree.getPath("g1", "x.bam")).isEqualTo("/g1/x.bam");
+  }
+
+  private static StorageFile file(String objectId, String gnosId, String fileName) {
+    return StorageFile.storageFile().objectId(objectId).gnosId(gnosId).fileName(fileName).size(1).build();
+  }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import org.icgc.dcc.storage.fs.cache.BlockCache;
+import org.icgc.dcc.storage.fs.cache.ReadAhead;
+import org.icgc.dcc.storage.fs.metric.StorageMetrics;
+import org.icgc.dcc.storage.fs.util.HttpConnectionPool;
+import org.icgc.dcc.storage.fs.util.RangeServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.SneakyThrows;
+import lombok.val;
+
+public class StorageSeekableByteChannelTest {
+
+  /**
+   * Constants.
+   */
+  private static final int BLOCK_SIZE = 1000;
+  private static final int READ_AHEAD_BLOCKS = 2;
+
+  RangeServer server;
+  HttpConnectionPool pool;
+  BlockCache cache;
+  ReadAhead readAhead;
+  StorageFileSystem fileSystem;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new RangeServer(20 * BLOCK_SIZE);
+    pool = new HttpConnectionPool();
+    cache = new BlockCache(100 * BLOCK_SIZE, BLOCK_SIZE);
+    readAhead = new ReadAhead(cache, READ_AHEAD_BLOCKS);
+
+    val files = ImmutableList.of(file("a"), file("b"));
+    val context = mock(StorageContext.class);
+    when(context.getLayout()).thenReturn(StorageFileLayout.OBJECT_ID);
+    when(context.getFileTree(anyString())).thenReturn(new StorageFileTree(StorageFileLayout.OBJECT_ID, files));
+    when(context.getUrl(anyString())).then(invocation -> server.getUrl("/" + invocation.getArguments()[0]));
+    when(context.getConnectionPool()).thenReturn(pool);
+    when(context.getBlockCache()).thenReturn(Optional.of(cache));
+    when(context.getReadAhead()).thenReturn(Optional.of(readAhead));
+    when(context.getDiskBlockCache()).thenReturn(Optional.empty());
+    when(context.getMetrics()).thenReturn(new StorageMetrics());
+
+    fileSystem = (StorageFileSystem) new StorageFileSystemProvider(context).getFileSystem(URI.create("/"));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    readAhead.shutdown();
+    pool.close();
+    server.close();
+  }
+
+  @Test(timeout = 10000)
+  public void testSequentialReadsLoadAhead() throws Exception {
+    try (val channel = open("a")) {
+      for (int blockIndex = 0; blockIndex < 3; blockIndex++) {
+        assertThat(read(channel, blockIndex)).isEqualTo(slice(blockIndex));
+      }
+
+      awaitCached("a", 2 + READ_AHEAD_BLOCKS);
+      assertThat(cache.contains("a", 3)).isTrue();
+      assertThat(read(channel, 3)).isEqualTo(slice(3));
+    }
+
+    // Every block was requested once, while reading block 3 may already have loaded ahead further before closing
+    assertThat(server.getRequests()).doesNotHaveDuplicates()
+        .contains("/a@0", "/a@1000", "/a@2000", "/a@3000", "/a@4000");
+  }
+
+  @Test(timeout = 10000)
+  public void testRandomReadsDoNotLoadAhead() throws Exception {
+    try (val channel = open("a")) {
+      for (val blockIndex : new int[] { 7, 2, 11, 5, 0 }) {
+        assertThat(read(channel, blockIndex)).isEqualTo(slice(blockIndex));
+      }
+    }
+
+    assertThat(server.getRequestCount()).isEqualTo(5);
+  }
+
+  @Test(timeout = 10000)
+  public void testNonSequentialReadCancelsPendingLoads() throws Exception {
+    // Holds back the read-ahead of "a" so that it occupies every worker
+    val release = new CountDownLatch(1);
+    server.setOnRequest(request -> {
+      if (request.equals("/a@3000") || request.equals("/a@4000")) {
+        awaitUninterruptibly(release);
+      }
+    });
+
+    try (val a = open("a"); val b = open("b")) {
+      for (int blockIndex = 0; blockIndex < 3; blockIndex++) {
+        read(a, blockIndex);
+      }
+
+      // Queued behind the loads of "a"
+      for (int blockIndex = 0; blockIndex < 3; blockIndex++) {
+        read(b, blockIndex);
+      }
+
+      // Moves elsewhere before the queued loads of "b" could start
+      assertThat(read(b, 10)).isEqualTo(slice(10));
+
+      release.countDown();
+      awaitCached("a", 4);
+
+      // Runs after anything still queued
+      readAhead.submit("sentinel", 0, () -> BlockCache.allocate(1)).get();
+    }
+
+    assertThat(server.getRequests()).doesNotContain("/b@3000", "/b@4000");
+    assertThat(cache.contains("b", 3)).isFalse();
+    assertThat(cache.contains("b", 4)).isFalse();
+  }
+
+  private StorageSeekableByteChannel open(String objectId) {
+    return new StorageSeekableByteChannel((StoragePath) fileSystem.getPath("/" + objectId),
+        fileSystem.getProvider().getContext());
+  }
+
+  private byte[] read(StorageSeekableByteChannel channel, int blockIndex) throws IOException {
+    val buffer = ByteBuffer.allocate(BLOCK_SIZE);
+    assertThat(channel.read(buffer, blockIndex * BLOCK_SIZE)).isEqualTo(BLOCK_SIZE);
+
+    return buffer.array();
+  }
+
+  private byte[] slice(int blockIndex) {
+    return Arrays.copyOfRange(server.getContent(), blockIndex * BLOCK_SIZE, (blockIndex + 1) * BLOCK_SIZE);
+  }
+
+  @SneakyThrows
+  private void awaitCached(String objectId, long blockIndex) {
+    while (!cache.contains(objectId, blockIndex)) {
+      Thread.sleep(10);
+    }
+  }
+
+  private StorageFile file(String objectId) {
+    return StorageFile.storageFile()
+        .objectId(objectId)
+        .gnosId("bundle")
+        .fileName(objectId + ".bam")
+        .size(server.getContent().length)
+        .build();
+  }
+
+  @SneakyThrows
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    latch.await();
+  }
+
+}
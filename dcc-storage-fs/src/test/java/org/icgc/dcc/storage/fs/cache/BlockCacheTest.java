@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import lombok.val;
+
+public class BlockCacheTest {
+
+  /**
+   * Constants.
+   */
+  private static final int BLOCK_SIZE = 1024;
+
+  BlockCache sut = new BlockCache(4 * BLOCK_SIZE, BLOCK_SIZE);
+
+  @Test
+  public void testCapacityBoundsWeight() throws IOException {
+    for (long blockIndex = 0; blockIndex < 10; blockIndex++) {
+      sut.get("object", blockIndex, () -> block(BLOCK_SIZE));
+    }
+
+    assertThat(sut.getSize()).isEqualTo(4);
+    assertThat(sut.getStats().evictionCount()).isEqualTo(6);
+
+    // Least recently used first
+    assertThat(sut.contains("object", 5)).isFalse();
+    assertThat(sut.contains("object", 6)).isTrue();
+    assertThat(sut.contains("object", 9)).isTrue();
+  }
+
+  @Test
+  public void testWeightIsBlockLength() throws IOException {
+    // A short last block only takes its own length
+    for (long blockIndex = 0; blockIndex < 8; blockIndex++) {
+      sut.get("object", blockIndex, () -> block(BLOCK_SIZE / 2));
+    }
+
+    assertThat(sut.getSize()).isEqualTo(8);
+  }
+
+  @Test
+  public void testRecentlyUsedKept() throws IOException {
+    for (long blockIndex = 0; blockIndex < 4; blockIndex++) {
+      sut.get("object", blockIndex, () -> block(BLOCK_SIZE));
+    }
+
+    sut.get("object", 0, () -> block(BLOCK_SIZE));
+    sut.get("object", 4, () -> block(BLOCK_SIZE));
+
+    assertThat(sut.contains("object", 0)).isTrue();
+    assertThat(sut.contains("object", 1)).isFalse();
+  }
+
+  @Test(timeout = 10000)
+  public void testConcurrentGetLoadsOnce() throws Exception {
+    val readers = 8;
+    val executor = Executors.newFixedThreadPool(readers);
+    val started = new CountDownLatch(readers);
+    val release = new CountDownLatch(1);
+    val loads = new AtomicInteger();
+    try {
+      val futures = new ArrayList<Future<ByteBuffer>>();
+      for (int i = 0; i < readers; i++) {
+        futures.add(executor.submit(() -> {
+          started.countDown();
+          return sut.get("object", 0, () -> {
+            loads.incrementAndGet();
+            release.await();
+            return block(BLOCK_SIZE);
+          });
+        }));
+      }
+
+      // Let every reader reach the cache before the load completes
+      started.await();
+      TimeUnit.MILLISECONDS.sleep(100);
+      release.countDown();
+
+      for (val future : futures) {
+        val block = future.get();
+        assertThat(block.remaining()).isEqualTo(BLOCK_SIZE);
+        assertThat(block.isReadOnly()).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testViewsAreIndependent() throws IOException {
+    val first = sut.get("object", 0, () -> block(BLOCK_SIZE));
+    first.position(100);
+
+    val second = sut.get("object", 0, () -> block(BLOCK_SIZE));
+    assertThat(second.position()).isZero();
+    assertThat(second.get(100)).isEqualTo((byte) 100);
+  }
+
+  @Test
+  public void testLoadFailure() {
+    assertThatThrownBy(() -> sut.get("object", 0, () -> {
+      throw new IOException("Unavailable");
+    })).isInstanceOf(IOException.class).hasMessage("Unavailable");
+
+    assertThat(sut.contains("object", 0)).isFalse();
+  }
+
+  private static ByteBuffer block(int length) {
+    val block = BlockCache.allocate(length);
+    for (int i = 0; i < length; i++) {
+      block.put((byte) i);
+    }
+    block.flip();
+
+    return block;
+  }
+
+}
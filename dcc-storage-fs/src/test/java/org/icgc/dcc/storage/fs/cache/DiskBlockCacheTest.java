@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.icgc.dcc.storage.fs.StorageFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+public class DiskBlockCacheTest {
+
+  /**
+   * Constants.
+   */
+  private static final int BLOCK_SIZE = 100;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Path dir;
+  StorageFile file = StorageFile.storageFile().objectId("object").size(250).lastModified(1000).build();
+
+  DiskBlockCache sut;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = tmp.getRoot().toPath().resolve("cache");
+    sut = new DiskBlockCache(dir, 10 * BLOCK_SIZE, BLOCK_SIZE);
+  }
+
+  @After
+  public void tearDown() {
+    sut.shutdown();
+  }
+
+  @Test
+  public void testWriteRead() throws IOException {
+    assertThat(sut.read(file, 2)).isNull();
+
+    sut.write(file, 2, block(2));
+    restart(10 * BLOCK_SIZE, BLOCK_SIZE);
+
+    assertThat(content(sut.read(file, 2))).isEqualTo(content(block(2)));
+    assertThat(sut.getSize()).isEqualTo(50);
+    assertThat(sut.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testChangedObjectNotFound() throws IOException {
+    sut.write(file, 0, block(0));
+    restart(10 * BLOCK_SIZE, BLOCK_SIZE);
+
+    val changed = StorageFile.storageFile().objectId("object").size(250).lastModified(2000).build();
+    assertThat(sut.read(changed, 0)).isNull();
+
+    // Stale version is gone from disk and from the accounted size
+    assertThat(sut.getSize()).isZero();
+    assertThat(Files.list(dir.resolve("object")).count()).isZero();
+  }
+
+  @Test
+  public void testChangedBlockSizeNotFound() throws IOException {
+    sut.write(file, 0, block(0));
+    restart(10 * BLOCK_SIZE, BLOCK_SIZE / 2);
+
+    assertThat(sut.read(file, 0)).isNull();
+  }
+
+  @Test
+  public void testWrongLengthDiscarded() throws IOException {
+    sut.write(file, 0, block(0));
+    restart(10 * BLOCK_SIZE, BLOCK_SIZE);
+
+    // As left by a crash before the content reached the disk
+    Files.write(blockPath(0), new byte[0]);
+
+    assertThat(sut.read(file, 0)).isNull();
+    assertThat(Files.exists(blockPath(0))).isFalse();
+  }
+
+  @Test
+  public void testEvictionOrderSurvivesRestart() throws IOException {
+    sut.write(file, 0, block(0));
+    sut.write(file, 1, block(1));
+    restart(2 * BLOCK_SIZE, BLOCK_SIZE);
+
+    // Block 0 is older on disk but was used more recently in the previous session
+    Files.setLastModifiedTime(blockPath(0), FileTime.fromMillis(1000));
+    Files.setLastModifiedTime(blockPath(1), FileTime.fromMillis(2000));
+    restart(2 * BLOCK_SIZE, BLOCK_SIZE);
+    assertThat(sut.read(file, 0)).isNotNull();
+    restart(2 * BLOCK_SIZE, BLOCK_SIZE);
+
+    sut.write(file, 2, block(2));
+    restart(2 * BLOCK_SIZE, BLOCK_SIZE);
+
+    assertThat(Files.exists(blockPath(0))).isTrue();
+    assertThat(Files.exists(blockPath(1))).isFalse();
+    assertThat(Files.exists(blockPath(2))).isTrue();
+    assertThat(sut.getSize()).isEqualTo(150);
+  }
+
+  @Test
+  public void testTempFilesRemovedOnStart() throws IOException {
+    sut.write(file, 0, block(0));
+    sut.shutdown();
+
+    // As left by a write interrupted before its rename
+    val temp = blockPath(1).resolveSibling("1.0f8e9a2c.tmp");
+    Files.write(temp, new byte[BLOCK_SIZE]);
+    restart(10 * BLOCK_SIZE, BLOCK_SIZE);
+
+    assertThat(Files.exists(temp)).isFalse();
+    assertThat(sut.getSize()).isEqualTo(BLOCK_SIZE);
+  }
+
+  /**
+   * Finishes pending writes and reopens the cache, as across mount sessions.
+   */
+  private void restart(long capacity, int blockSize) throws IOException {
+    sut.shutdown();
+    sut = new DiskBlockCache(dir, capacity, blockSize);
+  }
+
+  private Path blockPath(long blockIndex) {
+    return dir.resolve(file.getObjectId()).resolve("250-1000-" + BLOCK_SIZE).resolve(Long.toString(blockIndex));
+  }
+
+  private ByteBuffer block(long blockIndex) {
+    val length = (int) Math.min(BLOCK_SIZE, file.getSize() - blockIndex * BLOCK_SIZE);
+    val block = BlockCache.allocate(length);
+    for (int i = 0; i < length; i++) {
+      block.put((byte) (blockIndex * BLOCK_SIZE + i));
+    }
+    block.flip();
+
+    return block;
+  }
+
+  private static byte[] content(ByteBuffer block) {
+    val bytes = new byte[block.remaining()];
+    block.duplicate().get(bytes);
+
+    return bytes;
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+public class DiskStoreTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  Path dir;
+  DiskStore sut;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = tmp.getRoot().toPath().resolve("store");
+    sut = new DiskStore(dir, 300);
+  }
+
+  @Test
+  public void testWrite() throws IOException {
+    val path = dir.resolve("a").resolve("1");
+    sut.write(path, content(100));
+
+    assertThat(Files.readAllBytes(path)).isEqualTo(content(100).array());
+    assertThat(sut.getSize()).isEqualTo(100);
+    assertThat(sut.getCount()).isEqualTo(1);
+
+    // Replacing only accounts for the new content
+    sut.write(path, content(50));
+    assertThat(sut.getSize()).isEqualTo(50);
+    assertThat(sut.getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws IOException {
+    sut.write(dir.resolve("1"), content(100));
+    sut.write(dir.resolve("2"), content(100));
+    sut.write(dir.resolve("3"), content(100));
+    sut.touch(dir.resolve("1"));
+
+    sut.write(dir.resolve("4"), content(100));
+
+    assertThat(Files.exists(dir.resolve("1"))).isTrue();
+    assertThat(Files.exists(dir.resolve("2"))).isFalse();
+    assertThat(sut.getSize()).isEqualTo(300);
+    assertThat(sut.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRemove() throws IOException {
+    sut.write(dir.resolve("1"), content(100));
+    sut.remove(dir.resolve("1"));
+
+    assertThat(Files.exists(dir.resolve("1"))).isFalse();
+    assertThat(sut.getSize()).isZero();
+  }
+
+  @Test
+  public void testIndexesExistingFilesInRecencyOrder() throws IOException {
+    sut.write(dir.resolve("1"), content(100));
+    sut.write(dir.resolve("2"), content(100));
+    Files.setLastModifiedTime(dir.resolve("1"), FileTime.fromMillis(2000));
+    Files.setLastModifiedTime(dir.resolve("2"), FileTime.fromMillis(1000));
+    Files.write(dir.resolve("3.tmp"), new byte[100]);
+
+    sut = new DiskStore(dir, 300);
+    assertThat(sut.getSize()).isEqualTo(200);
+    assertThat(Files.exists(dir.resolve("3.tmp"))).isFalse();
+
+    // Written last but used least recently, so evicted first after the restart
+    sut.write(dir.resolve("4"), content(200));
+    assertThat(Files.exists(dir.resolve("1"))).isTrue();
+    assertThat(Files.exists(dir.resolve("2"))).isFalse();
+  }
+
+  private static ByteBuffer content(int length) {
+    val bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) i;
+    }
+
+    return ByteBuffer.wrap(bytes);
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lombok.val;
+
+public class ReadAheadTest {
+
+  /**
+   * Constants.
+   */
+  private static final int BLOCK_SIZE = 1024;
+
+  BlockCache cache = new BlockCache(8 * BLOCK_SIZE, BLOCK_SIZE);
+  ReadAhead sut = new ReadAhead(cache, 1);
+
+  @After
+  public void tearDown() {
+    sut.shutdown();
+  }
+
+  @Test
+  public void testWindowBoundedByCache() {
+    assertThatThrownBy(() -> new ReadAhead(cache, 5)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testLoadsIntoCache() throws Exception {
+    sut.submit("object", 0, () -> BlockCache.allocate(BLOCK_SIZE)).get();
+
+    assertThat(cache.contains("object", 0)).isTrue();
+    assertThat(sut.submit("object", 0, () -> BlockCache.allocate(BLOCK_SIZE))).isNull();
+  }
+
+  @Test(timeout = 10000)
+  public void testCancelledLoadNotRun() throws Exception {
+    // Occupies the only worker
+    val release = new CountDownLatch(1);
+    val running = sut.submit("object", 0, () -> {
+      release.await();
+      return BlockCache.allocate(BLOCK_SIZE);
+    });
+
+    val loads = new AtomicInteger();
+    val pending = sut.submit("object", 1, () -> {
+      loads.incrementAndGet();
+      return BlockCache.allocate(BLOCK_SIZE);
+    });
+    pending.cancel(false);
+
+    release.countDown();
+    running.get();
+    sut.submit("object", 2, () -> BlockCache.allocate(BLOCK_SIZE)).get();
+
+    assertThat(loads.get()).isZero();
+    assertThat(cache.contains("object", 1)).isFalse();
+  }
+
+  @Test
+  public void testFailureLeavesBlockUncached() throws Exception {
+    sut.submit("object", 0, () -> {
+      throw new IllegalStateException("Unavailable");
+    }).get();
+
+    assertThat(cache.contains("object", 0)).isFalse();
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.metric;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.storage.fs.metric.StorageMetrics.MAX_REPORTED_FILES;
+import static org.icgc.dcc.storage.fs.metric.StorageMetrics.MAX_TRACKED_FILES;
+
+import java.util.Map;
+
+import org.icgc.dcc.storage.fs.StorageFile;
+import org.junit.Test;
+
+import lombok.val;
+
+public class StorageMetricsTest {
+
+  StorageMetrics sut = new StorageMetrics();
+
+  @Test
+  public void testRecordRead() {
+    sut.recordRead(file(1), 100, 1000);
+    sut.recordRead(file(1), 50, 1000);
+
+    assertThat(sut.getCount("readCount")).isEqualTo(2);
+    assertThat(sut.getCount("readBytes")).isEqualTo(150);
+
+    val files = getFiles();
+    assertThat(files).containsOnlyKeys("object-1");
+    assertThat(files.get("object-1")).containsEntry("fileName", "file-1").containsEntry("readBytes", 150L);
+  }
+
+  @Test
+  public void testSnapshotReportsFilesWithMostBytes() {
+    for (int i = 1; i <= 2 * MAX_REPORTED_FILES; i++) {
+      sut.recordRead(file(i), i, 1000);
+    }
+
+    val files = getFiles();
+    assertThat(files).hasSize(MAX_REPORTED_FILES);
+    assertThat(files.keySet()).startsWith("object-" + 2 * MAX_REPORTED_FILES, "object-" + (2 * MAX_REPORTED_FILES - 1));
+    assertThat(files).doesNotContainKey("object-" + MAX_REPORTED_FILES);
+    assertThat(sut.getSnapshot()).containsEntry("fileCount", 2 * MAX_REPORTED_FILES);
+  }
+
+  @Test
+  public void testTrackedFilesAreBounded() {
+    // The first file is read the most so survives, while the least read make room for new ones
+    sut.recordRead(file(0), Integer.MAX_VALUE, 1000);
+    for (int i = 1; i <= 2 * MAX_TRACKED_FILES; i++) {
+      sut.recordRead(file(i), 1, 1000);
+    }
+
+    assertThat(sut.getSnapshot()).containsEntry("fileCount", MAX_TRACKED_FILES);
+    assertThat(getFiles()).containsKey("object-0");
+    assertThat(sut.getCount("readCount")).isEqualTo(2 * MAX_TRACKED_FILES + 1);
+  }
+
+  @Test
+  public void testToJson() {
+    sut.recordRead(file(1), 100, 1000);
+    sut.registerGauge("gauge", () -> 42);
+
+    val json = sut.toJson(false);
+    assertThat(json).contains("\"readBytes\":100").contains("\"gauge\":42").contains("\"file-1\"");
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, Object>> getFiles() {
+    return (Map<String, Map<String, Object>>) sut.getSnapshot().get("files");
+  }
+
+  private static StorageFile file(int i) {
+    return StorageFile.builder().objectId("object-" + i).fileName("file-" + i).gnosId("bundle").build();
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.SneakyThrows;
+import lombok.val;
+
+/**
+ * Local HTTP server of the same content at every path, with support for a single inclusive {@code Range}.
+ */
+public class RangeServer implements Closeable {
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final byte[] content;
+
+  /**
+   * State.
+   */
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  /**
+   * Range requests received as {@code <path>@<start>}, excluding {@code HEAD}s.
+   */
+  @Getter
+  private final List<String> requests = new CopyOnWriteArrayList<>();
+
+  /**
+   * Called with each range request before it is served, e.g. to hold it back.
+   */
+  @Setter
+  @NonNull
+  private volatile Consumer<String> onRequest = request -> {};
+
+  public RangeServer(int size) throws IOException {
+    this.content = new byte[size];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) (i % 251);
+    }
+
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::serve);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  @SneakyThrows
+  public URL getUrl(@NonNull String path) {
+    return new URL("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getAddress().getPort()
+        + path);
+  }
+
+  public int getRequestCount() {
+    return requests.size();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void serve(HttpExchange exchange) throws IOException {
+    try {
+      exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+      if (exchange.getRequestMethod().equals("HEAD")) {
+        exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+        exchange.sendResponseHeaders(200, -1);
+        return;
+      }
+
+      val range = exchange.getRequestHeaders().getFirst("Range").replace("bytes=", "").split("-");
+      val start = Integer.parseInt(range[0]);
+      val end = Integer.parseInt(range[1]);
+      val request = exchange.getRequestURI().getPath() + "@" + start;
+      requests.add(request);
+      onRequest.accept(request);
+
+      exchange.sendResponseHeaders(206, end - start + 1);
+      exchange.getResponseBody().write(content, start, end - start + 1);
+    } catch (IOException e) {
+      // Client closed a range it did not need
+    } finally {
+      exchange.close();
+    }
+  }
+
+}
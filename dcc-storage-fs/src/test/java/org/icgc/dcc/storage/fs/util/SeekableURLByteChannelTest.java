@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.fs.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import lombok.val;
+
+public class SeekableURLByteChannelTest {
+
+  /**
+   * Constants.
+   */
+  private static final int MAX_CONNECTIONS = 4;
+  private static final int CONNECTION_REQUEST_TIMEOUT_MS = 1000;
+
+  RangeServer server;
+  byte[] content;
+  HttpConnectionPool pool;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new RangeServer(256 * 1024);
+    content = server.getContent();
+    pool = new HttpConnectionPool(MAX_CONNECTIONS, CONNECTION_REQUEST_TIMEOUT_MS);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    pool.close();
+    server.close();
+  }
+
+  @Test(timeout = 30000)
+  public void testMoreChannelsThanConnections() throws IOException {
+    val channels = new ArrayList<SeekableURLByteChannel>();
+    for (int i = 0; i < 4 * MAX_CONNECTIONS; i++) {
+      channels.add(new SeekableURLByteChannel(url(), pool));
+    }
+
+    // Each channel leaves a stream open after every read, so later channels can only read if earlier ones give theirs up
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < channels.size(); i++) {
+        val position = i * 1024L + round * 100;
+        assertThat(read(channels.get(i), position, 100)).isEqualTo(slice(position, 100));
+      }
+    }
+
+    for (val channel : channels) {
+      channel.close();
+    }
+
+    assertThat(pool.getStats().getLeased()).isZero();
+  }
+
+  @Test(timeout = 30000)
+  public void testConnectionRequestTimeout() throws IOException {
+    // Leased rather than parked, so the pool cannot take them back
+    val responses = lease(MAX_CONNECTIONS);
+    try {
+      val channel = new SeekableURLByteChannel(url(), pool);
+      assertThatThrownBy(() -> channel.read(ByteBuffer.allocate(100), 0))
+          .isInstanceOf(IOException.class)
+          .hasMessageContaining("Timed out waiting for a connection");
+    } finally {
+      close(responses);
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testSequentialReadsReuseStream() throws IOException {
+    try (val channel = new SeekableURLByteChannel(url(), pool)) {
+      for (long position = 0; position < 10 * 1000; position += 1000) {
+        assertThat(read(channel, position, 1000)).isEqualTo(slice(position, 1000));
+      }
+    }
+
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test(timeout = 30000)
+  public void testConcurrentPositionalReads() throws Exception {
+    val readers = MAX_CONNECTIONS / 2;
+    val executor = Executors.newFixedThreadPool(readers);
+    try (val channel = new SeekableURLByteChannel(url(), pool)) {
+      // Each reader continues its own stream, whatever the interleaving
+      val futures = new ArrayList<Future<List<byte[]>>>();
+      for (int i = 0; i < readers; i++) {
+        val offset = i * 64 * 1024L;
+        futures.add(executor.submit(() -> {
+          val blocks = new ArrayList<byte[]>();
+          for (long position = offset; position < offset + 50 * 1000; position += 1000) {
+            blocks.add(read(channel, position, 1000));
+          }
+
+          return blocks;
+        }));
+      }
+
+      for (int i = 0; i < readers; i++) {
+        val blocks = futures.get(i).get();
+        for (int j = 0; j < blocks.size(); j++) {
+          assertThat(blocks.get(j)).isEqualTo(slice(i * 64 * 1024L + j * 1000, 1000));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(server.getRequestCount()).isEqualTo(readers);
+  }
+
+  @Test(timeout = 30000)
+  public void testStreamNotKeptWithoutSpareConnections() throws IOException {
+    val responses = lease(MAX_CONNECTIONS / 2);
+    try (val channel = new SeekableURLByteChannel(url(), pool)) {
+      assertThat(read(channel, 0, 1000)).isEqualTo(slice(0, 1000));
+      assertThat(pool.getStats().getLeased()).isEqualTo(responses.size());
+
+      assertThat(read(channel, 1000, 1000)).isEqualTo(slice(1000, 1000));
+      assertThat(server.getRequestCount()).isEqualTo(responses.size() + 2);
+    } finally {
+      close(responses);
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testParkedStreamEvicted() throws IOException {
+    val parked = new SeekableURLByteChannel(url(), pool);
+    val other = new SeekableURLByteChannel(url(), pool);
+    List<CloseableHttpResponse> responses = null;
+    try {
+      assertThat(read(parked, 0, 1000)).isEqualTo(slice(0, 1000));
+
+      // Takes every connection but the parked one
+      responses = lease(MAX_CONNECTIONS - 1);
+      assertThat(read(other, 5000, 1000)).isEqualTo(slice(5000, 1000));
+
+      // Continues with a new request
+      assertThat(read(parked, 1000, 1000)).isEqualTo(slice(1000, 1000));
+      assertThat(server.getRequestCount()).isEqualTo(responses.size() + 3);
+    } finally {
+      parked.close();
+      other.close();
+      close(responses);
+    }
+
+    assertThat(pool.getStats().getLeased()).isZero();
+  }
+
+  private List<CloseableHttpResponse> lease(int count) throws IOException {
+    val responses = new ArrayList<CloseableHttpResponse>();
+    for (int i = 0; i < count; i++) {
+      responses.add(pool.get(url(), 0, content.length - 1));
+    }
+
+    return responses;
+  }
+
+  private static void close(List<CloseableHttpResponse> responses) throws IOException {
+    if (responses == null) {
+      return;
+    }
+
+    for (val response : responses) {
+      response.close();
+    }
+  }
+
+  private byte[] read(SeekableURLByteChannel channel, long position, int length) throws IOException {
+    val buffer = ByteBuffer.allocate(length);
+    assertThat(channel.read(buffer, position)).isEqualTo(length);
+
+    return buffer.array();
+  }
+
+  private byte[] slice(long position, int length) {
+    return Arrays.copyOfRange(content, (int) position, (int) position + length);
+  }
+
+  private URL url() {
+    return server.getUrl("/object");
+  }
+
+}
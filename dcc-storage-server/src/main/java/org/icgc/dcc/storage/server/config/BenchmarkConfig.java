@@ -20,7 +20,7 @@ package org.icgc.dcc.storage.server.config;
 import org.icgc.dcc.storage.server.service.upload.BenchmarkURLGenerator;
 import org.icgc.dcc.storage.server.service.upload.ObjectPartCalculator;
 import org.icgc.dcc.storage.server.service.upload.ObjectURLGenerator;
-import org.icgc.dcc.storage.server.service.upload.SimplePartCalculator;
+import org.icgc.dcc.storage.server.service.upload.TieredPartCalculator;
 import org.icgc.dcc.storage.server.service.upload.UploadStateStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -36,6 +36,8 @@ public class BenchmarkConfig {
 
   @Value("${upload.partsize}")
   private int partSize;
+  @Value("${upload.partsize.tiers:}")
+  private String partSizeTiers;
 
   @Bean
   public UploadStateStore stateStore() {
@@ -44,7 +46,7 @@ public class BenchmarkConfig {
 
   @Bean
   public ObjectPartCalculator calculator() {
-    return new SimplePartCalculator(partSize);
+    return new TieredPartCalculator(partSize, partSizeTiers);
 
   }
 
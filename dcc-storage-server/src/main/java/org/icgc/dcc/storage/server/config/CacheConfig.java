@@ -19,8 +19,14 @@ package org.icgc.dcc.storage.server.config;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 
+import lombok.val;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
@@ -29,9 +35,12 @@ import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /**
  * Server wide caching configuration.
@@ -45,25 +54,33 @@ public class CacheConfig extends CachingConfigurerSupport {
    */
   private static final int CACHE_TTL_MINUTES = 60;
 
+  /**
+   * State.
+   */
+  private final Map<String, com.google.common.cache.Cache<Object, Object>> stores = Maps.newConcurrentMap();
+
   @Override
   public CacheManager cacheManager() {
     return new ConcurrentMapCacheManager() {
 
       @Override
       protected Cache createConcurrentMapCache(String name) {
-        return new ConcurrentMapCache(name, createStore(), false);
+        return new ConcurrentMapCache(name, createStore(name), false);
       }
 
       /**
        * @return Guava cache instance with a suitable TTL.
        */
-      private ConcurrentMap<Object, Object> createStore() {
-        return CacheBuilder
+      private ConcurrentMap<Object, Object> createStore(String name) {
+        val store = CacheBuilder
             .newBuilder()
             .expireAfterWrite(CACHE_TTL_MINUTES, MINUTES)
             .maximumSize(100)
-            .build()
-            .asMap();
+            .recordStats()
+            .build();
+
+        stores.put(name, store);
+        return store.asMap();
       }
 
     };
@@ -74,4 +91,25 @@ public class CacheConfig extends CachingConfigurerSupport {
     return new SimpleKeyGenerator();
   }
 
-}
\ No newline at end of file
+  /**
+   * @return size and hit / miss ratios of each cache, named like the actuator's own {@code cache.*} metrics.
+   */
+  @Bean
+  public PublicMetrics cachePublicMetrics() {
+    return () -> {
+      Collection<Metric<?>> metrics = Lists.newArrayList();
+      stores.forEach((name, store) -> {
+        val stats = store.stats();
+        val prefix = "cache." + name + ".";
+        metrics.add(new Metric<Long>(prefix + "size", store.size()));
+        if (stats.requestCount() > 0) {
+          metrics.add(new Metric<Double>(prefix + "hit.ratio", stats.hitRate()));
+          metrics.add(new Metric<Double>(prefix + "miss.ratio", stats.missRate()));
+        }
+      });
+
+      return metrics;
+    };
+  }
+
+}
@@ -3,6 +3,8 @@ package org.icgc.dcc.storage.server.config;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
+import org.icgc.dcc.storage.server.metric.MeteredAmazonS3;
+import org.icgc.dcc.storage.server.metric.ServerMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -44,7 +46,7 @@ public class S3Config {
   private int connectionTimeout;
 
   @Bean
-  public AmazonS3 s3() {
+  public AmazonS3 s3(ServerMetrics metrics) {
     AmazonS3 s3Client = null;
     if (accessKey != null && secretKey != null) {
       s3Client = new AmazonS3Client(new BasicAWSCredentials(accessKey, secretKey), clientConfiguration());
@@ -58,7 +60,7 @@ public class S3Config {
     s3Client.setEndpoint(endpoint);
     s3Client.setS3ClientOptions(new S3ClientOptions().withPathStyleAccess(true));
 
-    return s3Client;
+    return MeteredAmazonS3.wrap(s3Client, metrics);
   }
 
   private ClientConfiguration clientConfiguration() {
@@ -64,6 +64,9 @@ public class SecurityConfig extends ResourceServerConfigurerAdapter {
   @Value("${auth.server.downloadScope}")
   private String downloadScope;
 
+  @Value("${metrics.anonymous:false}")
+  private boolean anonymousMetrics;
+
   @Override
   public void configure(HttpSecurity http) throws Exception {
     http.addFilterAfter(new OncePerRequestFilter() {
@@ -111,6 +114,12 @@ public class SecurityConfig extends ResourceServerConfigurerAdapter {
     log.info("using upload scope: {}", uploadScope);
     log.info("using download scope: {}", downloadScope);
 
+    if (anonymousMetrics) {
+      // Opted in for scrapers without a token
+      log.info("allowing anonymous access to /prometheus");
+      http.authorizeRequests().antMatchers("/prometheus").permitAll();
+    }
+
     // @formatter:off     
     http
       .authorizeRequests()
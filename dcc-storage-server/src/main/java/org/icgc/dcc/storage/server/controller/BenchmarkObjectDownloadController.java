@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.controller;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.server.service.download.BenchmarkObjectDownloadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * An emulator for S3 download for benchmarking purpose only
+ */
+@Setter
+@RestController
+@RequestMapping("/download")
+@Slf4j
+@Profile("benchmark")
+public class BenchmarkObjectDownloadController extends ObjectDownloadController {
+
+  @Autowired
+  BenchmarkObjectDownloadService benchmarkService;
+
+  @Override
+  @RequestMapping(method = RequestMethod.GET, value = "/ping")
+  public @ResponseBody String ping(
+      @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) final String accessToken,
+      @RequestHeader(value = "User-Agent", defaultValue = "unknown") String userAgent, HttpServletRequest request) {
+    return benchmarkService.getSentinelObject();
+  }
+
+  @Override
+  @RequestMapping(method = RequestMethod.GET, value = "/{object-id}")
+  public @ResponseBody ObjectSpecification downloadPartialObject(
+      @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) final String accessToken,
+      @PathVariable(value = "object-id") String objectId,
+      @RequestParam(value = "offset", required = true) long offset,
+      @RequestParam(value = "length", required = true) long length,
+      @RequestParam(value = "external", defaultValue = "false") boolean external,
+      @RequestParam(value = "partSize", defaultValue = "0") long partSize,
+      @RequestHeader(value = "User-Agent", defaultValue = "unknown") String userAgent,
+      HttpServletRequest request) {
+    return benchmarkService.download(objectId, offset, length, external, partSize);
+  }
+
+  @RequestMapping(method = RequestMethod.GET, value = "/data/{object-id}")
+  public void syntheticOutputStream(
+      @PathVariable("object-id") String objectId,
+      @RequestParam(value = "partNumber", required = false) Integer partNumber,
+      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+      HttpServletResponse response) throws IOException {
+
+    val objectSize = benchmarkService.getObjectSize(objectId);
+    long offset = 0;
+    long length = objectSize;
+    if (range != null) {
+      List<HttpRange> ranges = HttpRange.parseRanges(range);
+      if (ranges.size() != 1) {
+        response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), "Only single ranges are supported");
+        return;
+      }
+
+      val httpRange = ranges.get(0);
+      offset = httpRange.getRangeStart(objectSize);
+      length = httpRange.getRangeEnd(objectSize) - offset + 1;
+
+      response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+      response.setHeader(HttpHeaders.CONTENT_RANGE,
+          "bytes " + offset + "-" + (offset + length - 1) + "/" + objectSize);
+    }
+
+    log.debug("object id: {}, part number: {}, offset: {}, number of bytes: {}", objectId, partNumber, offset, length);
+    response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    response.setContentLengthLong(length);
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    benchmarkService.write(offset, length, response.getOutputStream());
+  }
+
+}
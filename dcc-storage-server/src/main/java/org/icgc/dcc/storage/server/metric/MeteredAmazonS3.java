@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.metric;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.s3.AmazonS3;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Decorates an {@link AmazonS3} client so that every S3 operation (including local operations such as
+ * {@code generatePresignedUrl}) is timed per bucket.
+ * <p>
+ * Metrics are named {@code s3.<bucket>.<method>}. Client configuration methods are passed through untouched.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+public class MeteredAmazonS3 implements InvocationHandler {
+
+  /**
+   * Constants.
+   */
+  static final String NO_BUCKET = "none";
+  private static final String METRIC_PREFIX = "s3.";
+  private static final Set<String> UNMETERED_METHODS =
+      ImmutableSet.of("shutdown", "getCachedResponseMetadata", "getRegion");
+
+  /**
+   * Dependencies.
+   */
+  @NonNull
+  private final AmazonS3 delegate;
+  @NonNull
+  private final ServerMetrics metrics;
+
+  public static AmazonS3 wrap(@NonNull AmazonS3 delegate, @NonNull ServerMetrics metrics) {
+    return (AmazonS3) Proxy.newProxyInstance(
+        AmazonS3.class.getClassLoader(),
+        new Class<?>[] { AmazonS3.class },
+        new MeteredAmazonS3(delegate, metrics));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if (!isMetered(method)) {
+      return invokeDelegate(method, args);
+    }
+
+    val name = METRIC_PREFIX + getBucketName(args) + "." + method.getName();
+    val watch = Stopwatch.createStarted();
+    try {
+      return invokeDelegate(method, args);
+    } catch (Throwable t) {
+      metrics.recordFailure(name);
+      throw t;
+    } finally {
+      metrics.recordTime(name, watch.elapsed(MILLISECONDS));
+    }
+  }
+
+  private Object invokeDelegate(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(delegate, args);
+    } catch (InvocationTargetException e) {
+      // Surface the original exception so callers can keep catching AmazonServiceException et al.
+      throw e.getCause();
+    }
+  }
+
+  private static boolean isMetered(Method method) {
+    val name = method.getName();
+    return method.getDeclaringClass() != Object.class && !name.startsWith("set") && !UNMETERED_METHODS.contains(name);
+  }
+
+  /**
+   * Every bucket scoped operation takes the bucket name or a request carrying it as its first argument.
+   */
+  static String getBucketName(Object[] args) {
+    if (args == null || args.length == 0) {
+      return NO_BUCKET;
+    }
+
+    Object bucketName = null;
+    val first = args[0];
+    if (first instanceof String) {
+      bucketName = first;
+    } else if (first instanceof AmazonWebServiceRequest) {
+      try {
+        bucketName = first.getClass().getMethod("getBucketName").invoke(first);
+      } catch (ReflectiveOperationException e) {
+        // Not a bucket scoped request
+      }
+    }
+
+    return bucketName instanceof String ? formatBucketName((String) bucketName) : NO_BUCKET;
+  }
+
+  private static String formatBucketName(String bucketName) {
+    // Keep partitioned bucket names (e.g. "oicr.icgc.12") as a single metric name segment
+    return bucketName.replace('.', '_');
+  }
+
+}
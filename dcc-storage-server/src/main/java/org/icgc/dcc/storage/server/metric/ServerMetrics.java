@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.metric;
+
+import lombok.NonNull;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Thin facade over the actuator metric services used to record server side timings and counts.
+ * <p>
+ * Names submitted with the {@code timer.} prefix are backed by Dropwizard timers (and therefore expose percentiles)
+ * when Dropwizard metrics is on the classpath. All metrics are published through {@code /metrics} and, in Prometheus
+ * text format, through {@code /prometheus}.
+ */
+@Component
+public class ServerMetrics {
+
+  /**
+   * Constants.
+   */
+  private static final String TIMER_PREFIX = "timer.";
+  private static final String FAILURE_SUFFIX = ".failure";
+
+  /**
+   * Dependencies.
+   */
+  @Autowired
+  private GaugeService gaugeService;
+  @Autowired
+  private CounterService counterService;
+
+  public void recordTime(@NonNull String name, long millis) {
+    gaugeService.submit(TIMER_PREFIX + name, millis);
+  }
+
+  public void recordFailure(@NonNull String name) {
+    counterService.increment(name + FAILURE_SUFFIX);
+  }
+
+}
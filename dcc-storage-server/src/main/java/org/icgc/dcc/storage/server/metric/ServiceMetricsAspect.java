@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.metric;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import lombok.val;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Times every public operation of the control plane services (upload, download, upload state, listing, metadata
+ * lookups and token checks) and counts their failures.
+ * <p>
+ * Metrics are named {@code service.<class>.<method>}.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+  /**
+   * Constants.
+   */
+  private static final String METRIC_PREFIX = "service.";
+
+  /**
+   * Dependencies.
+   */
+  @Autowired
+  private ServerMetrics metrics;
+
+  @Pointcut("within(org.icgc.dcc.storage.server.service.upload.ObjectUploadService)"
+      + " || within(org.icgc.dcc.storage.server.service.upload.UploadStateStore)"
+      + " || within(org.icgc.dcc.storage.server.service.download.ObjectDownloadService)"
+      + " || within(org.icgc.dcc.storage.server.service.ObjectListingService)"
+      + " || within(org.icgc.dcc.storage.server.service.MetadataService)"
+      + " || within(org.icgc.dcc.storage.server.oauth.CachingRemoteTokenServices)")
+  public void controlPlaneService() {
+  }
+
+  @Around("controlPlaneService() && execution(public * *(..))")
+  public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+    val signature = joinPoint.getSignature();
+    val name = METRIC_PREFIX + signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+
+    val watch = Stopwatch.createStarted();
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable t) {
+      metrics.recordFailure(name);
+      throw t;
+    } finally {
+      metrics.recordTime(name, watch.elapsed(MILLISECONDS));
+    }
+  }
+
+}
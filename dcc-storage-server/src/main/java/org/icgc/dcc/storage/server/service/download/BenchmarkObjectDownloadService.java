@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.service.download;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
+import org.icgc.dcc.storage.core.util.ObjectKeys;
+import org.icgc.dcc.storage.server.exception.InternalUnrecoverableError;
+import org.icgc.dcc.storage.server.service.upload.ObjectPartCalculator;
+import org.icgc.dcc.storage.server.service.upload.ObjectURLGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+/**
+ * Download emulator for benchmarking purpose only. Every object id resolves to a synthetic object of
+ * {@code benchmark.object.size} bytes whose content is generated on the fly by {@link SyntheticObjectData}.
+ */
+@Slf4j
+@Setter
+@Service
+@Profile("benchmark")
+public class BenchmarkObjectDownloadService {
+
+  /**
+   * Constants.
+   */
+  private static final long SENTINEL_SIZE = 1024L;
+
+  /**
+   * Configuration.
+   */
+  @Value("${collaboratory.data.directory}")
+  private String dataDir;
+  @Value("${object.sentinel}")
+  private String sentinelObjectId;
+  @Value("${benchmark.object.size}")
+  private long objectSize;
+  @Value("${benchmark.object.seed}")
+  private long seed;
+
+  /**
+   * Dependencies.
+   */
+  @Autowired
+  private ObjectURLGenerator urlGenerator;
+  @Autowired
+  private ObjectPartCalculator partCalculator;
+
+  /**
+   * State.
+   */
+  private SyntheticObjectData data;
+
+  @PostConstruct
+  public void init() {
+    checkState(objectSize > 0, "Benchmark object size must be positive: %s", objectSize);
+
+    // Repeat the content every part so that parts share their MD5s
+    val period = partCalculator.divide(objectSize).get(0).getPartSize();
+    data = new SyntheticObjectData(period, seed);
+    log.info("Serving synthetic objects of {} bytes with a period of {} bytes", objectSize, period);
+  }
+
+  public ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse,
+      long partSize) {
+    checkArgument(offset > -1L);
+
+    val size = getObjectSize(objectId);
+    if (length < 0L) {
+      length = size - offset;
+    }
+    if ((offset + length) > size) {
+      throw new InternalUnrecoverableError("Specified parameters exceed object size (object id: " + objectId
+          + ", offset: " + offset
+          + ", length: " + length + ")");
+    }
+
+    val objectKey = ObjectKeys.getObjectKey(dataDir, objectId);
+    val expirationDate = getExpirationDate();
+
+    List<Part> parts;
+    if (forExternalUse) {
+      parts = partCalculator.specify(0L, -1L);
+      for (val part : parts) {
+        part.setUrl(urlGenerator.getDownloadUrl(null, objectKey, expirationDate));
+      }
+    } else {
+      parts = partCalculator.divide(offset, length, partSize);
+      for (val part : parts) {
+        part.setUrl(urlGenerator.getDownloadPartUrl(null, objectKey, part, expirationDate));
+        if (part.getOffset() % data.getPeriod() == 0) {
+          // Cheap since aligned parts share their content; others would each need hashing
+          part.setSourceMd5(data.getMd5(part.getOffset(), part.getPartSize()));
+        }
+      }
+    }
+
+    // No object MD5: computing it would mean hashing the whole object, so clients should skip validation
+    return new ObjectSpecification(objectKey.getKey(), objectId, objectId, parts, length, null, false);
+  }
+
+  public String getSentinelObject() {
+    return urlGenerator.getDownloadUrl(null, ObjectKeys.getObjectKey(dataDir, sentinelObjectId), getExpirationDate());
+  }
+
+  public long getObjectSize(String objectId) {
+    // Keep the connectivity check cheap
+    return sentinelObjectId.equals(objectId) ? SENTINEL_SIZE : objectSize;
+  }
+
+  public void write(long offset, long length, OutputStream out) throws IOException {
+    data.write(offset, length, out);
+  }
+
+  private static Date getExpirationDate() {
+    val now = LocalDateTime.now();
+    return Date.from(now.plusDays(1).atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+}
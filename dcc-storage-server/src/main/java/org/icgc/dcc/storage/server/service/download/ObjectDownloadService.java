@@ -18,6 +18,8 @@
 package org.icgc.dcc.storage.server.service.download;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -90,6 +92,16 @@ public class ObjectDownloadService {
   private ObjectPartCalculator partCalculator;
 
   public ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse) {
+    return download(objectId, offset, length, forExternalUse, 0L);
+  }
+
+  /**
+   * @param partSize the client's preferred part size, or a non-positive value for the server's part geometry. Parts
+   * are only ranges of the data object, so they can be sized per request. A whole object keeps its stored parts unless
+   * the preferred size lines up with them, so that every part can still be verified by its MD5.
+   */
+  public ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse,
+      long partSize) {
     try {
       checkArgument(offset > -1L);
 
@@ -97,7 +109,8 @@ public class ObjectDownloadService {
       val objectSpec = getSpecification(objectId);
 
       // Short-circuit in default case
-      if (!forExternalUse && (offset == 0L && length < 0L)) {
+      val whole = !forExternalUse && (offset == 0L && length < 0L);
+      if (whole && partSize <= 0L) {
         return objectSpec;
       }
 
@@ -123,7 +136,11 @@ public class ObjectDownloadService {
         // Return as a single part - no matter how large
         parts = partCalculator.specify(0L, -1L);
       } else {
-        parts = partCalculator.divide(offset, length);
+        parts = partCalculator.divide(offset, length, partSize);
+        if (!copySourceMd5s(objectSpec.getParts(), parts) && whole) {
+          // Re-divided parts would lose their MD5s
+          return objectSpec;
+        }
       }
 
       fillPartUrls(objectKey, parts, objectSpec.isRelocated(), forExternalUse);
@@ -131,8 +148,8 @@ public class ObjectDownloadService {
       return new ObjectSpecification(objectKey.getKey(), objectId, objectId, parts, length, objectSpec.getObjectMd5(),
           objectSpec.isRelocated());
     } catch (Exception e) {
-      log.error("Failed to download objectId: {}, offset: {}, length: {}, forExternalUse: {}: {} ",
-          objectId, offset, length, forExternalUse, e);
+      log.error("Failed to download objectId: {}, offset: {}, length: {}, forExternalUse: {}, partSize: {}: {} ",
+          objectId, offset, length, forExternalUse, partSize, e);
 
       throw e;
     }
@@ -263,6 +280,30 @@ public class ObjectDownloadService {
     }
   }
 
+  /*
+   * Keep the stored MD5 of every part that lines up with an uploaded part so it can still be verified. Returns whether
+   * every part kept one, or there were none to keep.
+   */
+  private static boolean copySourceMd5s(List<Part> uploadedParts, List<Part> parts) {
+    if (uploadedParts.stream().allMatch(Part::isMissingSourceMd5)) {
+      // Nothing to lose
+      return true;
+    }
+
+    val uploaded = uploadedParts.stream().collect(toMap(Part::getOffset, identity(), (a, b) -> a));
+    boolean aligned = true;
+    for (val part : parts) {
+      val match = uploaded.get(part.getOffset());
+      if (match != null && match.getPartSize() == part.getPartSize() && !match.isMissingSourceMd5()) {
+        part.setSourceMd5(match.getSourceMd5());
+      } else {
+        aligned = false;
+      }
+    }
+
+    return aligned;
+  }
+
   private Date getExpirationDate() {
     val now = LocalDateTime.now();
     return Date.from(now.plusDays(expiration).atZone(ZoneId.systemDefault()).toInstant());
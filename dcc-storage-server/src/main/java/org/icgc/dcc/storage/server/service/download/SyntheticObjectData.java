@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.service.download;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.val;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Deterministic pseudo-random object content used to benchmark downloads without a backing object store.
+ * <p>
+ * The content repeats every {@code period} bytes. When the period is the part size, every aligned part has the same
+ * bytes, so part MD5s are computed once and cached.
+ */
+public class SyntheticObjectData {
+
+  /**
+   * Constants.
+   */
+  static final int BLOCK_SIZE = 1024 * 1024;
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final long period;
+
+  /**
+   * State.
+   */
+  private final byte[] block = new byte[BLOCK_SIZE];
+  private final ConcurrentMap<String, String> md5s = new ConcurrentHashMap<>();
+
+  public SyntheticObjectData(long period, long seed) {
+    checkArgument(period > 0, "Period must be positive: %s", period);
+    this.period = period;
+    new Random(seed).nextBytes(block);
+  }
+
+  /**
+   * Writes {@code length} bytes of content starting at {@code offset} to {@code out}.
+   */
+  public void write(long offset, long length, OutputStream out) throws IOException {
+    checkArgument(offset >= 0 && length >= 0, "Invalid range (offset: %s, length: %s)", offset, length);
+    long position = offset;
+    long remaining = length;
+    while (remaining > 0) {
+      val periodOffset = position % period;
+      val blockOffset = (int) (periodOffset % BLOCK_SIZE);
+      val n = (int) Math.min(remaining, Math.min(BLOCK_SIZE - blockOffset, period - periodOffset));
+
+      out.write(block, blockOffset, n);
+      position += n;
+      remaining -= n;
+    }
+  }
+
+  /**
+   * @return hex MD5 of the {@code length} bytes starting at {@code offset}
+   */
+  public String getMd5(long offset, long length) {
+    return md5s.computeIfAbsent(offset % period + ":" + length, key -> md5(offset, length));
+  }
+
+  @SneakyThrows
+  private String md5(long offset, long length) {
+    val hasher = Hashing.md5().newHasher();
+    write(offset, length, new OutputStream() {
+
+      @Override
+      public void write(int b) {
+        hasher.putByte((byte) b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        hasher.putBytes(b, off, len);
+      }
+
+    });
+
+    return hasher.hash().toString();
+  }
+
+}
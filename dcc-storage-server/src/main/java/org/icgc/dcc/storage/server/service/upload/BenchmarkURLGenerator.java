@@ -37,17 +37,18 @@ public class BenchmarkURLGenerator implements ObjectURLGenerator {
   @Override
   public String getUploadPartUrl(String bucketName, ObjectKey objectKey, String uploadId, Part part, Date expiration) {
     log.info("Benchmark mode is on");
-    return endpoint + "/upload/" + objectKey + "?partNumber=" + String.valueOf(part.getPartNumber()) + "&uploadId="
-        + uploadId;
+    return endpoint + "/upload/" + objectKey.getKey() + "?partNumber=" + String.valueOf(part.getPartNumber())
+        + "&uploadId=" + uploadId;
   }
 
   @Override
   public String getDownloadPartUrl(String bucketName, ObjectKey objectKey, Part part, Date expiration) {
-    return null;
+    // The client supplies the part's Range header
+    return getDownloadUrl(bucketName, objectKey, expiration) + "?partNumber=" + String.valueOf(part.getPartNumber());
   }
 
   @Override
   public String getDownloadUrl(String bucketName, ObjectKey objectKey, Date expiration) {
-    return null;
+    return endpoint + "/download/" + objectKey.getKey();
   }
 }
@@ -30,5 +30,11 @@ public interface ObjectPartCalculator {
 
   public List<Part> divide(long fileSize);
 
+  /**
+   * Divides using the caller's preferred part size, bounded by the calculator's own limits. A non-positive preferred
+   * part size falls back to {@link #divide(long, long)}.
+   */
+  public List<Part> divide(long offset, long fileSize, long preferredPartSize);
+
   public List<Part> specify(long offset, long length);
 }
@@ -34,6 +34,7 @@ public class SimplePartCalculator implements ObjectPartCalculator {
 
   private static final int MAX_NUM_PART = 10000;
   private static final int MIN_PART_SIZE = 20 * 1024 * 1024; // 20MB
+  private static final int MAX_PART_SIZE = 1024 * 1024 * 1024; // 1GB
 
   private final int minPartSize;
 
@@ -48,7 +49,20 @@ public class SimplePartCalculator implements ObjectPartCalculator {
 
   @Override
   public List<Part> divide(long offset, long objectLength) {
-    int defaultPartSize = Math.max(minPartSize, (int) (objectLength / MAX_NUM_PART) + 1);
+    return split(offset, objectLength, getPartSize(objectLength));
+  }
+
+  @Override
+  public List<Part> divide(long offset, long objectLength, long preferredPartSize) {
+    if (preferredPartSize <= 0) {
+      return divide(offset, objectLength);
+    }
+
+    int partSize = (int) Math.min(Math.max(preferredPartSize, minPartSize), MAX_PART_SIZE);
+    return split(offset, objectLength, Math.max(partSize, (int) (objectLength / MAX_NUM_PART) + 1));
+  }
+
+  private static List<Part> split(long offset, long objectLength, int defaultPartSize) {
     log.debug("Part Size: {}", defaultPartSize);
     Builder<Part> parts = ImmutableList.builder();
     long currentTotalLength = 0;
@@ -60,6 +74,13 @@ public class SimplePartCalculator implements ObjectPartCalculator {
     return parts.build();
   }
 
+  /**
+   * @return the size of all but the last part of an object of {@code objectLength} bytes
+   */
+  protected int getPartSize(long objectLength) {
+    return Math.max(minPartSize, (int) (objectLength / MAX_NUM_PART) + 1);
+  }
+
   @Override
   public List<Part> specify(long offset, long length) {
     return ImmutableList.of(new Part(1, length, offset, null, null, null));
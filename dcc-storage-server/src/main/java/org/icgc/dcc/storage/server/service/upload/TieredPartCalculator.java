@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.service.upload;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * Divides objects into parts whose minimum size grows with the object size, so that very large objects need far fewer
+ * parts (and so fewer presigned URLs, state markers and finalize calls) while small objects keep the geometry of
+ * {@link SimplePartCalculator}.
+ * <p>
+ * Tiers are specified as comma separated {@code threshold:partSize} pairs with optional {@code KB}, {@code MB},
+ * {@code GB} or {@code TB} (binary) units, e.g. {@code 10GB:64MB,100GB:256MB}. An object uses the part size of the
+ * largest threshold it reaches.
+ */
+@Slf4j
+public class TieredPartCalculator extends SimplePartCalculator {
+
+  /**
+   * Constants.
+   */
+  private static final Pattern SIZE_PATTERN = Pattern.compile("(\\d+)\\s*([KMGT]?B?)", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Configuration.
+   */
+  private final NavigableMap<Long, Integer> tiers;
+
+  public TieredPartCalculator(int minPartSize, @NonNull Map<Long, Integer> tiers) {
+    super(minPartSize);
+    this.tiers = ImmutableSortedMap.copyOf(tiers);
+    log.info("Part size tiers: {}", this.tiers);
+  }
+
+  public TieredPartCalculator(int minPartSize, @NonNull String tiers) {
+    this(minPartSize, parseTiers(tiers));
+  }
+
+  @Override
+  protected int getPartSize(long objectLength) {
+    val partSize = super.getPartSize(objectLength);
+    val tier = tiers.floorEntry(objectLength);
+
+    return tier == null ? partSize : Math.max(partSize, tier.getValue());
+  }
+
+  public static Map<Long, Integer> parseTiers(@NonNull String value) {
+    val tiers = new TreeMap<Long, Integer>();
+    for (val tier : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+      val pair = Splitter.on(':').trimResults().splitToList(tier);
+      checkArgument(pair.size() == 2, "Invalid part size tier '%s', expected <threshold>:<partSize>", tier);
+
+      val partSize = parseSize(pair.get(1));
+      checkArgument(partSize > 0 && partSize <= Integer.MAX_VALUE, "Invalid part size in tier '%s'", tier);
+      tiers.put(parseSize(pair.get(0)), (int) partSize);
+    }
+
+    return tiers;
+  }
+
+  static long parseSize(String value) {
+    val matcher = SIZE_PATTERN.matcher(value.trim());
+    checkArgument(matcher.matches(), "Invalid size '%s'", value);
+
+    val size = Long.parseLong(matcher.group(1));
+    val unit = matcher.group(2).toUpperCase();
+    if (unit.startsWith("K")) {
+      return size << 10;
+    } else if (unit.startsWith("M")) {
+      return size << 20;
+    } else if (unit.startsWith("G")) {
+      return size << 30;
+    } else if (unit.startsWith("T")) {
+      return size << 40;
+    }
+
+    return size;
+  }
+
+}
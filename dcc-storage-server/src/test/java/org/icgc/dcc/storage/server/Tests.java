@@ -18,10 +18,12 @@
 package org.icgc.dcc.storage.server;
 
 import static lombok.AccessLevel.PRIVATE;
+import static org.mockito.Mockito.mock;
 import lombok.NoArgsConstructor;
 import lombok.val;
 
 import org.icgc.dcc.storage.server.config.S3Config;
+import org.icgc.dcc.storage.server.metric.ServerMetrics;
 import org.icgc.dcc.storage.server.service.upload.ObjectUploadService;
 import org.icgc.dcc.storage.server.service.upload.UploadStateStore;
 import org.icgc.dcc.storage.server.util.BucketNamingService;
@@ -38,7 +40,7 @@ public class Tests {
     val endpoint = "https://www.cancercollaboratory.org:9080";
     val s3Config = new S3Config();
     s3Config.setEndpoint(endpoint);
-    val s3Client = s3Config.s3();
+    val s3Client = s3Config.s3(mock(ServerMetrics.class));
 
     val namingService = new BucketNamingService();
     namingService.setObjectBucketName(OBJECT_BUCKET_NAME);
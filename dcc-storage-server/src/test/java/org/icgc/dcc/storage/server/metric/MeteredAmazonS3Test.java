@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.metric;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+
+import lombok.val;
+
+public class MeteredAmazonS3Test {
+
+  AmazonS3 delegate;
+  ServerMetrics metrics;
+
+  /**
+   * SUT
+   */
+  AmazonS3 s3;
+
+  @Before
+  public void setUp() {
+    delegate = mock(AmazonS3.class);
+    metrics = mock(ServerMetrics.class);
+    s3 = MeteredAmazonS3.wrap(delegate, metrics);
+  }
+
+  @Test
+  public void test_bucket_name_from_string_argument() {
+    assertThat(MeteredAmazonS3.getBucketName(new Object[] { "oicr.icgc.12", "data/key" })).isEqualTo("oicr_icgc_12");
+  }
+
+  @Test
+  public void test_bucket_name_from_request_argument() {
+    val request = new ListObjectsRequest().withBucketName("oicr.icgc");
+    assertThat(MeteredAmazonS3.getBucketName(new Object[] { request })).isEqualTo("oicr_icgc");
+  }
+
+  @Test
+  public void test_bucket_name_without_arguments() {
+    assertThat(MeteredAmazonS3.getBucketName(null)).isEqualTo(MeteredAmazonS3.NO_BUCKET);
+    assertThat(MeteredAmazonS3.getBucketName(new Object[] {})).isEqualTo(MeteredAmazonS3.NO_BUCKET);
+  }
+
+  @Test
+  public void test_operation_is_timed() {
+    s3.getObjectMetadata("oicr.icgc", "data/key");
+
+    verify(delegate).getObjectMetadata("oicr.icgc", "data/key");
+    verify(metrics).recordTime(eq("s3.oicr_icgc.getObjectMetadata"), anyLong());
+    verify(metrics, never()).recordFailure("s3.oicr_icgc.getObjectMetadata");
+  }
+
+  @Test
+  public void test_configuration_is_not_timed() {
+    s3.setEndpoint("localhost");
+
+    verify(delegate).setEndpoint("localhost");
+    verify(metrics, never()).recordTime(eq("s3.localhost.setEndpoint"), anyLong());
+  }
+
+  @Test
+  public void test_failure_is_counted_and_rethrown() {
+    val request = new GetObjectRequest("oicr.icgc", "data/key");
+    val exception = new AmazonServiceException("Not found");
+    when(delegate.getObject(request)).thenThrow(exception);
+
+    try {
+      s3.getObject(request);
+      fail("Expected exception");
+    } catch (AmazonServiceException e) {
+      assertThat(e).isSameAs(exception);
+    }
+
+    verify(metrics).recordFailure("s3.oicr_icgc.getObject");
+    verify(metrics).recordTime(eq("s3.oicr_icgc.getObject"), anyLong());
+  }
+
+}
@@ -18,6 +18,8 @@
 package org.icgc.dcc.storage.server.service.download;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
@@ -26,6 +28,8 @@ import static org.mockito.Mockito.when;
 import java.net.URL;
 import java.util.regex.Pattern;
 
+import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
 import org.icgc.dcc.storage.core.util.ObjectKeys;
 import org.icgc.dcc.storage.server.config.ServerConfig;
 import org.icgc.dcc.storage.server.exception.IdNotFoundException;
@@ -46,6 +50,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
 
 import lombok.val;
 
@@ -197,4 +202,48 @@ public class ObjectDownloadServiceTest extends ObjectDownloadService {
 
     System.out.println();
   }
+
+  @Test
+  public void default_download_keeps_part_md5s() throws Exception {
+    val os = createSpecificationWithMd5s();
+
+    val sut = spy(service);
+    doReturn(os).when(sut).getSpecification(objectId);
+
+    val objSpec = sut.download(objectId, 0, -1, false);
+    assertEquals(os.getParts(), objSpec.getParts());
+    for (val part : objSpec.getParts()) {
+      assertFalse(part.isMissingSourceMd5());
+    }
+  }
+
+  @Test
+  public void misaligned_part_size_keeps_stored_parts() throws Exception {
+    val os = createSpecificationWithMd5s();
+
+    val sut = spy(service);
+    doReturn(os).when(sut).getSpecification(objectId);
+
+    // 30MB parts do not line up with the stored 20MB parts
+    val objSpec = sut.download(objectId, 0, -1, false, 30 * 1024 * 1024);
+    assertSame(os, objSpec);
+    for (val part : objSpec.getParts()) {
+      assertFalse(part.isMissingSourceMd5());
+    }
+  }
+
+  private ObjectSpecification createSpecificationWithMd5s() {
+    val partSize = 20971520;
+    val parts = Lists.<Part> newArrayList();
+    for (int i = 0; i < 5; i++) {
+      parts.add(new Part(i + 1, partSize, (long) i * partSize, null, null, "md5-" + i));
+    }
+
+    val os = ObjectDownloadServiceStubFactory.createObjectSpecification(objectId,
+        ObjectKeys.getObjectKey(dataDir, objectId), 5 * partSize);
+    os.setParts(parts);
+
+    return os;
+  }
+
 }
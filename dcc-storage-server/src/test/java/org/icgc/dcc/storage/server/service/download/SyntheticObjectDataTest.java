@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.service.download;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+
+import lombok.val;
+
+import org.junit.Test;
+
+import com.google.common.hash.Hashing;
+
+public class SyntheticObjectDataTest {
+
+  private static final long PERIOD = 3 * SyntheticObjectData.BLOCK_SIZE + 17;
+
+  private final SyntheticObjectData data = new SyntheticObjectData(PERIOD, 42L);
+
+  @Test
+  public void test_write_is_deterministic() throws Exception {
+    val other = new SyntheticObjectData(PERIOD, 42L);
+    assertThat(read(data, 1000, 5000)).isEqualTo(read(other, 1000, 5000));
+  }
+
+  @Test
+  public void test_write_range_matches_full_content() throws Exception {
+    val length = 2 * PERIOD + 100;
+    val all = read(data, 0, length);
+
+    val offset = PERIOD - 50;
+    val range = read(data, offset, 200);
+    for (int i = 0; i < range.length; i++) {
+      assertThat(range[i]).isEqualTo(all[(int) offset + i]);
+    }
+  }
+
+  @Test
+  public void test_write_repeats_every_period() throws Exception {
+    assertThat(read(data, PERIOD, PERIOD)).isEqualTo(read(data, 0, PERIOD));
+  }
+
+  @Test
+  public void test_md5_matches_content() throws Exception {
+    val offset = PERIOD + 123;
+    val length = SyntheticObjectData.BLOCK_SIZE + 456;
+    val expected = Hashing.md5().hashBytes(read(data, offset, length)).toString();
+
+    assertThat(data.getMd5(offset, length)).isEqualTo(expected);
+    assertThat(data.getMd5(offset + PERIOD, length)).isEqualTo(expected);
+  }
+
+  private static byte[] read(SyntheticObjectData data, long offset, long length) throws Exception {
+    val out = new ByteArrayOutputStream();
+    data.write(offset, length, out);
+    assertThat(out.size()).isEqualTo((int) length);
+
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.service.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import lombok.val;
+
+import org.junit.Test;
+
+public class SimplePartCalculatorTest {
+
+  private static final long MB = 1024L * 1024L;
+  private static final long GB = 1024L * MB;
+
+  SimplePartCalculator sut = new SimplePartCalculator(20000000);
+
+  @Test
+  public void test_divide_preferred_part_size() {
+    val parts = sut.divide(100L, GB, 128 * MB);
+    assertThat(parts).hasSize(8);
+    assertThat(parts.get(1).getOffset()).isEqualTo(100L + 128 * MB);
+  }
+
+  @Test
+  public void test_divide_preferred_part_size_bounds() {
+    assertThat(sut.divide(0L, GB, MB).get(0).getPartSize()).isEqualTo(20 * MB);
+    assertThat(sut.divide(0L, 10 * GB, 4 * GB).get(0).getPartSize()).isEqualTo(GB);
+    assertThat(sut.divide(0L, 1000 * GB, 64 * MB)).hasSize(10000);
+  }
+
+  @Test
+  public void test_divide_no_preferred_part_size() {
+    assertThat(sut.divide(0L, GB, 0L)).isEqualTo(sut.divide(0L, GB));
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.service.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import lombok.val;
+
+import org.junit.Test;
+
+public class TieredPartCalculatorTest {
+
+  private static final long MB = 1024L * 1024L;
+  private static final long GB = 1024L * MB;
+
+  TieredPartCalculator sut = new TieredPartCalculator(20000000, "10GB:64MB,100GB:256MB");
+
+  @Test
+  public void test_small_object_keeps_simple_geometry() {
+    val simple = new SimplePartCalculator(20000000);
+    assertThat(sut.divide(5 * GB)).isEqualTo(simple.divide(5 * GB));
+  }
+
+  @Test
+  public void test_tiers() {
+    assertThat(sut.divide(10 * GB).get(0).getPartSize()).isEqualTo(64 * MB);
+    assertThat(sut.divide(99 * GB).get(0).getPartSize()).isEqualTo(64 * MB);
+    assertThat(sut.divide(100 * GB).get(0).getPartSize()).isEqualTo(256 * MB);
+  }
+
+  @Test
+  public void test_large_object_has_fewer_parts() {
+    val parts = sut.divide(250 * GB);
+    assertThat(parts).hasSize(1000);
+    assertThat(parts.get(999).getOffset() + parts.get(999).getPartSize()).isEqualTo(250 * GB);
+  }
+
+  @Test
+  public void test_max_parts_still_enforced() {
+    val calculator = new TieredPartCalculator(20000000, "1GB:32MB");
+    val parts = calculator.divide(1000 * GB);
+    assertThat(parts.size()).isLessThanOrEqualTo(10000);
+  }
+
+  @Test
+  public void test_parse_tiers() {
+    assertThat(TieredPartCalculator.parseTiers(" 10gb : 64m, 1024:2KB ,"))
+        .containsEntry(10 * GB, (int) (64 * MB))
+        .containsEntry(1024L, 2048)
+        .hasSize(2);
+    assertThat(TieredPartCalculator.parseTiers("")).isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_parse_tiers_invalid() {
+    TieredPartCalculator.parseTiers("10GB");
+  }
+
+}
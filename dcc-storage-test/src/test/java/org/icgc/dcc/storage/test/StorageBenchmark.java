@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.test;
+
+import static com.google.common.base.Objects.firstNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
+import static org.icgc.dcc.storage.test.util.SpringBootProcess.bootRun;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Random;
+
+import org.icgc.dcc.storage.test.auth.AuthClient;
+import org.icgc.dcc.storage.test.benchmark.BenchmarkReport;
+import org.icgc.dcc.storage.test.benchmark.BenchmarkResult;
+import org.icgc.dcc.storage.test.benchmark.ProcessStats;
+import org.icgc.dcc.storage.test.benchmark.S3RequestCounter;
+import org.icgc.dcc.storage.test.benchmark.ServerRequestCounter;
+import org.icgc.dcc.storage.test.meta.Entity;
+import org.icgc.dcc.storage.test.meta.MetadataClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.Files;
+
+import lombok.Value;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * End-to-end throughput benchmark of the client transports against the local S3 stand-in.
+ * <p>
+ * Uploads and downloads synthetic objects for every combination of object size, {@code transport.fileFrom} and
+ * {@code transport.parallel}, reporting throughput, client CPU time and peak RSS and the number of control plane and
+ * S3 requests. Only runs with {@code -Dbenchmark=true}, e.g.:
+ * 
+ * <pre>
+ * mvn -am -pl dcc-storage-test test -Dtest=StorageBenchmark -DfailIfNoTests=false -Dbenchmark=true \
+ *   -Dbenchmark.sizes=64,1024 -Dbenchmark.count=4 -Dbenchmark.transports=memory,remote -Dbenchmark.parallel=1,6
+ * </pre>
+ */
+@Slf4j
+public class StorageBenchmark extends AbstractStorageIntegrationTest {
+
+  /**
+   * Constants.
+   */
+  private static final Splitter LIST_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+  private static final long MB = 1024L * 1024L;
+  private static final String SEQUENTIAL = "sequential";
+
+  /**
+   * Configuration.
+   */
+  final List<Long> sizes = getLongs("benchmark.sizes", "64,1024");
+  final int count = Integer.getInteger("benchmark.count", 4);
+  final List<String> transports = getStrings("benchmark.transports", "memory,remote,piped,sequential");
+  final List<Long> parallels = getLongs("benchmark.parallel", "1,6");
+  final int memory = Integer.getInteger("benchmark.memory", 1);
+  final int timeout = Integer.getInteger("benchmark.timeout", 30);
+
+  /**
+   * State.
+   */
+  final S3RequestCounter s3Requests = new S3RequestCounter();
+  final ServerRequestCounter serverRequests = new ServerRequestCounter("http://localhost:" + storagePort);
+  final BenchmarkReport report =
+      new BenchmarkReport(new File(System.getProperty("benchmark.report", fs.getRootDir() + "/benchmark.csv")));
+
+  String transport;
+  long parallel;
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    assumeTrue("Benchmark disabled, enable with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+
+    banner("STORAGE BENCHMARK");
+    super.setUp();
+    s3.onRequest(s3Requests);
+  }
+
+  @After
+  @Override
+  public void tearDown() {
+    super.tearDown();
+  }
+
+  @Test
+  public void benchmark() throws Exception {
+    banner("Authorizing...");
+    val accessToken = new AuthClient("https://localhost:" + authPort).createAccessToken();
+    val metadataClient = new MetadataClient("https://localhost:" + metadataPort, false);
+
+    for (val size : sizes) {
+      banner("Generating " + count + " objects of " + size + " MB...");
+      val objects = createObjects(accessToken, metadataClient, size * MB);
+      val manifest = createManifest(objects);
+      val objectIds = objects.stream().map(SyntheticObject::getObjectId).toArray(String[]::new);
+
+      for (val transport : transports) {
+        for (val parallel : parallels) {
+          this.transport = transport;
+          this.parallel = parallel;
+          val runDir = new File(fs.getRootDir(), "benchmark/" + size + "-" + transport + "-" + parallel);
+
+          banner("Uploading " + size + " MB x " + count + " using " + transport + " x " + parallel + "...");
+          report.add(run(accessToken, "upload", size * MB, objects, ImmutableList.of(
+              "upload",
+              "--manifest", manifest.getPath(),
+              "--force",
+              "--verify-connection", "false",
+              "--metrics-file", new File(runDir, "upload-metrics.json").getPath())));
+
+          if (transport.equals(SEQUENTIAL)) {
+            // Sequential transport is upload only
+            continue;
+          }
+
+          banner("Downloading " + size + " MB x " + count + " using " + transport + " x " + parallel + "...");
+          val outputDir = new File(runDir, "downloads");
+          outputDir.mkdirs();
+          report.add(run(accessToken, "download", size * MB, objects, ImmutableList.<String> builder()
+              .add("download")
+              .add("--object-id").add(objectIds)
+              .add("--output-dir", outputDir.getPath())
+              .add("--output-layout", "id")
+              .add("--index", "false")
+              .add("--validate", "false")
+              .add("--force")
+              .add("--verify-connection", "false")
+              .add("--metrics-file", new File(runDir, "download-metrics.json").getPath())
+              .build(),
+              outputDir));
+        }
+      }
+    }
+
+    report.write();
+  }
+
+  private BenchmarkResult run(String accessToken, String operation, long size, List<SyntheticObject> objects,
+      List<String> args) throws InterruptedException {
+    return run(accessToken, operation, size, objects, args, null);
+  }
+
+  private BenchmarkResult run(String accessToken, String operation, long size, List<SyntheticObject> objects,
+      List<String> args, File outputDir) throws InterruptedException {
+    val countersBefore = serverRequests.read();
+    s3Requests.reset();
+
+    val watch = Stopwatch.createStarted();
+    val client = storageClient(accessToken, args.toArray(new String[args.size()]));
+    val stats = ProcessStats.monitor(client);
+    val exited = client.waitFor(timeout, MINUTES);
+    stats.await();
+    watch.stop();
+
+    val requests = ServerRequestCounter.difference(countersBefore, serverRequests.read());
+    log.info("Control plane requests: {}", requests);
+
+    val success = exited && client.exitValue() == 0 && (outputDir == null || verify(objects, outputDir));
+    if (!exited) {
+      client.destroyForcibly();
+    }
+
+    return BenchmarkResult.builder()
+        .operation(operation)
+        .transport(transport)
+        .parallel((int) parallel)
+        .objectSize(size)
+        .objectCount(objects.size())
+        .success(success)
+        .elapsedMs(watch.elapsed(MILLISECONDS))
+        .cpuMs(stats.getCpuMillis())
+        .peakRssKb(stats.getPeakRssKb())
+        .controlPlaneRequests(ServerRequestCounter.total(requests))
+        .s3DataRequests(s3Requests.getDataRequests())
+        .s3OtherRequests(s3Requests.getOtherRequests())
+        .build();
+  }
+
+  private List<SyntheticObject> createObjects(String accessToken, MetadataClient metadataClient, long size)
+      throws IOException {
+    val gnosId = "benchmark-" + size;
+    val dir = new File(fs.getUploadsDir(), gnosId);
+    dir.mkdirs();
+
+    val objects = Lists.<SyntheticObject> newArrayList();
+    val random = new Random(size);
+    val buffer = new byte[(int) MB];
+    for (int i = 0; i < count; i++) {
+      val file = new File(dir, "object-" + i + ".bin");
+      try (val output = new HashingOutputStream(Hashing.md5(), new FileOutputStream(file))) {
+        for (long written = 0; written < size; written += buffer.length) {
+          random.nextBytes(buffer);
+          output.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+        }
+
+        val entity = new Entity();
+        entity.setGnosId(gnosId);
+        entity.setFileName(file.getName());
+        entity.setProjectCode("BENCH-BM");
+        entity.setAccess("controlled");
+
+        val objectId = metadataClient.register(accessToken, entity).getId();
+        objects.add(new SyntheticObject(objectId, file, output.hash().toString()));
+      }
+    }
+
+    return objects;
+  }
+
+  private File createManifest(List<SyntheticObject> objects) throws IOException {
+    val manifest = new File(objects.get(0).getFile().getParentFile(), "manifest.txt");
+    try (val writer = new PrintWriter(manifest)) {
+      writer.println("object-id\tfile-path\tmd5");
+      for (val object : objects) {
+        writer.println(Joiner.on('\t').join(object.getObjectId(), object.getFile().getPath(), object.getMd5()));
+      }
+    }
+
+    return manifest;
+  }
+
+  private static boolean verify(List<SyntheticObject> objects, File outputDir) {
+    for (val object : objects) {
+      try {
+        val md5 = Files.hash(new File(outputDir, object.getObjectId()), Hashing.md5()).toString();
+        if (!md5.equals(object.getMd5())) {
+          log.error("MD5 mismatch for downloaded object {}: expected {}, actual {}", object.getObjectId(),
+              object.getMd5(), md5);
+          return false;
+        }
+      } catch (IOException e) {
+        log.error("Could not read downloaded object {}: {}", object.getObjectId(), e.getMessage());
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  Process storageServer() {
+    int debugPort = Integer.parseInt(System.getProperty("storage.server.debugPort", "-1"));
+
+    return bootRun(
+        "dcc-storage-server",
+        debugPort,
+        "-Dspring.profiles.active=dev,secure,default", // Secure
+        "-Dlogging.file=" + fs.getLogsDir() + "/dcc-storage-server.log",
+        "-Dserver.port=" + storagePort,
+        "-Dbucket.name.object=oicr.icgc.dev",
+        "-Dbucket.name.state=oicr.icgc.dev.state",
+        "-Dauth.server.url=https://localhost:" + authPort + "/oauth/check_token",
+        "-Dauth.server.clientId=storage",
+        "-Dauth.server.clientsecret=pass",
+        "-Dmetadata.url=https://localhost:" + metadataPort,
+        "-Dendpoints.jmx.domain=storage",
+        "-Dmanagement.security.enabled=false",
+        "-Dendpoints.prometheus.sensitive=false",
+        "-Dmetrics.anonymous=true"); // Scraped by the request counter
+  }
+
+  @Override
+  Process storageClient(String accessToken, String... args) {
+    int debugPort = Integer.parseInt(firstNonNull(System.getProperty("storage.client.debugPort"), "-1"));
+
+    return bootRun(
+        "dcc-storage-client",
+        debugPort,
+        args,
+        "-Dlogging.file=" + fs.getLogsDir() + "/dcc-storage-client.log",
+        "-Dmetadata.url=https://localhost:" + metadataPort,
+        "-Dmetadata.ssl.enabled=false",
+        "-Dstorage.url=http://localhost:" + storagePort,
+        "-DaccessToken=" + accessToken,
+        "-Dclient.quiet=true",
+        "-Dtransport.fileFrom=" + transport,
+        "-Dtransport.parallel=" + parallel,
+        "-Dtransport.memory=" + memory);
+  }
+
+  private static List<Long> getLongs(String name, String defaultValue) {
+    return getStrings(name, defaultValue).stream().map(Long::valueOf).collect(toImmutableList());
+  }
+
+  private static List<String> getStrings(String name, String defaultValue) {
+    return LIST_SPLITTER.splitToList(System.getProperty(name, defaultValue));
+  }
+
+  @Value
+  private static class SyntheticObject {
+
+    String objectId;
+    File file;
+    String md5;
+
+  }
+
+}
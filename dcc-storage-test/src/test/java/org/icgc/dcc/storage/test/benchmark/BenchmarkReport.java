@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.test.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects {@link BenchmarkResult}s, logs them as a table and writes them as CSV.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class BenchmarkReport {
+
+  /**
+   * Constants.
+   */
+  private static final String HEADER =
+      "operation,transport,parallel,objectSize,objectCount,success,elapsedMs,throughputMBps,cpuMs,peakRssKb,"
+          + "controlPlaneRequests,s3DataRequests,s3OtherRequests";
+  private static final String FORMAT = "%-8s %-10s %8s %12s %6s %7s %10s %10s %10s %12s %8s %8s %8s";
+
+  /**
+   * Configuration.
+   */
+  @NonNull
+  private final File file;
+
+  /**
+   * State.
+   */
+  private final List<BenchmarkResult> results = Lists.newArrayList();
+
+  public void add(@NonNull BenchmarkResult result) {
+    results.add(result);
+    log.info("Benchmark result: {}", result);
+  }
+
+  @SneakyThrows
+  public void write() {
+    Files.createParentDirs(file);
+    try (val writer = new PrintWriter(Files.newWriter(file, UTF_8))) {
+      writer.println(HEADER);
+      for (val result : results) {
+        writer.printf("%s,%s,%d,%d,%d,%s,%d,%.1f,%d,%d,%d,%d,%d%n",
+            result.getOperation(), result.getTransport(), result.getParallel(), result.getObjectSize(),
+            result.getObjectCount(), result.isSuccess(), result.getElapsedMs(), result.getThroughput(),
+            result.getCpuMs(), result.getPeakRssKb(), result.getControlPlaneRequests(), result.getS3DataRequests(),
+            result.getS3OtherRequests());
+      }
+    }
+
+    log.info(String.format(FORMAT, "op", "transport", "parallel", "size", "count", "ok", "ms", "MB/s", "cpu ms",
+        "peak rss KB", "ctrl", "s3 data", "s3 other"));
+    for (val result : results) {
+      log.info(String.format(FORMAT, result.getOperation(), result.getTransport(), result.getParallel(),
+          result.getObjectSize(), result.getObjectCount(), result.isSuccess(), result.getElapsedMs(),
+          String.format("%.1f", result.getThroughput()), result.getCpuMs(), result.getPeakRssKb(),
+          result.getControlPlaneRequests(), result.getS3DataRequests(), result.getS3OtherRequests()));
+    }
+
+    log.info("Wrote {} benchmark result(s) to '{}'", results.size(), file);
+  }
+
+}
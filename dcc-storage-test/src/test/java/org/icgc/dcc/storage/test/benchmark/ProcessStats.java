@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.test.benchmark;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Samples CPU time and peak resident set size of a child process from {@code /proc} until it exits.
+ * <p>
+ * Linux only. CPU time is that of the last sample, so up to one sampling interval at the end of the process is not
+ * accounted for.
+ */
+@Slf4j
+public class ProcessStats {
+
+  /**
+   * Constants.
+   */
+  private static final long SAMPLE_INTERVAL_MS = 100;
+  private static final long CLOCK_TICK_MS = 10; // USER_HZ = 100 on Linux
+  private static final Splitter FIELD_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+
+  /**
+   * State.
+   */
+  @Getter
+  private volatile long cpuMillis;
+  @Getter
+  private volatile long peakRssKb;
+
+  private final Thread sampler;
+
+  private ProcessStats(Process process) {
+    val pid = getPid(process);
+    this.sampler = new Thread(() -> {
+      while (process.isAlive()) {
+        sample(pid);
+        Uninterruptibles.sleepUninterruptibly(SAMPLE_INTERVAL_MS, MILLISECONDS);
+      }
+    }, "process-stats-" + pid);
+
+    sampler.setDaemon(true);
+    sampler.start();
+  }
+
+  public static ProcessStats monitor(Process process) {
+    return new ProcessStats(process);
+  }
+
+  public void await() {
+    Uninterruptibles.joinUninterruptibly(sampler);
+  }
+
+  private void sample(long pid) {
+    try {
+      // Fields 14 and 15 of stat are utime and stime, counting from the state field (3) after the command name
+      val stat = new String(Files.readAllBytes(new File("/proc/" + pid + "/stat").toPath()), US_ASCII);
+      val fields = FIELD_SPLITTER.splitToList(stat.substring(stat.lastIndexOf(')') + 2));
+      cpuMillis = (Long.parseLong(fields.get(14 - 3)) + Long.parseLong(fields.get(15 - 3))) * CLOCK_TICK_MS;
+
+      for (val line : Files.readAllLines(new File("/proc/" + pid + "/status").toPath(), US_ASCII)) {
+        if (line.startsWith("VmHWM:")) {
+          peakRssKb = Long.parseLong(FIELD_SPLITTER.splitToList(line).get(1));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // Process exited between the liveness check and the read
+      log.debug("Could not sample process {}: {}", pid, e.getMessage());
+    }
+  }
+
+  @SneakyThrows
+  private static long getPid(Process process) {
+    try {
+      // Java 9+
+      return (Long) Process.class.getMethod("pid").invoke(process);
+    } catch (NoSuchMethodException e) {
+      // Java 8 UNIXProcess
+      val field = process.getClass().getDeclaredField("pid");
+      field.setAccessible(true);
+
+      return field.getInt(process);
+    }
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.test.benchmark;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.icgc.dcc.storage.test.s3.S3Request;
+
+/**
+ * Counts the requests reaching the S3 stand-in, split into part transfers and everything else.
+ */
+public class S3RequestCounter implements Consumer<S3Request> {
+
+  private final AtomicLong dataRequests = new AtomicLong();
+  private final AtomicLong otherRequests = new AtomicLong();
+
+  @Override
+  public void accept(S3Request request) {
+    if (request.isUpload() || request.isDownload()) {
+      dataRequests.incrementAndGet();
+    } else {
+      otherRequests.incrementAndGet();
+    }
+  }
+
+  public long getDataRequests() {
+    return dataRequests.get();
+  }
+
+  public long getOtherRequests() {
+    return otherRequests.get();
+  }
+
+  public void reset() {
+    dataRequests.set(0);
+    otherRequests.set(0);
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.test.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.net.URL;
+import java.util.Map;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.io.Resources;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+
+/**
+ * Reads the per endpoint request counters of the storage server from its Prometheus endpoint.
+ */
+@RequiredArgsConstructor
+public class ServerRequestCounter {
+
+  /**
+   * Constants.
+   */
+  private static final String METRICS_PATH = "/prometheus";
+  private static final String COUNTER_PREFIX = "counter_status_";
+  private static final String METRICS_COUNTER_SUFFIX = "_prometheus"; // Of the scrapes themselves
+  private static final Splitter LINE_SPLITTER = Splitter.on('\n').omitEmptyStrings();
+  private static final Splitter FIELD_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+
+  /**
+   * Configuration.
+   */
+  @NonNull
+  private final String serverUrl;
+
+  @SneakyThrows
+  public Map<String, Long> read() {
+    val text = Resources.toString(new URL(serverUrl + METRICS_PATH), UTF_8);
+
+    val counters = ImmutableMap.<String, Long> builder();
+    for (val line : LINE_SPLITTER.split(text)) {
+      if (line.startsWith(COUNTER_PREFIX)) {
+        val fields = FIELD_SPLITTER.splitToList(line);
+        if (!fields.get(0).endsWith(METRICS_COUNTER_SUFFIX)) {
+          counters.put(fields.get(0), (long) Double.parseDouble(fields.get(1)));
+        }
+      }
+    }
+
+    return counters.build();
+  }
+
+  public static Map<String, Long> difference(Map<String, Long> before, Map<String, Long> after) {
+    val difference = Maps.<String, Long> newTreeMap();
+    for (val entry : after.entrySet()) {
+      val count = entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+      if (count > 0) {
+        difference.put(entry.getKey(), count);
+      }
+    }
+
+    return difference;
+  }
+
+  public static long total(Map<String, Long> counters) {
+    return counters.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+}
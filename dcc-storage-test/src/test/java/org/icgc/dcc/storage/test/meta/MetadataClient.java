@@ -19,6 +19,8 @@ package org.icgc.dcc.storage.test.meta;
 
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
 
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
@@ -77,6 +79,22 @@ public class MetadataClient {
     return readAll("?gnosId=" + gnosId);
   }
 
+  @SneakyThrows
+  public Entity register(@NonNull String accessToken, @NonNull Entity entity) {
+    val connection = (HttpURLConnection) resolveUrl("").openConnection();
+    connection.setDoOutput(true);
+    connection.setRequestMethod("POST");
+    connection.setRequestProperty("Authorization", "Bearer " + accessToken);
+    connection.setRequestProperty("Accept", "application/json");
+    connection.setRequestProperty("Content-Type", "application/json");
+
+    try (OutputStream output = connection.getOutputStream()) {
+      MAPPER.writeValue(output, entity);
+    }
+
+    return MAPPER.readValue(connection.getInputStream(), Entity.class);
+  }
+
   @SneakyThrows
   private Entity read(@NonNull String path) {
     return MAPPER.readValue(resolveUrl(path), Entity.class);